@@ -0,0 +1,26 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "adaptive-producer-config")
+public class AdaptiveProducerConfigData {
+
+    private Boolean enabled;
+    private String goal;
+    private Long targetLatencyMs;
+    private Long evaluationIntervalMs;
+    private Integer sustainedEvaluations;
+    private Long rollCooldownMs;
+    private Integer minBatchSize;
+    private Integer maxBatchSize;
+    private Integer minLingerMs;
+    private Integer maxLingerMs;
+    private String latencyCompressionType;
+    private String throughputCompressionType;
+
+
+}
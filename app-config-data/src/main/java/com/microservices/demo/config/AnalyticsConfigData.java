@@ -0,0 +1,35 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "analytics-config")
+public class AnalyticsConfigData {
+
+    private Boolean enabled;
+    private String topicName;
+    private Long slideMs;
+    private Long slidingWindowMs;
+    private Long tumblingWindowMs;
+    private Integer topWords;
+    private Integer minWordLength;
+    private Integer maxWordLength;
+    private Integer maxDistinctWords;
+    private Integer bufferCapacity;
+    private List<String> stopWords;
+    private Boolean distinctUsersEnabled;
+    private String instanceId;
+    private Integer hllPrecision;
+    private Long distinctUsersPaneMs;
+    private Long distinctUsersRetentionMs;
+    private Integer distinctUsersBufferCapacity;
+    private String sketchTopicName;
+    private Long sketchPublishIntervalMs;
+
+
+}
@@ -0,0 +1,15 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "graceful-shutdown-config")
+public class GracefulShutdownConfigData {
+
+    private Long drainTimeoutMs;
+
+
+}
@@ -0,0 +1,22 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hot-key-partitioner-config")
+public class HotKeyPartitionerConfigData {
+
+    private String mode;
+    private Integer sketchDepth;
+    private Integer sketchWidth;
+    private Double hotKeyThreshold;
+    private Long minWindowRecords;
+    private Long windowRecords;
+    private Integer saltBuckets;
+    private Long skewReportIntervalMs;
+
+
+}
@@ -0,0 +1,25 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hot-path-logging-config")
+public class HotPathLoggingConfigData {
+
+    private Integer defaultSampleEvery;
+    private Integer defaultMaxPerSecond;
+    private Long summaryIntervalMs;
+    private Map<String, Site> sites = new HashMap<>();
+
+    @Data
+    public static class Site {
+        private Integer sampleEvery;
+        private Integer maxPerSecond;
+    }
+}
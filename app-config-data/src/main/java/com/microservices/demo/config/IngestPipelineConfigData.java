@@ -0,0 +1,25 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ingest-pipeline-config")
+public class IngestPipelineConfigData {
+
+    private Integer bufferCapacity;
+    private Integer workerCount;
+    private Integer maxBatchSize;
+    private String fullBufferPolicy;
+    private Long blockParkNanos;
+    private Long idleParkNanos;
+    private Long statsLogIntervalMs;
+    private Boolean dedupEnabled;
+    private Long dedupWindowMs;
+    private Integer dedupGenerations;
+    private Integer dedupMaxEntries;
+
+
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Configuration
@@ -17,6 +18,8 @@ public class KafkaConfigData {
     private List<String> topicNamesToCreate;
     private Integer numOfPartitions;
     private Short replicationFactor;
+    private Map<String, Map<String, String>> topicConfigs;
+    private Long bootstrapTimeoutMs;
 
 
 }
@@ -17,6 +17,16 @@ public class KafkaProducerConfigData {
     private String compressionType;
     private Integer batchSizeBoostFactor;
     private Integer requestTimeoutMs;
+    private Integer maxBlockMs;
+    private Integer deliveryTimeoutMs;
+    private Long backpressureMaxInFlight;
+    private String partitionerClass;
+    private String schemaIdCacheDirectory;
+    private Integer producerPoolSize;
+    private Long closeTimeoutMs;
+    private String deliveryGuarantee;
+    private Boolean enableIdempotence;
+    private String transactionalIdPrefix;
 
 
 }
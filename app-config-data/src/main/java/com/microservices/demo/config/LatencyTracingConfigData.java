@@ -0,0 +1,17 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "latency-tracing-config")
+public class LatencyTracingConfigData {
+
+    private Boolean enabled;
+    private Long highestTrackableLatencyMs;
+    private Integer significantDigits;
+
+
+}
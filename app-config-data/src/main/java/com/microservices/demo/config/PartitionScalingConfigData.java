@@ -0,0 +1,27 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "partition-scaling-config")
+public class PartitionScalingConfigData {
+
+    private Boolean enabled;
+    private List<String> topicNames;
+    private Long sampleIntervalMs;
+    private Integer sustainedSamples;
+    private Long maxRecordsPerSecondPerPartition;
+    private Long maxBytesPerSecondPerPartition;
+    private Double lowWatermarkRatio;
+    private Double targetUtilization;
+    private Integer maxPartitions;
+    private Long cooldownMs;
+    private Long requestTimeoutMs;
+
+
+}
@@ -0,0 +1,22 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "spill-journal-config")
+public class SpillJournalConfigData {
+
+    private Boolean enabled;
+    private String directory;
+    private Integer segmentSizeBytes;
+    private Long maxDiskBytes;
+    private Integer replayBatchSize;
+    private Long replayIdleMs;
+    private Long replayRetryBackoffMs;
+    private Long replayAckTimeoutMs;
+
+
+}
@@ -0,0 +1,21 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "tweet-replay-config")
+public class TweetReplayConfigData {
+
+    private String replayPath;
+    private Double speed;
+    private Boolean loop;
+    private Long maxGapMs;
+    private Long mapWindowBytes;
+    private Boolean captureEnabled;
+    private String captureDirectory;
+
+
+}
@@ -15,12 +15,18 @@ public class TwitterToKafkaServiceConfigData {
     private List<String> twitterKeywords;
     private String welcomeMessage;
     private Boolean enableMockTweets;
+    private Boolean enableReplayTweets;
     private Long mockSleepMs;
     private Integer mockMinTweetLength;
     private Integer mockMaxTweetLength;
+    private Long mockTargetTweetsPerSecond;
+    private Integer mockGeneratorThreads;
+    private Long mockRateReportIntervalMs;
     private String twitterV2BaseUrl;
     private String twitterV2RulesBaseUrl;
     private String twitterV2BearerToken;
+    private String executionMode;
+    private Boolean dropNonMatchingTweets;
 
 
 }
@@ -0,0 +1,21 @@
+package com.microservices.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "twitter-v2-http-client-config")
+public class TwitterV2HttpClientConfigData {
+
+    private Long connectTimeoutMs;
+    private Long requestTimeoutMs;
+    private Long streamReadTimeoutMs;
+    private Integer connectionPoolSize;
+    private Long keepAliveTimeoutSeconds;
+    private Boolean gzipEnabled;
+    private Integer executorThreads;
+
+
+}
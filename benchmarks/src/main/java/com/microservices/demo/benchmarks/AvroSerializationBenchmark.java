@@ -0,0 +1,74 @@
+package com.microservices.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.serializer.TwitterAvroSerializer;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value serialization cost of one tweet through the stock Confluent serializer and through the pooled
+ * {@link TwitterAvroSerializer} configured in kafka-producer-config.value-serializer-class. The schema registry is
+ * replaced by an in-memory mock, so the numbers contain the serializer work only, without network round trips.
+ * BenchmarkRunner attaches the GC profiler, so every run reports the allocation per record as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvroSerializationBenchmark {
+
+    static final String TOPIC_NAME = "twitter_topic";
+
+    private KafkaAvroSerializer kafkaAvroSerializer;
+
+    private TwitterAvroSerializer twitterAvroSerializer;
+
+    private TwitterAvroModel twitterAvroModel;
+
+    @Setup
+    public void setup() {
+        kafkaAvroSerializer = new KafkaAvroSerializer(new MockSchemaRegistryClient(),
+                Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://benchmarks"));
+        twitterAvroSerializer = new TwitterAvroSerializer(new MockSchemaRegistryClient(),
+                Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://benchmarks"));
+        twitterAvroModel = TwitterAvroModel.newBuilder()
+                .setUserId(2244994945L)
+                .setId(1845788420134256640L)
+                .setText(TweetParsingBenchmark.TWEET_TEXT)
+                .setCreatedAt(1728900930000L)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        kafkaAvroSerializer.close();
+        twitterAvroSerializer.close();
+    }
+
+    @Benchmark
+    public byte[] kafkaAvroSerializer() {
+        return kafkaAvroSerializer.serialize(TOPIC_NAME, twitterAvroModel);
+    }
+
+    @Benchmark
+    public byte[] twitterAvroSerializer() {
+        return twitterAvroSerializer.serialize(TOPIC_NAME, twitterAvroModel);
+    }
+}
@@ -0,0 +1,213 @@
+package com.microservices.demo.benchmarks;
+
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.microservices.demo.config.HotKeyPartitionerConfigData;
+import com.microservices.demo.config.HotPathLoggingConfigData;
+import com.microservices.demo.config.KafkaConfigData;
+import com.microservices.demo.config.KafkaProducerConfigData;
+import com.microservices.demo.config.LatencyTracingConfigData;
+import com.microservices.demo.config.SpillJournalConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.config.KafkaProducerConfig;
+import com.microservices.demo.kafka.producer.journal.SpillJournal;
+import com.microservices.demo.kafka.producer.metrics.ProducerMetrics;
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.partitioner.HotKeyPartitioningStrategy;
+import com.microservices.demo.kafka.producer.pool.KafkaTemplatePool;
+import com.microservices.demo.kafka.producer.serializer.TwitterAvroSerializer;
+import com.microservices.demo.kafka.producer.service.impl.TwitterKafkaProducer;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches per second through {@link TwitterKafkaProducer#sendBatch(String, List)} with at-least-once and with
+ * exactly-once delivery, against a single KRaft broker started in-process. Producers are set up by
+ * {@link KafkaProducerConfig} with the service's producer settings, so the exactly-once run pays for its
+ * transactions exactly as the service does: one commit per batch and producer.
+ * <p>
+ * Each of the four threads stands for an ingest worker and waits for the result of its batch, which covers the acks
+ * in both modes. Multiply by the batch size for records per second. The broker is on the loopback interface, so
+ * the commit round trip is at its cheapest; across the network the gap between the modes is wider for small
+ * batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(4)
+@Fork(1)
+public class DeliveryGuaranteeBenchmark {
+
+    private static final int PARTITIONS = 3;
+
+    @Param({"AT_LEAST_ONCE", "EXACTLY_ONCE"})
+    public String deliveryGuarantee;
+
+    @Param({"50", "500"})
+    public int batchSize;
+
+    private EmbeddedKafkaKraftBroker broker;
+
+    private LocalSchemaRegistry localSchemaRegistry;
+
+    private HotPathLoggerFactory hotPathLoggerFactory;
+
+    private HotKeyPartitioningStrategy hotKeyPartitioningStrategy;
+
+    private KafkaTemplatePool<Long, TwitterAvroModel> kafkaTemplatePool;
+
+    private TwitterKafkaProducer twitterKafkaProducer;
+
+    private List<Pair<Long, TwitterAvroModel>> records;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, AvroSerializationBenchmark.TOPIC_NAME);
+        // a single broker cannot hold the default three replicas of the transaction state log
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+        localSchemaRegistry = LocalSchemaRegistry.start(0);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        hotPathLoggerFactory = new HotPathLoggerFactory(hotPathLoggingConfigData());
+        hotKeyPartitioningStrategy = new HotKeyPartitioningStrategy(hotKeyPartitionerConfigData(), meterRegistry);
+        KafkaProducerConfigData kafkaProducerConfigData = kafkaProducerConfigData();
+        KafkaProducerConfig<Long, TwitterAvroModel> kafkaProducerConfig = new KafkaProducerConfig<>(
+                kafkaConfigData(), kafkaProducerConfigData, meterRegistry, hotKeyPartitioningStrategy);
+        kafkaTemplatePool = kafkaProducerConfig.kafkaTemplatePool();
+        twitterKafkaProducer = new TwitterKafkaProducer(kafkaTemplatePool, kafkaProducerConfigData,
+                new ProducerMetrics(meterRegistry), hotPathLoggerFactory, hotKeyPartitioningStrategy,
+                new SpillJournal(spillJournalConfigData(), meterRegistry),
+                new StageLatencyRecorder(latencyTracingConfigData()));
+
+        records = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long userId = 2244994945L + i;
+            records.add(Pair.of(userId, TwitterAvroModel.newBuilder()
+                    .setUserId(userId)
+                    .setId(1845788420134256640L + i)
+                    .setText(TweetParsingBenchmark.TWEET_TEXT)
+                    .setCreatedAt(1728900930000L)
+                    .build()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        twitterKafkaProducer.close();
+        kafkaTemplatePool.destroy();
+        hotKeyPartitioningStrategy.close();
+        hotPathLoggerFactory.close();
+        localSchemaRegistry.close();
+        broker.destroy();
+    }
+
+    @Benchmark
+    public BatchSendResult<Long, TwitterAvroModel> sendBatch() {
+        BatchSendResult<Long, TwitterAvroModel> result =
+                twitterKafkaProducer.sendBatch(AvroSerializationBenchmark.TOPIC_NAME, records).join();
+        if (result.hasFailures()) {
+            throw new IllegalStateException(result.failures().size() + " record(s) of the batch failed",
+                    result.failures().get(0).exception());
+        }
+        return result;
+    }
+
+    private KafkaConfigData kafkaConfigData() {
+        KafkaConfigData kafkaConfigData = new KafkaConfigData();
+        kafkaConfigData.setBootstrapServers(broker.getBrokersAsString());
+        kafkaConfigData.setSchemaRegistryUrlKey("schema.registry.url");
+        kafkaConfigData.setSchemaRegistryUrl(localSchemaRegistry.getUrl());
+        kafkaConfigData.setTopicName(AvroSerializationBenchmark.TOPIC_NAME);
+        return kafkaConfigData;
+    }
+
+    /**
+     * The settings of the service's application.yml, without the hot key partitioner, which the batch path
+     * applies itself.
+     */
+    private KafkaProducerConfigData kafkaProducerConfigData() {
+        KafkaProducerConfigData kafkaProducerConfigData = new KafkaProducerConfigData();
+        kafkaProducerConfigData.setKeySerializerClass(LongSerializer.class.getName());
+        kafkaProducerConfigData.setValueSerializerClass(TwitterAvroSerializer.class.getName());
+        kafkaProducerConfigData.setBatchSize(16384);
+        kafkaProducerConfigData.setBatchSizeBoostFactor(100);
+        kafkaProducerConfigData.setCompressionType("snappy");
+        kafkaProducerConfigData.setAcks("all");
+        kafkaProducerConfigData.setLingerMs(5);
+        kafkaProducerConfigData.setRequestTimeoutMs(10000);
+        kafkaProducerConfigData.setMaxBlockMs(2000);
+        kafkaProducerConfigData.setDeliveryTimeoutMs(15000);
+        kafkaProducerConfigData.setRetryCount(5);
+        kafkaProducerConfigData.setProducerPoolSize(1);
+        kafkaProducerConfigData.setCloseTimeoutMs(5000L);
+        kafkaProducerConfigData.setDeliveryGuarantee(deliveryGuarantee);
+        kafkaProducerConfigData.setEnableIdempotence(true);
+        kafkaProducerConfigData.setTransactionalIdPrefix("delivery-guarantee-benchmark");
+        return kafkaProducerConfigData;
+    }
+
+    private static HotPathLoggingConfigData hotPathLoggingConfigData() {
+        HotPathLoggingConfigData hotPathLoggingConfigData = new HotPathLoggingConfigData();
+        hotPathLoggingConfigData.setDefaultSampleEvery(1000);
+        hotPathLoggingConfigData.setDefaultMaxPerSecond(5);
+        hotPathLoggingConfigData.setSummaryIntervalMs(30000L);
+        return hotPathLoggingConfigData;
+    }
+
+    private static HotKeyPartitionerConfigData hotKeyPartitionerConfigData() {
+        HotKeyPartitionerConfigData hotKeyPartitionerConfigData = new HotKeyPartitionerConfigData();
+        hotKeyPartitionerConfigData.setMode("HASH");
+        hotKeyPartitionerConfigData.setSketchDepth(4);
+        hotKeyPartitionerConfigData.setSketchWidth(2048);
+        hotKeyPartitionerConfigData.setHotKeyThreshold(0.05);
+        hotKeyPartitionerConfigData.setMinWindowRecords(1000L);
+        hotKeyPartitionerConfigData.setWindowRecords(100000L);
+        hotKeyPartitionerConfigData.setSaltBuckets(3);
+        hotKeyPartitionerConfigData.setSkewReportIntervalMs(30000L);
+        return hotKeyPartitionerConfigData;
+    }
+
+    private static SpillJournalConfigData spillJournalConfigData() {
+        SpillJournalConfigData spillJournalConfigData = new SpillJournalConfigData();
+        spillJournalConfigData.setEnabled(false);
+        spillJournalConfigData.setSegmentSizeBytes(64 * 1024 * 1024);
+        spillJournalConfigData.setMaxDiskBytes(1024L * 1024 * 1024);
+        return spillJournalConfigData;
+    }
+
+    private static LatencyTracingConfigData latencyTracingConfigData() {
+        LatencyTracingConfigData latencyTracingConfigData = new LatencyTracingConfigData();
+        latencyTracingConfigData.setEnabled(false);
+        latencyTracingConfigData.setHighestTrackableLatencyMs(60000L);
+        latencyTracingConfigData.setSignificantDigits(3);
+        return latencyTracingConfigData;
+    }
+}
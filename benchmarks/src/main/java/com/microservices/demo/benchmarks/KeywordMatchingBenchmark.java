@@ -0,0 +1,67 @@
+package com.microservices.demo.benchmarks;
+
+import com.twitter.to.kafka.service.matcher.AhoCorasickMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per tweet cost of tagging a tweet with the keywords it contains: the compiled Aho-Corasick matcher against
+ * lower casing the text and calling {@link String#contains(CharSequence)} once per keyword.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatchingBenchmark {
+
+    private static final String[] KEYWORDS = {"Java", "Microservice", "Spring", "Kafka", "Elasticsearch",
+            "Avro", "Docker", "Kubernetes", "Zookeeper", "Schema", "Stream", "Cloud", "Gradle", "Maven", "Tomcat",
+            "Netty", "Reactor", "Hibernate", "Postgres", "Redis", "Grafana", "Prometheus", "Jenkins", "Linux",
+            "Lambda", "Serverless", "Actuator", "Eureka", "Gateway", "Resilience", "Kotlin", "Scala"};
+
+    @Param({"5", "32"})
+    private int keywordCount;
+
+    private String[] lowerCaseKeywords;
+    private AhoCorasickMatcher matcher;
+
+    @Setup
+    public void setup() {
+        List<String> keywords = List.of(KEYWORDS).subList(0, keywordCount);
+        lowerCaseKeywords = keywords.stream().map(keyword -> keyword.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        matcher = new AhoCorasickMatcher(keywords);
+    }
+
+    @Benchmark
+    public List<String> ahoCorasick() {
+        return matcher.match(TweetParsingBenchmark.TWEET_TEXT);
+    }
+
+    @Benchmark
+    public List<String> stringContains() {
+        String text = TweetParsingBenchmark.TWEET_TEXT.toLowerCase(Locale.ROOT);
+        List<String> found = new ArrayList<>();
+        for (String keyword : lowerCaseKeywords) {
+            if (text.contains(keyword)) {
+                found.add(keyword);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,285 @@
+package com.microservices.demo.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.SchemaParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the Confluent schema registry, so the benchmarks run offline and without Docker.
+ * <p>
+ * Serves the part of the REST API the producer side uses: registering a schema under a subject, looking up the
+ * id of a schema, fetching a schema by id, listing subjects and versions, and the root path polled by
+ * {@code KafkaAdminClient.checkSchemaRegistry}. Only Avro schemas are accepted. Like the real registry an id
+ * is global, the same schema gets the same id under every subject. Nothing is persisted and compatibility is not
+ * checked.
+ */
+public class LocalSchemaRegistry implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalSchemaRegistry.class);
+
+    private static final String CONTENT_TYPE = "application/vnd.schemaregistry.v1+json";
+    private static final String SUBJECTS_PATH = "/subjects";
+    private static final String SCHEMA_IDS_PATH = "/schemas/ids/";
+    private static final String VERSIONS = "versions";
+    private static final int SUBJECT_NOT_FOUND = 40401;
+    private static final int VERSION_NOT_FOUND = 40402;
+    private static final int SCHEMA_NOT_FOUND = 40403;
+    private static final int INVALID_SCHEMA = 42201;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    private final Map<String, Integer> idsByCanonicalSchema = new HashMap<>();
+    private final Map<Integer, String> schemasById = new HashMap<>();
+    private final Map<String, List<Integer>> versionsBySubject = new LinkedHashMap<>();
+    private int registrationCount;
+
+    private LocalSchemaRegistry(HttpServer httpServer) {
+        this.httpServer = httpServer;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts a registry on the loopback interface.
+     *
+     * @param port the port to listen on, 0 for a free one
+     */
+    public static LocalSchemaRegistry start(int port) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        LocalSchemaRegistry registry = new LocalSchemaRegistry(httpServer);
+        httpServer.start();
+        LOG.info("Started local schema registry at {}", registry.getUrl());
+        return registry;
+    }
+
+    /**
+     * @return the url to use as schema.registry.url
+     */
+    public String getUrl() {
+        return "http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return how many register calls were received, including those for schemas that were registered already
+     */
+    public synchronized int getRegistrationCount() {
+        return registrationCount;
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/") && method.equals("GET")) {
+                respond(exchange, 200, Map.of());
+            } else if (path.startsWith(SCHEMA_IDS_PATH) && method.equals("GET")) {
+                getSchemaById(exchange, path.substring(SCHEMA_IDS_PATH.length()));
+            } else if (path.equals(SUBJECTS_PATH) && method.equals("GET")) {
+                respond(exchange, 200, subjects());
+            } else if (path.startsWith(SUBJECTS_PATH + "/")) {
+                handleSubject(exchange, method, path.substring(SUBJECTS_PATH.length() + 1).split("/"));
+            } else {
+                respondError(exchange, 404, 404, "Not found: " + method + " " + path);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Local schema registry request {} failed", exchange.getRequestURI(), e);
+        }
+    }
+
+    private void handleSubject(HttpExchange exchange, String method, String[] segments) throws IOException {
+        String subject = URLDecoder.decode(segments[0], StandardCharsets.UTF_8);
+        if (segments.length == 1 && method.equals("POST")) {
+            lookUpSchema(exchange, subject);
+        } else if (segments.length == 2 && segments[1].equals(VERSIONS) && method.equals("POST")) {
+            register(exchange, subject);
+        } else if (segments.length == 2 && segments[1].equals(VERSIONS) && method.equals("GET")) {
+            getVersions(exchange, subject);
+        } else if (segments.length == 3 && segments[1].equals(VERSIONS) && method.equals("GET")) {
+            getVersion(exchange, subject, segments[2]);
+        } else {
+            respondError(exchange, 404, 404, "Not found: " + method + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void register(HttpExchange exchange, String subject) throws IOException {
+        String schema = readSchema(exchange);
+        String canonicalSchema = canonicalize(schema);
+        if (canonicalSchema == null) {
+            respondError(exchange, 422, INVALID_SCHEMA, "Invalid schema");
+            return;
+        }
+        int id;
+        synchronized (this) {
+            registrationCount++;
+            id = idsByCanonicalSchema.computeIfAbsent(canonicalSchema, s -> {
+                int newId = schemasById.size() + 1;
+                schemasById.put(newId, schema);
+                return newId;
+            });
+            List<Integer> versions = versionsBySubject.computeIfAbsent(subject, s -> new ArrayList<>());
+            if (!versions.contains(id)) {
+                versions.add(id);
+            }
+        }
+        respond(exchange, 200, Map.of("id", id));
+    }
+
+    private void lookUpSchema(HttpExchange exchange, String subject) throws IOException {
+        String canonicalSchema = canonicalize(readSchema(exchange));
+        if (canonicalSchema == null) {
+            respondError(exchange, 422, INVALID_SCHEMA, "Invalid schema");
+            return;
+        }
+        Map<String, Object> response;
+        synchronized (this) {
+            List<Integer> versions = versionsBySubject.get(subject);
+            if (versions == null) {
+                respondError(exchange, 404, SUBJECT_NOT_FOUND, "Subject '" + subject + "' not found.");
+                return;
+            }
+            Integer id = idsByCanonicalSchema.get(canonicalSchema);
+            if (id == null || !versions.contains(id)) {
+                respondError(exchange, 404, SCHEMA_NOT_FOUND, "Schema not found");
+                return;
+            }
+            response = schemaResponse(subject, versions.indexOf(id) + 1, id);
+        }
+        respond(exchange, 200, response);
+    }
+
+    private void getSchemaById(HttpExchange exchange, String idSegment) throws IOException {
+        String schema;
+        synchronized (this) {
+            schema = schemasById.get(parseInt(idSegment));
+        }
+        if (schema == null) {
+            respondError(exchange, 404, SCHEMA_NOT_FOUND, "Schema " + idSegment + " not found");
+            return;
+        }
+        respond(exchange, 200, Map.of("schema", schema));
+    }
+
+    private void getVersions(HttpExchange exchange, String subject) throws IOException {
+        List<Integer> versionNumbers = new ArrayList<>();
+        synchronized (this) {
+            List<Integer> versions = versionsBySubject.get(subject);
+            if (versions == null) {
+                respondError(exchange, 404, SUBJECT_NOT_FOUND, "Subject '" + subject + "' not found.");
+                return;
+            }
+            for (int version = 1; version <= versions.size(); version++) {
+                versionNumbers.add(version);
+            }
+        }
+        respond(exchange, 200, versionNumbers);
+    }
+
+    private void getVersion(HttpExchange exchange, String subject, String versionSegment) throws IOException {
+        Map<String, Object> response;
+        synchronized (this) {
+            List<Integer> versions = versionsBySubject.get(subject);
+            if (versions == null) {
+                respondError(exchange, 404, SUBJECT_NOT_FOUND, "Subject '" + subject + "' not found.");
+                return;
+            }
+            int version = versionSegment.equals("latest") ? versions.size() : parseInt(versionSegment);
+            if (version < 1 || version > versions.size()) {
+                respondError(exchange, 404, VERSION_NOT_FOUND, "Version " + versionSegment + " not found.");
+                return;
+            }
+            response = schemaResponse(subject, version, versions.get(version - 1));
+        }
+        respond(exchange, 200, response);
+    }
+
+    private synchronized List<String> subjects() {
+        return new ArrayList<>(versionsBySubject.keySet());
+    }
+
+    private Map<String, Object> schemaResponse(String subject, int version, int id) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("subject", subject);
+        response.put("version", version);
+        response.put("id", id);
+        response.put("schema", schemasById.get(id));
+        return response;
+    }
+
+    private String readSchema(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            JsonNode request = objectMapper.readTree(body);
+            JsonNode schemaType = request.get("schemaType");
+            if (schemaType != null && !schemaType.asText().equals("AVRO")) {
+                return null;
+            }
+            JsonNode schema = request.get("schema");
+            return schema == null ? null : schema.asText();
+        }
+    }
+
+    /**
+     * @return the parsing canonical form, which identifies a schema regardless of formatting and docs, or null if
+     * the schema is not a valid Avro schema
+     */
+    private static String canonicalize(String schema) {
+        if (schema == null) {
+            return null;
+        }
+        try {
+            return SchemaNormalization.toParsingForm(new Schema.Parser().parse(schema));
+        } catch (SchemaParseException e) {
+            return null;
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void respondError(HttpExchange exchange, int status, int errorCode, String message) throws IOException {
+        respond(exchange, status, Map.of("error_code", errorCode, "message", message));
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+}
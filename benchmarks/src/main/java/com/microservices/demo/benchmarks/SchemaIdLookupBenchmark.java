@@ -0,0 +1,109 @@
+package com.microservices.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.serializer.TwitterAvroSerializer;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to the first serialized tweet of a freshly configured {@link TwitterAvroSerializer}, which is what a
+ * restart of the service pays before its first send. With a cold schema id cache the serializer registers the
+ * schema over HTTP first, with a warm one it uses the cached id and verifies it in the background. The registry is
+ * a {@link LocalSchemaRegistry} on the loopback interface, so a real registry across the network only widens the
+ * gap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class SchemaIdLookupBenchmark {
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private LocalSchemaRegistry localSchemaRegistry;
+
+    private Path cacheDirectory;
+
+    private TwitterAvroSerializer twitterAvroSerializer;
+
+    private TwitterAvroModel twitterAvroModel;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        localSchemaRegistry = LocalSchemaRegistry.start(0);
+        cacheDirectory = Files.createTempDirectory("schema-id-cache");
+        twitterAvroModel = TwitterAvroModel.newBuilder()
+                .setUserId(2244994945L)
+                .setId(1845788420134256640L)
+                .setText(TweetParsingBenchmark.TWEET_TEXT)
+                .setCreatedAt(1728900930000L)
+                .build();
+        // registers the schema and fills the cache file
+        TwitterAvroSerializer serializer = newSerializer();
+        serializer.serialize(AvroSerializationBenchmark.TOPIC_NAME, twitterAvroModel);
+        serializer.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        if ("cold".equals(cache)) {
+            deleteCacheFiles();
+        }
+        twitterAvroSerializer = newSerializer();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        twitterAvroSerializer.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        localSchemaRegistry.close();
+        deleteCacheFiles();
+        Files.deleteIfExists(cacheDirectory);
+    }
+
+    @Benchmark
+    public byte[] firstSerialize() {
+        return twitterAvroSerializer.serialize(AvroSerializationBenchmark.TOPIC_NAME, twitterAvroModel);
+    }
+
+    private TwitterAvroSerializer newSerializer() {
+        TwitterAvroSerializer serializer = new TwitterAvroSerializer();
+        serializer.configure(Map.of(
+                AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, localSchemaRegistry.getUrl(),
+                TwitterAvroSerializer.SCHEMA_ID_CACHE_DIR_CONFIG, cacheDirectory.toString()), false);
+        return serializer;
+    }
+
+    private void deleteCacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservices.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.twitter.to.kafka.service.decoder.TwitterV2StreamDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per tweet parsing cost of the two JSON paths: the twitter4j status factory used by the mock runner,
+ * and the single pass token decoder used for the v2 stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TweetParsingBenchmark {
+
+    static final String TWEET_TEXT = "Lorem ipsum dolor sit amet consectetuer adipiscing elit Kafka Maecenas " +
+            "porttitor congue massa Fusce posuere magna sed pulvinar ultricies purus lectus malesuada libero";
+
+    private static final String STATUS_JSON = "{" +
+            "\"created_at\":\"Mon Oct 14 10:15:30 UTC 2024\"," +
+            "\"id\":\"1845788420134256640\"," +
+            "\"text\":\"" + TWEET_TEXT + "\"," +
+            "\"user\":{\"id\":\"2244994945\"}" +
+            "}";
+
+    private static final String V2_STREAM_LINE = "{\"data\":{" +
+            "\"id\":\"1845788420134256640\"," +
+            "\"text\":\"" + TWEET_TEXT + "\"," +
+            "\"author_id\":\"2244994945\"," +
+            "\"created_at\":\"2024-10-14T10:15:30.000Z\"}," +
+            "\"matching_rules\":[{\"id\":\"1845788377851478016\",\"tag\":\"Keyword: Kafka\"}]}";
+
+    private static final byte[] V2_STREAM_LINE_BYTES = V2_STREAM_LINE.getBytes(StandardCharsets.UTF_8);
+
+    private TwitterV2StreamDecoder twitterV2StreamDecoder;
+
+    @Setup
+    public void setup() {
+        twitterV2StreamDecoder = new TwitterV2StreamDecoder();
+    }
+
+    @Benchmark
+    public Status createStatus() throws TwitterException {
+        return TwitterObjectFactory.createStatus(STATUS_JSON);
+    }
+
+    @Benchmark
+    public TwitterAvroModel v2StreamDecoder() throws IOException {
+        return twitterV2StreamDecoder.decodeMessage(V2_STREAM_LINE_BYTES, 0, V2_STREAM_LINE_BYTES.length);
+    }
+}
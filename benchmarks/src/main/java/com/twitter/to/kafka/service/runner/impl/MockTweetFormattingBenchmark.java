@@ -0,0 +1,44 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building one mock tweet: date formatting, template replacement and random content.
+ * Lives in the runner package because getFormattedTweet is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MockTweetFormattingBenchmark {
+
+    private static final String[] KEYWORDS = {"Java", "Microservice", "Spring", "Kafka", "Elasticsearch"};
+    private static final int MIN_TWEET_LENGTH = 10;
+    private static final int MAX_TWEET_LENGTH = 280;
+
+    private MockKafkaStreamRunner mockKafkaStreamRunner;
+
+    @Setup
+    public void setup() {
+        mockKafkaStreamRunner = new MockKafkaStreamRunner(new TwitterToKafkaServiceConfigData(), null, null, null, null);
+    }
+
+    @Benchmark
+    public String getFormattedTweet() {
+        return mockKafkaStreamRunner.getFormattedTweet(KEYWORDS, MIN_TWEET_LENGTH, MAX_TWEET_LENGTH);
+    }
+}
@@ -0,0 +1,172 @@
+package com.microservices.demo.common.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Logger for one call site on a per-record path. Only a sample of the calls is written: on average one in
+ * sampleEvery, and at most maxPerSecond per second. Everything else is only counted and shows up in the
+ * periodic summary of {@link HotPathLoggerFactory}.
+ * <p>
+ * Arguments are rendered only for lines that are written. Arguments that are a {@link Supplier} are called at
+ * that point too, so expensive values can be passed as {@code () -> render(value)}. For several primitive
+ * arguments, guard a plain log call with {@link #sample()} instead to avoid boxing on suppressed calls.
+ * <p>
+ * Setting the level of the underlying logger to DEBUG at runtime, e.g. through the actuator loggers endpoint,
+ * turns sampling off and writes every line.
+ */
+public final class HotPathLogger {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger;
+    private final String site;
+    private final int sampleEvery;
+    private final int maxPerSecond;
+
+    private final LongAdder seenCount = new LongAdder();
+    private final LongAdder loggedCount = new LongAdder();
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger loggedInCurrentSecond = new AtomicInteger();
+
+    HotPathLogger(Logger logger, String site, int sampleEvery, int maxPerSecond) {
+        this.logger = logger;
+        this.site = site;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.maxPerSecond = Math.max(0, maxPerSecond);
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * @return true if every call is written because the logger is at DEBUG level
+     */
+    public boolean isFullLogging() {
+        return logger.isDebugEnabled();
+    }
+
+    /**
+     * Counts one occurrence at INFO level and decides whether it is written.
+     *
+     * @return true if the caller should write this occurrence
+     */
+    public boolean sample() {
+        return sample(Level.INFO);
+    }
+
+    public void info(String format, Object arg) {
+        if (sample(Level.INFO)) {
+            logger.info(format, resolve(arg));
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (sample(Level.INFO)) {
+            logger.info(format, resolve(arg1), resolve(arg2));
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (sample(Level.INFO)) {
+            logger.info(format, resolve(args));
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (sample(Level.WARN)) {
+            logger.warn(format, resolve(arg));
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (sample(Level.WARN)) {
+            logger.warn(format, resolve(arg1), resolve(arg2));
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (sample(Level.WARN)) {
+            logger.warn(format, resolve(args));
+        }
+    }
+
+    public void error(String format, Object arg) {
+        if (sample(Level.ERROR)) {
+            logger.error(format, resolve(arg));
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (sample(Level.ERROR)) {
+            logger.error(format, resolve(arg1), resolve(arg2));
+        }
+    }
+
+    public void error(String format, Object... args) {
+        if (sample(Level.ERROR)) {
+            logger.error(format, resolve(args));
+        }
+    }
+
+    long drainSeenCount() {
+        return seenCount.sumThenReset();
+    }
+
+    long drainLoggedCount() {
+        return loggedCount.sumThenReset();
+    }
+
+    private boolean sample(Level level) {
+        seenCount.increment();
+        if (!logger.isEnabledForLevel(level)) {
+            return false;
+        }
+        if (!logger.isDebugEnabled()) {
+            if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+                return false;
+            }
+            if (maxPerSecond > 0 && !acquirePermit()) {
+                return false;
+            }
+        }
+        loggedCount.increment();
+        return true;
+    }
+
+    /**
+     * Fixed one second windows. The reset at a window change may race with a few increments of the old window,
+     * which can let a couple of extra lines through; that is fine for logging.
+     */
+    private boolean acquirePermit() {
+        long second = System.nanoTime() / NANOS_PER_SECOND;
+        long windowSecond = currentSecond.get();
+        if (second != windowSecond && currentSecond.compareAndSet(windowSecond, second)) {
+            loggedInCurrentSecond.set(0);
+        }
+        return loggedInCurrentSecond.incrementAndGet() <= maxPerSecond;
+    }
+
+    private static Object resolve(Object arg) {
+        return arg instanceof Supplier<?> supplier ? supplier.get() : arg;
+    }
+
+    private static Object[] resolve(Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            args[i] = resolve(args[i]);
+        }
+        return args;
+    }
+}
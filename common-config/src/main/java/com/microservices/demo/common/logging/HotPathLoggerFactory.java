@@ -0,0 +1,96 @@
+package com.microservices.demo.common.logging;
+
+import com.microservices.demo.config.HotPathLoggingConfigData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the {@link HotPathLogger}s of the per-record call sites and writes one summary line per interval
+ * with how many calls each site saw and how many it actually wrote.
+ * <p>
+ * Sampling is configured per site under hot-path-logging-config.sites, sites without an entry use the
+ * defaults. A logger is created once per site, so the call sites keep it in a field.
+ */
+@Component
+public class HotPathLoggerFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotPathLoggerFactory.class);
+
+    private final HotPathLoggingConfigData hotPathLoggingConfigData;
+
+    private final Map<String, HotPathLogger> loggers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService summaryExecutor;
+
+    public HotPathLoggerFactory(HotPathLoggingConfigData hotPathLoggingConfigData) {
+        this.hotPathLoggingConfigData = hotPathLoggingConfigData;
+        this.summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-path-logging-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long summaryIntervalMs = hotPathLoggingConfigData.getSummaryIntervalMs();
+        summaryExecutor.scheduleAtFixedRate(this::logSummary, summaryIntervalMs, summaryIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param type class whose logger the lines are written to
+     * @param site name of the call site, used for the configuration and the summary
+     */
+    public HotPathLogger getLogger(Class<?> type, String site) {
+        return loggers.computeIfAbsent(site, name -> createLogger(type, name));
+    }
+
+    @PreDestroy
+    public void close() {
+        summaryExecutor.shutdownNow();
+        logSummary();
+    }
+
+    private HotPathLogger createLogger(Class<?> type, String site) {
+        HotPathLoggingConfigData.Site siteConfig = hotPathLoggingConfigData.getSites().get(site);
+        int sampleEvery = hotPathLoggingConfigData.getDefaultSampleEvery();
+        int maxPerSecond = hotPathLoggingConfigData.getDefaultMaxPerSecond();
+        if (siteConfig != null) {
+            if (siteConfig.getSampleEvery() != null) {
+                sampleEvery = siteConfig.getSampleEvery();
+            }
+            if (siteConfig.getMaxPerSecond() != null) {
+                maxPerSecond = siteConfig.getMaxPerSecond();
+            }
+        }
+        LOG.info("Hot path logging for site {}: 1 in {}, at most {} line(s) per second", site, sampleEvery,
+                maxPerSecond > 0 ? maxPerSecond : "unlimited");
+        return new HotPathLogger(LoggerFactory.getLogger(type), site, sampleEvery, maxPerSecond);
+    }
+
+    private void logSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (HotPathLogger logger : loggers.values()) {
+            long seen = logger.drainSeenCount();
+            long logged = logger.drainLoggedCount();
+            if (seen == 0) {
+                continue;
+            }
+            if (!summary.isEmpty()) {
+                summary.append(", ");
+            }
+            summary.append(logger.getSite()).append(": ").append(logged).append('/').append(seen);
+            if (logger.isFullLogging()) {
+                summary.append(" (full)");
+            }
+        }
+        if (!summary.isEmpty()) {
+            LOG.info("Hot path log lines written/seen in the last interval: {}", summary);
+        }
+    }
+}
@@ -5,244 +5,268 @@ import com.microservices.demo.config.RetryConfigData;
 import com.microservices.demo.kafka.admin.config.KafkaAdminConfig;
 import com.microservices.demo.kafka.admin.exception.KafkaClientException;
 import org.apache.kafka.clients.admin.AdminClient;
-import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.CreateTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
 import org.apache.kafka.clients.admin.NewTopic;
-import org.apache.kafka.clients.admin.TopicListing;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.retry.RetryContext;
-import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.util.Collection;
+import java.time.Duration;
 import java.util.List;
-import java.util.stream.Collectors;
-
-
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prepares the Kafka side of a service: the schema registry has to answer and the configured topics have to exist
+ * with a leader and enough in-sync replicas for every partition.
+ * <p>
+ * Every step is an asynchronous stage, so {@link #bootstrap()} checks the registry while the topics are created,
+ * and readiness is polled with {@code describeTopics} with a short, growing interval instead of fixed sleeps.
+ * Each step is bounded by kafka-config.bootstrap-timeout-ms. The blocking {@link #createTopics()} and
+ * {@link #checkSchemaRegistry()} wait for their stage and throw a {@link KafkaClientException} on failure.
+ */
 @Component
 public class KafkaAdminClient {
     private static final Logger LOG = LoggerFactory.getLogger(KafkaAdminClient.class);
 
+    private static final long INITIAL_POLL_INTERVAL_MS = 50;
+
     private final KafkaAdminConfig kafkaAdminConfig;
     private final AdminClient adminClient;
     private final RetryConfigData retryConfigData;
-    private final RetryTemplate retryTemplate;
     private final KafkaConfigData kafkaConfigData;
     private final WebClient webClient;
 
-    public KafkaAdminClient(KafkaAdminConfig kafkaAdminConfig, AdminClient adminClient, RetryConfigData retryConfigData, RetryTemplate retryTemplate, KafkaConfigData kafkaConfigData, WebClient webClient) {
+    public KafkaAdminClient(KafkaAdminConfig kafkaAdminConfig, AdminClient adminClient, RetryConfigData retryConfigData, KafkaConfigData kafkaConfigData, WebClient webClient) {
         this.kafkaAdminConfig = kafkaAdminConfig;
         this.adminClient = adminClient;
         this.retryConfigData = retryConfigData;
-        this.retryTemplate = retryTemplate;
         this.kafkaConfigData = kafkaConfigData;
         this.webClient = webClient;
     }
 
+    /**
+     * Checks the schema registry and creates the topics concurrently.
+     *
+     * @return a future that completes when both are ready, or exceptionally with the first failure
+     */
+    public CompletableFuture<Void> bootstrap() {
+        return CompletableFuture.allOf(checkSchemaRegistryAsync(), createTopicsAsync());
+    }
+
     public void createTopics() {
-        CreateTopicsResult createTopicsResult;
-        try {
-            createTopicsResult = retryTemplate.execute(this::doCreateTopics); //The retryTemplate object's execute method is called with the doCreateTopics method as an argument. This method creates the Kafka topics on the Kafka cluster.
-        } catch (Throwable t) {
-            throw new KafkaClientException("Reached max number of retry for creating kafka topic(s)!"); //If the maximum number of retries is reached, a KafkaClientException is thrown.
-        }
-        checkTopicsCreated(); //The checkTopicsCreated method is called to verify that the topics were created successfully.
+        await(createTopicsAsync(), "Could not create kafka topic(s) " + getTopicNames());
     }
 
-    private CreateTopicsResult doCreateTopics(RetryContext retryContext) {
+    public void checkSchemaRegistry() {
+        await(checkSchemaRegistryAsync(), "Schema registry " + kafkaConfigData.getSchemaRegistryUrl() + " is not reachable");
+    }
 
-        List<String> topicNames = kafkaConfigData.getTopicNamesToCreate(); //The method begins by retrieving the list of topic names that need to be created from the kafkaConfigData object.
-        LOG.info("Creating {} topics(s), attempt {}", topicNames.size(), retryContext.getRetryCount()); //A log message is printed to the console, indicating the number of topics being created and the current retry attempt.
-        List<NewTopic> kafkaTopics = topicNames.stream().map(topic -> new NewTopic( //The kafkaConfigData object is used to retrieve the number of partitions and replication factor for the topics.
-                topic.trim(), //The trim method is used to remove any leading or trailing whitespace from the topic name.
-                kafkaConfigData.getNumOfPartitions(), //The kafkaConfigData object is used to retrieve the number of partitions and replication factor for the topics.
-                kafkaConfigData.getReplicationFactor())).toList(); //The kafkaConfigData object is used to retrieve the number of partitions and replication factor for the topics.
-        return adminClient.createTopics(kafkaTopics); //The adminClient object's createTopics method is called with the list of NewTopic objects as an argument. This method creates the specified Kafka topics on the Kafka cluster.
+    /**
+     * Creates the configured topics, topics that exist already are fine, and waits until every partition of them
+     * has a leader and enough in-sync replicas.
+     */
+    public CompletableFuture<Void> createTopicsAsync() {
+        long deadlineNanos = deadlineNanos();
+        List<String> topicNames = getTopicNames();
+        LOG.info("Creating {} topic(s) {}", topicNames.size(), topicNames);
+        List<NewTopic> kafkaTopics = topicNames.stream().map(topic -> new NewTopic(
+                topic,
+                kafkaConfigData.getNumOfPartitions(),
+                kafkaConfigData.getReplicationFactor()).configs(getTopicConfigs(topic))).toList(); //Topic level configs like cleanup.policy, if any are set for the topic.
+        Map<String, KafkaFuture<Void>> results = adminClient.createTopics(kafkaTopics,
+                new CreateTopicsOptions().timeoutMs(remainingMs(deadlineNanos))).values();
+        CompletableFuture<?>[] created = results.entrySet().stream()
+                .map(result -> toCompletableFuture(result.getValue()).handle((ignored, error) -> {
+                    Throwable cause = unwrap(error);
+                    if (cause != null && !(cause instanceof TopicExistsException)) {
+                        throw new KafkaClientException("Could not create kafka topic " + result.getKey(), cause);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(created)
+                .thenCompose(ignored -> awaitTopicsReady(topicNames, deadlineNanos, INITIAL_POLL_INTERVAL_MS))
+                .orTimeout(remainingMs(deadlineNanos), TimeUnit.MILLISECONDS);
+    }
 
+    /**
+     * Polls the schema registry url until it answers with a 2xx status.
+     */
+    public CompletableFuture<Void> checkSchemaRegistryAsync() {
+        String schemaRegistryUrl = kafkaConfigData.getSchemaRegistryUrl();
+        long timeoutMs = kafkaConfigData.getBootstrapTimeoutMs();
+        return webClient
+                .get()
+                .uri(schemaRegistryUrl)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnError(e -> LOG.debug("Schema registry {} is not ready yet: {}", schemaRegistryUrl, e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(INITIAL_POLL_INTERVAL_MS))
+                        .maxBackoff(Duration.ofMillis(retryConfigData.getMaxIntervalMs())))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .onErrorMap(TimeoutException.class, e -> new KafkaClientException("Schema registry " + schemaRegistryUrl
+                        + " did not answer within " + timeoutMs + " ms", e))
+                .doOnSuccess(response -> LOG.info("Schema registry {} is ready", schemaRegistryUrl))
+                .then()
+                .toFuture();
     }
 
-    public void checkSchemaRegistry() {
-        int retryCount = 1;
-        Integer maxRetry = retryConfigData.getMaxAttempts();
-        int multiplier = retryConfigData.getMultiplier().intValue();
-        Long sleepTimeMs = retryConfigData.getSleepTimeMs();
-        while (!getSchemaRegistryStatus().is2xxSuccessful()) {
-            checkMaxRetry(retryCount++, maxRetry);
-            sleep(sleepTimeMs);
-            sleepTimeMs *= multiplier;
-        }
+    private CompletableFuture<Void> awaitTopicsReady(List<String> topicNames, long deadlineNanos, long pollIntervalMs) {
+        return toCompletableFuture(adminClient.describeTopics(topicNames,
+                        new DescribeTopicsOptions().timeoutMs(remainingMs(deadlineNanos))).allTopicNames())
+                .handle((descriptions, error) -> {
+                    if (error != null) {
+                        LOG.debug("Could not describe topic(s) {} yet: {}", topicNames, unwrap(error).getMessage());
+                        return topicNames;
+                    }
+                    return topicNames.stream().filter(topic -> !isTopicReady(descriptions.get(topic))).toList();
+                })
+                .thenCompose(notReady -> {
+                    if (notReady.isEmpty()) {
+                        LOG.info("Topic(s) {} are ready", topicNames);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    long delayMs = Math.min(pollIntervalMs, remainingMs(deadlineNanos));
+                    if (delayMs <= 0) {
+                        return CompletableFuture.failedFuture(new KafkaClientException("Topic(s) " + notReady
+                                + " were not ready within " + kafkaConfigData.getBootstrapTimeoutMs() + " ms"));
+                    }
+                    long nextPollIntervalMs = Math.min(pollIntervalMs * 2, retryConfigData.getMaxIntervalMs());
+                    return CompletableFuture.runAsync(() -> { },
+                                    CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> awaitTopicsReady(notReady, deadlineNanos, nextPollIntervalMs));
+                });
     }
 
-    private HttpStatusCode getSchemaRegistryStatus() {
-        try {
-            return webClient
-                    .method(HttpMethod.GET)
-                    .uri(kafkaConfigData.getSchemaRegistryUrl())
-                    .exchangeToMono(response -> {
-                        if (response.statusCode().is2xxSuccessful()) {
-                            return Mono.just(response.statusCode());
-                        } else {
-                            return Mono.just(HttpStatus.SERVICE_UNAVAILABLE);
-                        }
-                    }).block();
-        } catch (Exception e) {
-            return HttpStatus.SERVICE_UNAVAILABLE;
+    private boolean isTopicReady(TopicDescription description) {
+        if (description == null || description.partitions().isEmpty()) {
+            return false;
         }
-    }
-    public void checkTopicsCreated() {
-        Collection<TopicListing> topics = getTopics();
-        int retryCount = 1;
-        Integer maxRetry = retryConfigData.getMaxAttempts();
-        int multiplier = retryConfigData.getMultiplier().intValue();
-        Long sleepTimeMs = retryConfigData.getSleepTimeMs();
-        for (String topic : kafkaConfigData.getTopicNamesToCreate()) {
-            while (!isTopicCreated(topics, topic)) {
-                checkMaxRetry(retryCount++, maxRetry);
-                sleep(sleepTimeMs);
-                sleepTimeMs *= multiplier;
-                topics = getTopics();
+        int minInSyncReplicas = getMinInSyncReplicas(description.name());
+        for (TopicPartitionInfo partition : description.partitions()) {
+            if (partition.leader() == null || partition.leader().isEmpty()
+                    || partition.isr().size() < minInSyncReplicas) {
+                return false;
             }
         }
+        return true;
     }
 
-    private void sleep(Long sleepTimeMs) {
-        try {
-            Thread.sleep(sleepTimeMs);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private int getMinInSyncReplicas(String topicName) {
+        String minInSyncReplicas = getTopicConfigs(topicName).get(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG);
+        return minInSyncReplicas == null ? 1 : Integer.parseInt(minInSyncReplicas);
     }
 
-    private void checkMaxRetry(int i, Integer maxRetry) {
-         if(i>maxRetry) {
-             throw new KafkaClientException("Reached max number of retry for reading kafka topic(s)!");
-         }
+    private List<String> getTopicNames() {
+        return kafkaConfigData.getTopicNamesToCreate().stream().map(String::trim).toList();
     }
 
-    private boolean isTopicCreated(Collection<TopicListing> topics, String topic) {
-        if(topics == null) {
-            return false;
+    private Map<String, String> getTopicConfigs(String topicName) {
+        Map<String, Map<String, String>> topicConfigs = kafkaConfigData.getTopicConfigs();
+        if (topicConfigs == null) {
+            return Map.of();
         }
-        return topics.stream().anyMatch(topicListing -> topicListing.name().equals(topic));
+        return topicConfigs.getOrDefault(topicName, Map.of());
+    }
+
+    private long deadlineNanos() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(kafkaConfigData.getBootstrapTimeoutMs());
+    }
 
+    private static int remainingMs(long deadlineNanos) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, remainingMs));
     }
 
-    private Collection<TopicListing> getTopics() {
-        Collection<TopicListing> topics;
+    private static void await(CompletableFuture<Void> future, String message) {
         try {
-            topics = retryTemplate.execute(this::doGetTopics);
-        } catch (RuntimeException e) {
-            throw new KafkaClientException("Reached max number of retry for reading kafka topic(s)!");
+            future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof KafkaClientException kafkaClientException) {
+                throw kafkaClientException;
+            }
+            throw new KafkaClientException(message, cause);
         }
-        return topics;
     }
 
-    private Collection<TopicListing> doGetTopics(RetryContext retryContext) {
+    private static <T> CompletableFuture<T> toCompletableFuture(KafkaFuture<T> kafkaFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        kafkaFuture.whenComplete((value, error) -> {
+            if (error == null) {
+                future.complete(value);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
 
-        Collection<TopicListing> topics;
-        try {
-            topics = retryTemplate.execute(this::doGetTopics);
-        } catch (Throwable t) {
-            throw new KafkaClientException("Reached max number of retry for reading kafka topic(s)!", t);
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
         }
-        return topics;
+        return cause;
     }
 }
 /*
-1. createTopics():
-
-Bu yöntem, Kafka üzerinde yeni konular (topics) oluşturur. Yöntem şu adımları takip eder:
-
-	•	retryTemplate.execute() kullanılarak, doCreateTopics() metodu yeniden denemelerle çalıştırılır.
-	•	Eğer bir hata olursa ve maksimum deneme sayısına ulaşıldıysa, bir KafkaClientException fırlatılır.
-	•	Konuların başarıyla oluşturulup oluşturulmadığını kontrol etmek için checkTopicsCreated() çağrılır.
-
-Mantık: Bu yöntem, Kafka’da yeni konular oluşturmak için bir deneme mekanizmasıyla çalışır. Başarısız olursa belirlenen deneme sayısına kadar tekrar dener.
-
-2. doCreateTopics(RetryContext retryContext):
-
-Bu özel bir yardımcı yöntemdir ve yeni konuları oluşturmak için asıl iş burada yapılır.
-
-	•	İlk olarak, Kafka yapılandırma verilerinden (kafkaConfigData) oluşturulması gereken konu isimlerini alır.
-	•	Her bir topic için NewTopic nesneleri oluşturulur, bu nesneler topic ismi, bölüm sayısı (partitions) ve çoğaltma faktörü (replicationFactor) içerir.
-	•	Son olarak, adminClient.createTopics() ile Kafka’ya bu topiclerin oluşturulması için bir istek yapılır.
-
-Mantık: Belirtilen topicleri Kafka üzerinde oluşturur ve retryContext ile deneme sayısını takip eder.
-
-3. checkSchemaRegistry():
-
-Bu yöntem, Kafka’nın Şema Kayıt Defteri’nin (Schema Registry) durumunu kontrol eder.
-
-	•	İlk olarak bir döngü başlar ve Şema Kayıt Defteri durumu kontrol edilir (getSchemaRegistryStatus()).
-	•	Eğer HTTP durumu 2xx (başarılı) değilse, deneme sayısı kontrol edilir ve eğer denemeler tükendiyse bir hata fırlatılır.
-	•	Başarısız denemelerde bekleme süresi her seferinde bir çarpan ile artırılır (sleepTimeMs *= multiplier).
-
-Mantık: Şema Kayıt Defteri’nin çalışır durumda olup olmadığını kontrol eder, başarılı olana kadar yeniden denemeler yapar.
-
-4. getSchemaRegistryStatus():
-
-Bu yöntem, Şema Kayıt Defteri’nin HTTP durumunu kontrol eder.
-
-	•	Bir HTTP GET isteği yapılır (webClient.method(HttpMethod.GET)), bu istek belirtilen URL’deki Şema Kayıt Defteri’ne yapılır.
-	•	Eğer istek başarılıysa, HTTP durumu (HttpStatus) 2xx olarak döner, aksi halde SERVICE_UNAVAILABLE döndürülür.
-
-Mantık: Şema Kayıt Defteri’ne HTTP isteği yapar ve durumun başarılı olup olmadığını kontrol eder.
-
-5. checkTopicsCreated():
-
-Bu yöntem, belirli Kafka konularının başarıyla oluşturulup oluşturulmadığını kontrol eder.
-
-	•	İlk olarak mevcut konular alınır (getTopics()).
-	•	Sonra her bir konu için, bu konunun oluşturulup oluşturulmadığı kontrol edilir (isTopicCreated()).
-	•	Eğer bir konu henüz oluşturulmamışsa, deneme sayısı kontrol edilir, beklenir ve tekrar denemeye geçilir.
-
-Mantık: Her bir konunun Kafka’da oluşturulup oluşturulmadığını kontrol eder ve eksikse yeniden dener.
-
-6. isTopicCreated(Collection<TopicListing> topics, String topic):
-
-Bu yöntem, verilen konu isminin Kafka’da mevcut olup olmadığını kontrol eder.
-
-	•	Eğer mevcut topic listesi null ise, konu oluşturulmamış demektir.
-	•	Konular arasında belirtilen isimde bir konu olup olmadığını kontrol eder.
-
-Mantık: Belirtilen konu isminin mevcut Kafka konuları arasında olup olmadığını doğrular.
+1. bootstrap():
 
-7. getTopics():
+Bu yöntem, Şema Kayıt Defteri (Schema Registry) kontrolünü ve topic oluşturmayı aynı anda başlatır.
 
-Bu yöntem, Kafka’daki mevcut konuları döner.
+	•	checkSchemaRegistryAsync() ve createTopicsAsync() paralel çalışır, CompletableFuture.allOf() ile birleştirilir.
+	•	Herhangi bir adım başarısız olursa dönen future hata ile tamamlanır.
 
-	•	Yine bir deneme mekanizması kullanılarak doGetTopics() çağrılır ve sonuç alınır.
+Mantık: Birbirinden bağımsız iki kontrolü sırayla değil, birlikte yaparak başlangıç süresini kısaltır.
 
-Mantık: Kafka’dan mevcut konuların listesini almak için birden fazla deneme yaparak çalışır.
+2. createTopicsAsync():
 
-8. doGetTopics(RetryContext retryContext):
+Bu yöntem, yapılandırmadaki topicleri oluşturur ve hazır olmalarını bekler.
 
-Bu yöntem, getTopics() yöntemi gibi çalışır, ancak bir deneme bağlamı (RetryContext) ile çalışır ve aslında tekrar eden bir yardımcı işlevdir.
+	•	Her topic için NewTopic nesneleri oluşturulur (bölüm sayısı, çoğaltma faktörü ve topic ayarları).
+	•	adminClient.createTopics() sonucu topic başına bir KafkaFuture döner; zaten var olan topic (TopicExistsException) hata sayılmaz.
+	•	Ardından awaitTopicsReady() ile topiclerin hazır olması beklenir.
 
-Mantık: Kafka’dan konuların listesini almak için asıl işi yapar, hata olursa maksimum denemeye kadar tekrar dener.
+Mantık: Topicleri oluşturur, isim listesini yoklamak yerine gerçekten kullanılabilir olduklarını doğrular.
 
-9. sleep(Long sleepTimeMs):
+3. awaitTopicsReady(...):
 
-Bu basit yöntem, belirtilen süre boyunca iş parçacığını uyutur (Thread.sleep).
+	•	adminClient.describeTopics() ile her bölümün (partition) lideri ve ISR (in-sync replicas) listesi okunur.
+	•	Hiç bölümü yoksa, liderleri yoksa veya ISR min.insync.replicas değerinden küçükse topic hazır değildir.
+	•	Hazır olmayan topicler 50 ms ile başlayan ve her seferinde iki katına çıkan (en fazla retry-config.max-interval-ms) aralıklarla tekrar sorgulanır.
+	•	Bekleme Thread.sleep ile değil CompletableFuture.delayedExecutor ile yapılır, iş parçacığı bloklanmaz.
 
-	•	Eğer bir kesinti (interruption) olursa, iş parçacığı yeniden başlatılır (Thread.currentThread().interrupt()).
+Mantık: Küme topicleri ne kadar sürede hazırlıyorsa o kadar beklenir, sabit uyku süreleri eklenmez.
 
-Mantık: Yöntem, denemeler arası belirli bir süre beklemeyi sağlar.
+4. checkSchemaRegistryAsync():
 
-10. checkMaxRetry(int i, Integer maxRetry):
+	•	WebClient ile Şema Kayıt Defteri adresine GET isteği yapılır; 2xx dışındaki cevaplar ve bağlantı hataları yeniden denenir.
+	•	Denemeler Retry.backoff ile artan aralıklarla yapılır, timeout() ile toplam süre sınırlanır.
 
-Bu yöntem, deneme sayısının belirlenen maksimum değeri aşıp aşmadığını kontrol eder.
+Mantık: Şema Kayıt Defteri cevap verene kadar bloklamadan bekler.
 
-	•	Eğer deneme sayısı maxRetry değerini geçerse, bir KafkaClientException fırlatılır.
+5. createTopics() ve checkSchemaRegistry():
 
-Mantık: Belirtilen maksimum deneme sayısını aşmadığımızı kontrol eder.
+Bu yöntemler ilgili asenkron adımın bitmesini bekler, hata olursa KafkaClientException fırlatır.
 
-Bu yapı, Kafka konularının ve Şema Kayıt Defteri’nin doğru bir şekilde çalışmasını sağlamak için yeniden deneme mekanizmalarıyla donatılmış bir Kafka istemci uygulamasıdır.
+6. Süre sınırı (deadline):
 
+Her adım kafka-config.bootstrap-timeout-ms ile sınırlıdır. Admin istekleri kalan süreyi timeoutMs olarak alır, en dıştaki future da orTimeout() ile korunur.
 
- */
\ No newline at end of file
+ */
@@ -3,6 +3,7 @@ package com.microservices.demo.kafka.admin.config;
 import com.microservices.demo.config.KafkaConfigData;
 import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.annotation.EnableRetry;
 
@@ -22,6 +23,7 @@ public class KafkaAdminConfig {
      *
      * @return the created AdminClient bean, which can be used to interact with the Kafka cluster.
      */
+    @Bean
     public AdminClient adminClient() {
         return AdminClient.create(Map.of(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG,
                 kafkaConfigData.getBootstrapServers()));
@@ -0,0 +1,268 @@
+package com.microservices.demo.kafka.admin.scaling;
+
+import com.microservices.demo.config.PartitionScalingConfigData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.LogDirDescription;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.ReplicaInfo;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Adds partitions to busy topics before the per-partition load outgrows what a consumer or a broker can take.
+ * <p>
+ * Every sample interval the end offsets and, from the log dirs of the leaders, the partition sizes of the
+ * configured topics are read. Their deltas give the record rate and the byte rate per partition. When the average
+ * per partition stays above partition-scaling-config.max-records-per-second-per-partition or
+ * max-bytes-per-second-per-partition for sustained-samples samples in a row, the topic is grown with
+ * {@code AdminClient.createPartitions} to the count that brings the load down to target-utilization of the
+ * ceiling, by at least one partition and never beyond max-partitions.
+ * <p>
+ * The streak of samples above the ceiling only resets once the load falls below low-watermark-ratio of it, so load
+ * hovering around the ceiling still scales, and after a scale-out no further one happens within cooldown-ms.
+ * Partitions are never removed, Kafka cannot do that. Every decision is logged; note that adding partitions moves
+ * keys to other partitions, so per-key order only holds for records produced after the change.
+ */
+@Component
+public class PartitionAutoScaler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionAutoScaler.class);
+
+    private final PartitionScalingConfigData partitionScalingConfigData;
+    private final AdminClient adminClient;
+    private final Map<String, TopicLoad> topicLoads = new HashMap<>();
+
+    private ScheduledExecutorService sampleExecutor;
+
+    public PartitionAutoScaler(PartitionScalingConfigData partitionScalingConfigData, AdminClient adminClient) {
+        this.partitionScalingConfigData = partitionScalingConfigData;
+        this.adminClient = adminClient;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(partitionScalingConfigData.getEnabled())) {
+            return;
+        }
+        sampleExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-auto-scaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sampleIntervalMs = partitionScalingConfigData.getSampleIntervalMs();
+        sampleExecutor.scheduleWithFixedDelay(this::sample, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+        LOG.info("Partition auto scaling of topic(s) {} every {} ms, ceiling {} records/s and {} bytes/s per "
+                        + "partition, at most {} partitions", partitionScalingConfigData.getTopicNames(),
+                sampleIntervalMs,
+                partitionScalingConfigData.getMaxRecordsPerSecondPerPartition(),
+                partitionScalingConfigData.getMaxBytesPerSecondPerPartition(),
+                partitionScalingConfigData.getMaxPartitions());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sampleExecutor != null) {
+            sampleExecutor.shutdownNow();
+        }
+    }
+
+    private void sample() {
+        try {
+            List<String> topicNames = partitionScalingConfigData.getTopicNames();
+            Map<String, TopicDescription> descriptions = get(adminClient.describeTopics(topicNames).allTopicNames());
+            Map<TopicPartition, Long> endOffsets = readEndOffsets(descriptions);
+            Map<TopicPartition, Long> sizes = readLeaderSizes(descriptions);
+            long nowNanos = System.nanoTime();
+            for (TopicDescription description : descriptions.values()) {
+                TopicLoad topicLoad = topicLoads.computeIfAbsent(description.name(), name -> new TopicLoad());
+                evaluate(description, topicLoad, endOffsets, sizes, nowNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            LOG.warn("Could not sample the load of topic(s) {}: {}", partitionScalingConfigData.getTopicNames(),
+                    e.getMessage());
+        }
+    }
+
+    private void evaluate(TopicDescription description, TopicLoad topicLoad, Map<TopicPartition, Long> endOffsets,
+                          Map<TopicPartition, Long> sizes, long nowNanos) throws InterruptedException {
+        String topic = description.name();
+        int partitionCount = description.partitions().size();
+        boolean hasBaseline = topicLoad.hasBaseline(partitionCount);
+        double seconds = (nowNanos - topicLoad.sampleNanos) / 1e9;
+        long records = 0;
+        long bytes = 0;
+        for (TopicPartitionInfo partition : description.partitions()) {
+            TopicPartition topicPartition = new TopicPartition(topic, partition.partition());
+            records += topicLoad.recordDelta(topicPartition, endOffsets.get(topicPartition));
+            bytes += topicLoad.byteDelta(topicPartition, sizes.get(topicPartition));
+        }
+        topicLoad.sampleNanos = nowNanos;
+        topicLoad.partitionCount = partitionCount;
+        if (!hasBaseline || seconds <= 0) {
+            return;
+        }
+        double recordRate = records / seconds;
+        double byteRate = bytes / seconds;
+        double recordLoad = recordRate / partitionCount
+                / ceiling(partitionScalingConfigData.getMaxRecordsPerSecondPerPartition());
+        double byteLoad = byteRate / partitionCount
+                / ceiling(partitionScalingConfigData.getMaxBytesPerSecondPerPartition());
+        double load = Math.max(recordLoad, byteLoad);
+
+        if (load > 1.0) {
+            topicLoad.samplesAboveCeiling++;
+        } else if (load < partitionScalingConfigData.getLowWatermarkRatio()) {
+            topicLoad.samplesAboveCeiling = 0;
+        }
+        if (topicLoad.samplesAboveCeiling == 0) {
+            LOG.debug("Topic {}: {} partitions at {} records/s and {} bytes/s, {}% of the ceiling, no change", topic,
+                    partitionCount, Math.round(recordRate), Math.round(byteRate), Math.round(load * 100));
+            return;
+        }
+        if (topicLoad.samplesAboveCeiling < partitionScalingConfigData.getSustainedSamples()) {
+            LOG.info("Topic {}: {} partitions at {} records/s and {} bytes/s, {}% of the ceiling, {} of {} samples "
+                            + "above it, waiting", topic, partitionCount, Math.round(recordRate), Math.round(byteRate),
+                    Math.round(load * 100), topicLoad.samplesAboveCeiling,
+                    partitionScalingConfigData.getSustainedSamples());
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        long cooldownLeftMs = topicLoad.lastScaledMs + partitionScalingConfigData.getCooldownMs() - nowMs;
+        if (cooldownLeftMs > 0) {
+            LOG.info("Topic {}: {}% of the ceiling is sustained, but the last scale-out was too recent, {} ms of "
+                    + "cooldown left", topic, Math.round(load * 100), cooldownLeftMs);
+            return;
+        }
+        int maxPartitions = partitionScalingConfigData.getMaxPartitions();
+        if (partitionCount >= maxPartitions) {
+            LOG.warn("Topic {}: {}% of the ceiling is sustained, but it has {} partitions already, the maximum",
+                    topic, Math.round(load * 100), partitionCount);
+            return;
+        }
+        int targetCount = (int) Math.ceil(partitionCount * load / partitionScalingConfigData.getTargetUtilization());
+        targetCount = Math.min(maxPartitions, Math.max(partitionCount + 1, targetCount));
+        LOG.info("Topic {}: {}% of the ceiling for {} samples at {} records/s and {} bytes/s, increasing partitions "
+                        + "from {} to {}; keys produced from now on may map to other partitions", topic,
+                Math.round(load * 100), topicLoad.samplesAboveCeiling, Math.round(recordRate), Math.round(byteRate),
+                partitionCount, targetCount);
+        try {
+            get(adminClient.createPartitions(Map.of(topic, NewPartitions.increaseTo(targetCount))).all());
+            topicLoad.lastScaledMs = nowMs;
+            topicLoad.samplesAboveCeiling = 0;
+            LOG.info("Topic {} now has {} partitions", topic, targetCount);
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("Could not increase the partitions of topic {} to {}: {}", topic, targetCount, e.getMessage());
+        }
+    }
+
+    private Map<TopicPartition, Long> readEndOffsets(Map<String, TopicDescription> descriptions)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        for (TopicDescription description : descriptions.values()) {
+            for (TopicPartitionInfo partition : description.partitions()) {
+                request.put(new TopicPartition(description.name(), partition.partition()), OffsetSpec.latest());
+            }
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> offsets =
+                get(adminClient.listOffsets(request).all());
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        offsets.forEach((topicPartition, info) -> endOffsets.put(topicPartition, info.offset()));
+        return endOffsets;
+    }
+
+    /**
+     * @return the size of every partition on its leader, the followers hold copies of the same data
+     */
+    private Map<TopicPartition, Long> readLeaderSizes(Map<String, TopicDescription> descriptions)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Map<TopicPartition, Integer> leaders = new HashMap<>();
+        Set<Integer> brokerIds = new HashSet<>();
+        for (TopicDescription description : descriptions.values()) {
+            for (TopicPartitionInfo partition : description.partitions()) {
+                if (partition.leader() != null && !partition.leader().isEmpty()) {
+                    leaders.put(new TopicPartition(description.name(), partition.partition()), partition.leader().id());
+                    brokerIds.add(partition.leader().id());
+                }
+            }
+        }
+        Map<TopicPartition, Long> sizes = new HashMap<>();
+        Map<Integer, Map<String, LogDirDescription>> logDirs =
+                get(adminClient.describeLogDirs(brokerIds).allDescriptions());
+        logDirs.forEach((brokerId, brokerLogDirs) -> brokerLogDirs.values().forEach(logDir -> {
+            for (Map.Entry<TopicPartition, ReplicaInfo> replica : logDir.replicaInfos().entrySet()) {
+                if (brokerId.equals(leaders.get(replica.getKey())) && !replica.getValue().isFuture()) {
+                    sizes.merge(replica.getKey(), replica.getValue().size(), Long::sum);
+                }
+            }
+        }));
+        return sizes;
+    }
+
+    private <T> T get(KafkaFuture<T> future)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return future.get(partitionScalingConfigData.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private static double ceiling(Long maxPerSecondPerPartition) {
+        return maxPerSecondPerPartition == null || maxPerSecondPerPartition <= 0 ? Double.MAX_VALUE :
+                maxPerSecondPerPartition;
+    }
+
+    /**
+     * Previous sample and hysteresis state of one topic, only touched by the sampling thread.
+     */
+    private static final class TopicLoad {
+
+        private final Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        private final Map<TopicPartition, Long> sizes = new HashMap<>();
+        private long sampleNanos;
+        private int partitionCount;
+        private int samplesAboveCeiling;
+        private long lastScaledMs;
+
+        boolean hasBaseline(int currentPartitionCount) {
+            return sampleNanos != 0 && partitionCount == currentPartitionCount;
+        }
+
+        long recordDelta(TopicPartition topicPartition, Long endOffset) {
+            return delta(endOffsets, topicPartition, endOffset);
+        }
+
+        /**
+         * Retention and compaction shrink a partition too, a negative delta counts as no new bytes.
+         */
+        long byteDelta(TopicPartition topicPartition, Long size) {
+            return delta(sizes, topicPartition, size);
+        }
+
+        private static long delta(Map<TopicPartition, Long> previousValues, TopicPartition topicPartition, Long value) {
+            if (value == null) {
+                return 0;
+            }
+            Long previousValue = previousValues.put(topicPartition, value);
+            return previousValue == null ? 0 : Math.max(0, value - previousValue);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.microservices.demo.kafka.producer.config;
+
+/**
+ * How the tweet producers deliver records, set by kafka-producer-config.delivery-guarantee.
+ */
+public enum DeliveryGuarantee {
+    /**
+     * Records are sent as they come and retried on failure; with idempotence a retry neither duplicates nor
+     * reorders them, but a record resent by the application after a failure may still show up twice.
+     */
+    AT_LEAST_ONCE,
+    /**
+     * Idempotent, transactional producers. Every micro-batch is committed as one transaction per producer, so
+     * read_committed consumers see a batch completely or not at all, and only once.
+     */
+    EXACTLY_ONCE
+}
@@ -2,26 +2,48 @@ package com.microservices.demo.kafka.producer.config;
 
 import com.microservices.demo.config.KafkaConfigData;
 import com.microservices.demo.config.KafkaProducerConfigData;
+import com.microservices.demo.kafka.producer.partitioner.HotKeyPartitioner;
+import com.microservices.demo.kafka.producer.partitioner.HotKeyPartitioningStrategy;
+import com.microservices.demo.kafka.producer.pool.KafkaTemplatePool;
+import com.microservices.demo.kafka.producer.serializer.TwitterAvroSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class KafkaProducerConfig < K extends Serializable,V extends SpecificRecordBase> {
     private final KafkaConfigData kafkaConfigData;
     private final KafkaProducerConfigData kafkaProducerConfigData;
+    private final MeterRegistry meterRegistry;
+    private final HotKeyPartitioningStrategy hotKeyPartitioningStrategy;
+    private final DeliveryGuarantee deliveryGuarantee;
 
-    public KafkaProducerConfig(KafkaConfigData kafkaConfigData, KafkaProducerConfigData kafkaProducerConfigData) {
+    public KafkaProducerConfig(KafkaConfigData kafkaConfigData, KafkaProducerConfigData kafkaProducerConfigData,
+                               MeterRegistry meterRegistry, HotKeyPartitioningStrategy hotKeyPartitioningStrategy) {
         this.kafkaConfigData = kafkaConfigData;
         this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.meterRegistry = meterRegistry;
+        this.hotKeyPartitioningStrategy = hotKeyPartitioningStrategy;
+        String configuredGuarantee = kafkaProducerConfigData.getDeliveryGuarantee();
+        this.deliveryGuarantee = configuredGuarantee == null ? DeliveryGuarantee.AT_LEAST_ONCE :
+                DeliveryGuarantee.valueOf(configuredGuarantee.trim().toUpperCase().replace('-', '_'));
+        String transactionalIdPrefix = kafkaProducerConfigData.getTransactionalIdPrefix();
+        if (deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE
+                && (transactionalIdPrefix == null || transactionalIdPrefix.isBlank())) {
+            throw new IllegalStateException("kafka-producer-config.transactional-id-prefix is required for " +
+                    DeliveryGuarantee.EXACTLY_ONCE);
+        }
     }
 
     /**
@@ -44,14 +66,80 @@ public class KafkaProducerConfig < K extends Serializable,V extends SpecificReco
         props.put(ProducerConfig.ACKS_CONFIG, kafkaProducerConfigData.getAcks());
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, kafkaProducerConfigData.getRequestTimeoutMs());
         props.put(ProducerConfig.RETRIES_CONFIG, kafkaProducerConfigData.getRetryCount());
+        // short timeouts let records fail fast into the spill journal during a broker outage
+        if (kafkaProducerConfigData.getMaxBlockMs() != null) {
+            props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, kafkaProducerConfigData.getMaxBlockMs());
+        }
+        if (kafkaProducerConfigData.getDeliveryTimeoutMs() != null) {
+            props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, kafkaProducerConfigData.getDeliveryTimeoutMs());
+        }
+        if (deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        } else if (kafkaProducerConfigData.getEnableIdempotence() != null) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, kafkaProducerConfigData.getEnableIdempotence());
+        }
+        if (kafkaProducerConfigData.getPartitionerClass() != null && !kafkaProducerConfigData.getPartitionerClass().isBlank()) {
+            props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, kafkaProducerConfigData.getPartitionerClass());
+            // Kafka instantiates the partitioner, the shared strategy reaches it through configure()
+            props.put(HotKeyPartitioner.STRATEGY_CONFIG, hotKeyPartitioningStrategy);
+        }
+        if (kafkaProducerConfigData.getSchemaIdCacheDirectory() != null) {
+            // only read by TwitterAvroSerializer, other serializers ignore it
+            props.put(TwitterAvroSerializer.SCHEMA_ID_CACHE_DIR_CONFIG, kafkaProducerConfigData.getSchemaIdCacheDirectory());
+        }
         return props;
     }
+    /**
+     * Creates the producer factory. The Micrometer listener binds the native client metrics of every producer
+     * the factory creates (record-queue-time, batch-size-avg, buffer-available-bytes, request latency, ...) to
+     * the meter registry under kafka.producer.*.
+     */
     @Bean
     public ProducerFactory<K, V> producerFactory() {
-        return new DefaultKafkaProducerFactory<>(producerConfig());
+        return createProducerFactory(0, Map.of());
     }
+    /**
+     * With {@link DeliveryGuarantee#EXACTLY_ONCE} the template sends in transactions, calls outside of one, like
+     * partitionsFor or metrics, use a non-transactional producer of the same factory.
+     */
     @Bean
     public KafkaTemplate<K, V> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<K, V> kafkaTemplate = new KafkaTemplate<>(producerFactory());
+        kafkaTemplate.setAllowNonTransactional(true);
+        return kafkaTemplate;
+    }
+
+    /**
+     * Creates the {@link KafkaTemplatePool} of kafka-producer-config.producer-pool-size producers: the kafkaTemplate
+     * bean plus one producer factory of its own for every further stripe. A size of 1, or none, keeps the single
+     * producer. Producers the pool rolls to get their settings on top of {@link #producerConfig()}.
+     */
+    @Bean
+    public KafkaTemplatePool<K, V> kafkaTemplatePool() {
+        Integer configuredPoolSize = kafkaProducerConfigData.getProducerPoolSize();
+        int poolSize = configuredPoolSize == null ? 1 : Math.max(1, configuredPoolSize);
+        return new KafkaTemplatePool<>(kafkaTemplate(), poolSize, this::createProducerFactory);
+    }
+
+    /**
+     * @param stripe the pool stripe the factory's producers serve, 0 for the producerFactory bean
+     */
+    private DefaultKafkaProducerFactory<K, V> createProducerFactory(int stripe, Map<String, Object> configOverrides) {
+        Map<String, Object> configs = new HashMap<>(producerConfig());
+        configs.putAll(configOverrides);
+        DefaultKafkaProducerFactory<K, V> producerFactory = new DefaultKafkaProducerFactory<>(configs);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        if (deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE) {
+            // derived from the stripe, so a restarted instance gets the same ids and fences its predecessor, and a
+            // roll reuses them, the pool closes the old producer of a stripe before the new one sends
+            producerFactory.setTransactionIdPrefix(kafkaProducerConfigData.getTransactionalIdPrefix() + "-" +
+                    stripe + "-");
+        }
+        if (kafkaProducerConfigData.getCloseTimeoutMs() != null) {
+            // bounds the wait for in-flight records when a producer is closed, the factory takes whole seconds
+            producerFactory.setPhysicalCloseTimeout(
+                    (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(kafkaProducerConfigData.getCloseTimeoutMs() + 999)));
+        }
+        return producerFactory;
     }
 }
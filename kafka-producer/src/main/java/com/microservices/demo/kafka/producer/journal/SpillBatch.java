@@ -0,0 +1,14 @@
+package com.microservices.demo.kafka.producer.journal;
+
+import java.util.List;
+
+/**
+ * Records read from the {@link SpillJournal} and the read position after them, to be passed to
+ * {@link SpillJournal#commit(SpillPosition)} once they are acknowledged.
+ */
+public record SpillBatch(List<SpillRecord> records, SpillPosition nextPosition) {
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+}
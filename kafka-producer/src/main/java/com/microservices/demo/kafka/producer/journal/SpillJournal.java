@@ -0,0 +1,414 @@
+package com.microservices.demo.kafka.producer.journal;
+
+import com.microservices.demo.config.SpillJournalConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only local journal for records that could not be delivered to Kafka, replayed in order by
+ * {@link SpillJournalReplayer} once the brokers are reachable again.
+ * <p>
+ * The journal is a sequence of fixed size segment files, each memory-mapped for reading and writing and named after
+ * its base offset. A record is {@code [int length][int crc32c][body]} with the body
+ * {@code [byte hasKey][long key][short topicLength][topic][avro single object encoding of the value]}. The length is
+ * written last, so a record cut short by a crash reads as the end of the data. A length of -1 marks the end of a
+ * segment whose remaining space was too small for the next record.
+ * <p>
+ * Disk use is bounded by max-disk-bytes; when every segment is in use, appends are rejected and counted. The read
+ * position is checkpointed to a small file after every committed replay batch, and segments before it are deleted.
+ * Data written to the mappings survives a crash of the process; segments are forced to disk when they are rolled
+ * and on shutdown.
+ */
+@Component
+public class SpillJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final String CHECKPOINT_FILE = "read.checkpoint";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int END_OF_DATA = 0;
+    private static final int END_OF_SEGMENT = -1;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment writeSegment;
+    private long readSegmentBase;
+    private int readPosition;
+    private volatile boolean pending;
+
+    private final Counter appendedRecords;
+    private final Counter appendedBytes;
+    private final Counter rejectedRecords;
+    private final Counter replayedRecords;
+
+    public SpillJournal(SpillJournalConfigData spillJournalConfigData, MeterRegistry meterRegistry) {
+        this.enabled = Boolean.TRUE.equals(spillJournalConfigData.getEnabled());
+        this.directory = spillJournalConfigData.getDirectory() == null ? null :
+                Paths.get(spillJournalConfigData.getDirectory());
+        this.segmentSize = spillJournalConfigData.getSegmentSizeBytes();
+        this.maxSegments = (int) Math.max(2, spillJournalConfigData.getMaxDiskBytes() / segmentSize);
+
+        appendedRecords = Counter.builder("kafka.producer.spill.appended.records")
+                .description("Records written to the spill journal").register(meterRegistry);
+        appendedBytes = Counter.builder("kafka.producer.spill.appended.bytes")
+                .description("Bytes written to the spill journal").register(meterRegistry);
+        rejectedRecords = Counter.builder("kafka.producer.spill.rejected.records")
+                .description("Records lost because the spill journal was full").register(meterRegistry);
+        replayedRecords = Counter.builder("kafka.producer.spill.replayed.records")
+                .description("Records replayed from the spill journal and acknowledged by Kafka")
+                .register(meterRegistry);
+        Gauge.builder("kafka.producer.spill.pending.bytes", this, SpillJournal::getPendingBytes)
+                .description("Approximate bytes in the spill journal not yet replayed").register(meterRegistry);
+        Gauge.builder("kafka.producer.spill.disk.bytes", this, SpillJournal::getDiskBytes)
+                .description("Disk space of the spill journal segments").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        SpillPosition checkpoint = readCheckpoint();
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path segmentFile : segmentFiles) {
+            long baseOffset = baseOffsetOf(segmentFile);
+            if (checkpoint != null && baseOffset < checkpoint.segmentBaseOffset()) {
+                Files.deleteIfExists(segmentFile);
+                continue;
+            }
+            Segment segment = Segment.map(segmentFile, baseOffset, segmentSize);
+            segment.writePosition = segmentSize;
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            long baseOffset = checkpoint == null ? 0 : checkpoint.segmentBaseOffset() + segmentSize;
+            segments.add(createSegment(baseOffset));
+        }
+        writeSegment = segments.get(segments.size() - 1);
+        writeSegment.writePosition = scanEndOfData(writeSegment);
+
+        Segment firstSegment = segments.get(0);
+        readSegmentBase = firstSegment.baseOffset;
+        readPosition = checkpoint != null && checkpoint.segmentBaseOffset() == firstSegment.baseOffset ?
+                checkpoint.position() : 0;
+        updatePending();
+        LOG.info("Opened spill journal in {} with {} segment(s), {} byte(s) pending replay", directory,
+                segments.size(), getPendingBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true while records are waiting for replay. New records should then be appended as well, so they
+     * reach Kafka after the spilled ones.
+     */
+    public boolean hasPending() {
+        return pending;
+    }
+
+    /**
+     * @return true if the record was written, false if the journal is disabled, full or the record does not fit
+     * in a segment
+     */
+    public boolean append(String topicName, Long key, TwitterAvroModel value) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] topicBytes = topicName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer valueBytes;
+        try {
+            valueBytes = value.toByteBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode record for the spill journal", e);
+        }
+        return append(topicBytes, key, valueBytes);
+    }
+
+    private synchronized boolean append(byte[] topicBytes, Long key, ByteBuffer valueBytes) {
+        int bodyLength = 1 + Long.BYTES + Short.BYTES + topicBytes.length + valueBytes.remaining();
+        int recordLength = RECORD_HEADER_BYTES + bodyLength;
+        if (recordLength + Integer.BYTES > segmentSize) {
+            rejectedRecords.increment();
+            LOG.error("Record of {} bytes does not fit into a spill journal segment of {} bytes", recordLength,
+                    segmentSize);
+            return false;
+        }
+        if (writeSegment.writePosition + recordLength + Integer.BYTES > segmentSize && !roll()) {
+            rejectedRecords.increment();
+            return false;
+        }
+        MappedByteBuffer buffer = writeSegment.buffer;
+        int position = writeSegment.writePosition;
+        int bodyPosition = position + RECORD_HEADER_BYTES;
+        int index = bodyPosition;
+        buffer.put(index, (byte) (key == null ? 0 : 1));
+        index += 1;
+        buffer.putLong(index, key == null ? 0L : key);
+        index += Long.BYTES;
+        buffer.putShort(index, (short) topicBytes.length);
+        index += Short.BYTES;
+        buffer.put(index, topicBytes);
+        index += topicBytes.length;
+        buffer.put(index, valueBytes, valueBytes.position(), valueBytes.remaining());
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(bodyPosition, bodyLength));
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, bodyLength);
+
+        writeSegment.writePosition = position + recordLength;
+        pending = true;
+        appendedRecords.increment();
+        appendedBytes.increment(recordLength);
+        return true;
+    }
+
+    /**
+     * Reads up to maxRecords records from the read position without moving it.
+     */
+    public synchronized SpillBatch read(int maxRecords) {
+        List<SpillRecord> records = new ArrayList<>();
+        if (!enabled) {
+            return new SpillBatch(records, new SpillPosition(0, 0));
+        }
+        int segmentIndex = indexOf(readSegmentBase);
+        Segment segment = segments.get(segmentIndex);
+        int position = readPosition;
+        while (records.size() < maxRecords) {
+            if (segment == writeSegment && position >= writeSegment.writePosition) {
+                break;
+            }
+            int length = position + RECORD_HEADER_BYTES <= segmentSize ? segment.buffer.getInt(position) :
+                    END_OF_SEGMENT;
+            SpillRecord record = length > 0 ? decode(segment, position, length) : null;
+            if (record == null) {
+                if (segment != writeSegment && length > 0) {
+                    LOG.error("Skipping the rest of spill journal segment {} after a corrupt record at {}",
+                            segment.path, position);
+                }
+                if (segmentIndex + 1 >= segments.size()) {
+                    break;
+                }
+                segment = segments.get(++segmentIndex);
+                position = 0;
+                continue;
+            }
+            records.add(record);
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return new SpillBatch(records, new SpillPosition(segment.baseOffset, position));
+    }
+
+    /**
+     * Moves the read position behind records that were delivered, deletes the segments before it and writes the
+     * checkpoint.
+     */
+    public synchronized void commit(SpillPosition position) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            while (segments.get(0) != writeSegment && segments.get(0).baseOffset < position.segmentBaseOffset()) {
+                Segment consumed = segments.remove(0);
+                Files.deleteIfExists(consumed.path);
+            }
+            readSegmentBase = position.segmentBaseOffset();
+            readPosition = position.position();
+            writeCheckpoint(position);
+        } catch (IOException e) {
+            LOG.error("Could not write the spill journal checkpoint", e);
+        }
+        updatePending();
+    }
+
+    void recordReplayed(int recordCount) {
+        replayedRecords.increment(recordCount);
+    }
+
+    public synchronized long getPendingBytes() {
+        if (!enabled || writeSegment == null) {
+            return 0;
+        }
+        return writeSegment.baseOffset + writeSegment.writePosition - readSegmentBase - readPosition;
+    }
+
+    public synchronized long getDiskBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        segments.forEach(segment -> segment.buffer.force());
+        try {
+            writeCheckpoint(new SpillPosition(readSegmentBase, readPosition));
+        } catch (IOException e) {
+            LOG.error("Could not write the spill journal checkpoint", e);
+        }
+        LOG.info("Closed spill journal with {} byte(s) pending replay", getPendingBytes());
+    }
+
+    private boolean roll() {
+        if (segments.size() >= maxSegments) {
+            LOG.warn("Spill journal is full with {} segment(s), rejecting records", segments.size());
+            return false;
+        }
+        if (writeSegment.writePosition + Integer.BYTES <= segmentSize) {
+            writeSegment.buffer.putInt(writeSegment.writePosition, END_OF_SEGMENT);
+        }
+        writeSegment.buffer.force();
+        try {
+            writeSegment = createSegment(writeSegment.baseOffset + segmentSize);
+        } catch (IOException e) {
+            LOG.error("Could not create a new spill journal segment", e);
+            return false;
+        }
+        segments.add(writeSegment);
+        return true;
+    }
+
+    private Segment createSegment(long baseOffset) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        return Segment.map(path, baseOffset, segmentSize);
+    }
+
+    private SpillRecord decode(Segment segment, int position, int length) {
+        int bodyPosition = position + RECORD_HEADER_BYTES;
+        if (bodyPosition + length > segmentSize) {
+            return null;
+        }
+        ByteBuffer body = segment.buffer.slice(bodyPosition, length);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != segment.buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        boolean hasKey = body.get() != 0;
+        long key = body.getLong();
+        byte[] topicBytes = new byte[body.getShort()];
+        body.get(topicBytes);
+        try {
+            TwitterAvroModel value = TwitterAvroModel.fromByteBuffer(body.slice());
+            return new SpillRecord(new String(topicBytes, StandardCharsets.UTF_8), hasKey ? key : null, value);
+        } catch (IOException e) {
+            LOG.error("Could not decode spilled record at {} of {}", position, segment.path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the end of the valid records of the segment the journal was writing to before it was closed.
+     */
+    private int scanEndOfData(Segment segment) {
+        int position = 0;
+        while (position + RECORD_HEADER_BYTES <= segmentSize) {
+            int length = segment.buffer.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                return segmentSize;
+            }
+            if (length == END_OF_DATA || decode(segment, position, length) == null) {
+                return position;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private int indexOf(long baseOffset) {
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).baseOffset == baseOffset) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private void updatePending() {
+        pending = getPendingBytes() > 0;
+    }
+
+    private SpillPosition readCheckpoint() throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointFile));
+        return new SpillPosition(checkpoint.getLong(), checkpoint.getInt());
+    }
+
+    private void writeCheckpoint(SpillPosition position) throws IOException {
+        ByteBuffer checkpoint = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        checkpoint.putLong(position.segmentBaseOffset()).putInt(position.position());
+        Path temporaryFile = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(temporaryFile, checkpoint.array());
+        Files.move(temporaryFile, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long baseOffsetOf(Path segmentFile) {
+        String fileName = segmentFile.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long baseOffset;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(Path path, long baseOffset, MappedByteBuffer buffer) {
+            this.path = path;
+            this.baseOffset = baseOffset;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Maps the file, creating it zero filled if needed. The mapping stays valid after the channel is closed.
+         */
+        static Segment map(Path path, long baseOffset, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return new Segment(path, baseOffset, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.microservices.demo.kafka.producer.journal;
+
+import com.microservices.demo.config.SpillJournalConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.service.impl.TwitterKafkaProducer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the {@link SpillJournal} back to Kafka on a background thread, one batch at a time and in journal order.
+ * The read position is only committed once every record of a batch is acknowledged; if any of them fails the
+ * batch is sent again after a backoff, so replay is at-least-once. While the brokers are down this is the only
+ * place that talks to Kafka for spilled topics, since new records are appended to the journal until it is empty.
+ * With transactional producers the records of a batch are committed in one transaction per producer, a batch
+ * sent again after a failed commit is not duplicated for read_committed consumers. Records are sent through
+ * {@link TwitterKafkaProducer#sendSpilled(String, List)}, on the partition and producer the key maps to, so they
+ * keep their order against the records of the same user sent once the journal is empty.
+ */
+@Component
+public class SpillJournalReplayer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillJournalReplayer.class);
+
+    private static final long THREAD_JOIN_TIMEOUT_MS = 5000;
+
+    private final SpillJournal spillJournal;
+    private final TwitterKafkaProducer twitterKafkaProducer;
+    private final SpillJournalConfigData spillJournalConfigData;
+    private final Timer replayBatchTimer;
+
+    private Thread replayThread;
+    private volatile boolean running;
+
+    public SpillJournalReplayer(SpillJournal spillJournal,
+                                TwitterKafkaProducer twitterKafkaProducer,
+                                SpillJournalConfigData spillJournalConfigData,
+                                MeterRegistry meterRegistry) {
+        this.spillJournal = spillJournal;
+        this.twitterKafkaProducer = twitterKafkaProducer;
+        this.spillJournalConfigData = spillJournalConfigData;
+        this.replayBatchTimer = Timer.builder("kafka.producer.spill.replay.batch")
+                .description("Time to replay one batch from the spill journal until all records are acknowledged")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!spillJournal.isEnabled()) {
+            return;
+        }
+        running = true;
+        replayThread = new Thread(this::replay, "spill-journal-replayer");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (replayThread != null) {
+            replayThread.interrupt();
+            try {
+                replayThread.join(THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void replay() {
+        int batchSize = spillJournalConfigData.getReplayBatchSize();
+        while (running) {
+            try {
+                replayBatch(batchSize);
+            } catch (RuntimeException e) {
+                LOG.error("Replaying the spill journal failed, retrying in {} ms",
+                        spillJournalConfigData.getReplayRetryBackoffMs(), e);
+                sleep(spillJournalConfigData.getReplayRetryBackoffMs());
+            }
+        }
+    }
+
+    private void replayBatch(int batchSize) {
+        SpillBatch batch = spillJournal.hasPending() ? spillJournal.read(batchSize) : null;
+        if (batch == null || batch.isEmpty()) {
+            if (batch != null) {
+                // only segment ends were passed, move the read position behind them
+                spillJournal.commit(batch.nextPosition());
+            }
+            sleep(spillJournalConfigData.getReplayIdleMs());
+            return;
+        }
+        if (send(batch)) {
+            spillJournal.commit(batch.nextPosition());
+            spillJournal.recordReplayed(batch.records().size());
+            if (!spillJournal.hasPending()) {
+                LOG.info("Spill journal replayed completely");
+            }
+        } else {
+            sleep(spillJournalConfigData.getReplayRetryBackoffMs());
+        }
+    }
+
+    /**
+     * Sends every run of records of the same topic as one batch, all runs are sent before any of them is waited
+     * for.
+     *
+     * @return true if every record was acknowledged
+     */
+    private boolean send(SpillBatch batch) {
+        long startNanos = System.nanoTime();
+        List<SpillRecord> records = batch.records();
+        try {
+            List<CompletableFuture<BatchSendResult<Long, TwitterAvroModel>>> results = new ArrayList<>();
+            int from = 0;
+            while (from < records.size()) {
+                String topicName = records.get(from).topicName();
+                List<Pair<Long, TwitterAvroModel>> topicRecords = new ArrayList<>();
+                int to = from;
+                while (to < records.size() && records.get(to).topicName().equals(topicName)) {
+                    topicRecords.add(Pair.of(records.get(to).key(), records.get(to).value()));
+                    to++;
+                }
+                results.add(twitterKafkaProducer.sendSpilled(topicName, topicRecords));
+                from = to;
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new))
+                    .get(spillJournalConfigData.getReplayAckTimeoutMs(), TimeUnit.MILLISECONDS);
+            for (CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> result : results) {
+                BatchSendResult<Long, TwitterAvroModel> batchResult = result.join();
+                if (batchResult.hasFailures()) {
+                    LOG.warn("Replaying {} spilled record(s) failed for {} of them, retrying in {} ms: {}",
+                            records.size(), batchResult.failures().size(),
+                            spillJournalConfigData.getReplayRetryBackoffMs(),
+                            batchResult.failures().get(0).exception().getMessage());
+                    return false;
+                }
+            }
+            replayBatchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            LOG.warn("Replaying {} spilled record(s) failed, retrying in {} ms: {}", records.size(),
+                    spillJournalConfigData.getReplayRetryBackoffMs(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void sleep(long sleepMs) {
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.microservices.demo.kafka.producer.journal;
+
+/**
+ * Position in the {@link SpillJournal}: the segment, identified by its base offset, and the byte offset in it.
+ */
+public record SpillPosition(long segmentBaseOffset, int position) {
+}
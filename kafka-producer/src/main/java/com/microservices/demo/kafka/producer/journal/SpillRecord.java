@@ -0,0 +1,9 @@
+package com.microservices.demo.kafka.producer.journal;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+/**
+ * A record read back from the {@link SpillJournal}.
+ */
+public record SpillRecord(String topicName, Long key, TwitterAvroModel value) {
+}
@@ -0,0 +1,144 @@
+package com.microservices.demo.kafka.producer.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Send side metrics of the Kafka producers: time spent in the send call itself (serialization, partitioning
+ * and appending to the record accumulator), send-to-ack latency per topic and partition, errors by exception
+ * type and the number of records sent but not yet acknowledged. Meters are created once per partition or
+ * exception type and cached, so the per-record cost is a map lookup and a timer update.
+ */
+@Component
+public class ProducerMetrics {
+
+    private static final String ACK_LATENCY = "kafka.producer.ack.latency";
+    private static final String ERRORS = "kafka.producer.errors";
+    private static final String IN_FLIGHT = "kafka.producer.in.flight";
+    private static final String SENT = "kafka.producer.records.sent";
+    private static final String SEND_CALL = "kafka.producer.send.call";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LongAdder ackedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final Counter sentCounter;
+    private final Timer sendCallTimer;
+    private final Map<String, Timer[]> ackTimersByTopic = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public ProducerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.sentCounter = Counter.builder(SENT)
+                .description("Records handed to the Kafka producer")
+                .register(meterRegistry);
+        this.sendCallTimer = Timer.builder(SEND_CALL)
+                .description("Time per record spent in the producer send call, mostly key and value serialization")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicLong::get)
+                .description("Records sent and not yet acknowledged or failed")
+                .register(meterRegistry);
+    }
+
+    public void onSend(int recordCount) {
+        inFlight.addAndGet(recordCount);
+        sentCounter.increment(recordCount);
+    }
+
+    /**
+     * @param recordCount   number of records handed to the producer in the measured call(s)
+     * @param durationNanos time spent in the send call(s) on the caller thread
+     */
+    public void onSendCall(int recordCount, long durationNanos) {
+        if (recordCount > 0) {
+            sendCallTimer.record(durationNanos / recordCount, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records the outcome of one record.
+     *
+     * @param topicName     topic of the record
+     * @param partition     partition the record was routed to, or -1 if unknown
+     * @param sendTimeNanos {@link System#nanoTime()} at the time the record was handed to the producer
+     * @param exception     the failure, or null if the broker acknowledged the record
+     */
+    public void onCompletion(String topicName, int partition, long sendTimeNanos, Throwable exception) {
+        inFlight.decrementAndGet();
+        if (exception != null) {
+            failedCount.increment();
+            errorCounter(exception.getClass()).increment();
+            return;
+        }
+        ackedCount.increment();
+        ackTimer(topicName, partition).record(System.nanoTime() - sendTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void onCompletion(RecordMetadata metadata, String topicName, long sendTimeNanos, Throwable exception) {
+        onCompletion(topicName, metadata != null ? metadata.partition() : -1, sendTimeNanos, exception);
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return records the broker acknowledged since the start
+     */
+    public long getAckedCount() {
+        return ackedCount.sum();
+    }
+
+    /**
+     * @return records that failed since the start, including those spilled to the journal afterwards
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    private Timer ackTimer(String topicName, int partition) {
+        int index = partition + 1;
+        Timer[] timers = ackTimersByTopic.get(topicName);
+        if (timers == null || index >= timers.length) {
+            timers = ackTimersByTopic.compute(topicName, (topic, current) -> grow(current, index + 1));
+        }
+        Timer timer = timers[index];
+        if (timer == null) {
+            timer = Timer.builder(ACK_LATENCY)
+                    .description("Time from handing a record to the producer until the broker acknowledged it")
+                    .tag("topic", topicName)
+                    .tag("partition", String.valueOf(partition))
+                    .register(meterRegistry);
+            timers[index] = timer;
+        }
+        return timer;
+    }
+
+    private static Timer[] grow(Timer[] current, int minLength) {
+        if (current != null && current.length >= minLength) {
+            return current;
+        }
+        Timer[] grown = new Timer[Math.max(minLength, 8)];
+        if (current != null) {
+            System.arraycopy(current, 0, grown, 0, current.length);
+        }
+        return grown;
+    }
+
+    private Counter errorCounter(Class<?> exceptionType) {
+        return errorCounters.computeIfAbsent(exceptionType, type -> Counter.builder(ERRORS)
+                .description("Records the producer failed to deliver, by exception type")
+                .tag("exception", type.getSimpleName())
+                .register(meterRegistry));
+    }
+}
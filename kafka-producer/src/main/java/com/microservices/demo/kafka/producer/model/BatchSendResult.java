@@ -0,0 +1,31 @@
+package com.microservices.demo.kafka.producer.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch send, completed once every record of the batch is acknowledged or failed.
+ *
+ * @param topicName      the topic the batch was sent to
+ * @param recordCount    number of records in the batch
+ * @param partitionCount number of distinct partitions the batch was spread over
+ * @param failures       the records that were not acknowledged, empty when the whole batch succeeded
+ * @param spilledCount   records written to the local spill journal instead, they reach Kafka when it is replayed
+ */
+public record BatchSendResult<K, V>(String topicName, int recordCount, int partitionCount,
+                                    List<RecordFailure<K, V>> failures, int spilledCount) {
+
+    public BatchSendResult(String topicName, int recordCount, int partitionCount, List<RecordFailure<K, V>> failures) {
+        this(topicName, recordCount, partitionCount, failures, 0);
+    }
+
+    /**
+     * @return records acknowledged by the brokers
+     */
+    public int succeededCount() {
+        return recordCount - failures.size() - spilledCount;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
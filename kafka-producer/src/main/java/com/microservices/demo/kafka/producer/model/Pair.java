@@ -0,0 +1,11 @@
+package com.microservices.demo.kafka.producer.model;
+
+/**
+ * Key and value of a single record inside a batch send.
+ */
+public record Pair<K, V>(K key, V value) {
+
+    public static <K, V> Pair<K, V> of(K key, V value) {
+        return new Pair<>(key, value);
+    }
+}
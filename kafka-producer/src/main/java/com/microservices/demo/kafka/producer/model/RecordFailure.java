@@ -0,0 +1,13 @@
+package com.microservices.demo.kafka.producer.model;
+
+/**
+ * A record of a batch that was not acknowledged by the broker.
+ *
+ * @param index     position of the record in the list passed to sendBatch
+ * @param key       the record key
+ * @param value     the record value, kept so the caller can retry or spill it
+ * @param partition the partition the record was routed to
+ * @param exception the reason of the failure
+ */
+public record RecordFailure<K, V>(int index, K key, V value, int partition, Throwable exception) {
+}
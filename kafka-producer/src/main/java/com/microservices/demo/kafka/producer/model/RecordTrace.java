@@ -0,0 +1,11 @@
+package com.microservices.demo.kafka.producer.model;
+
+/**
+ * Where and when a record entered the service, travels with the record to its Kafka headers and ack callback.
+ *
+ * @param source        id of the stream source that read the record, e.g. twitter-v2 or mock
+ * @param ingestEpochMs wall clock time of the ingest, written to the record headers
+ * @param ingestNanos   {@link System#nanoTime()} of the ingest, for the in-process end-to-end latency
+ */
+public record RecordTrace(String source, long ingestEpochMs, long ingestNanos) {
+}
@@ -0,0 +1,69 @@
+package com.microservices.demo.kafka.producer.partitioner;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free count-min sketch over 32 bit key hashes, used to find heavy keys without keeping per-key state.
+ * <p>
+ * The sketch covers a sliding window: after windowRecords additions all cells and the total are halved, so keys
+ * that were heavy a while ago fade out. Estimates never undercount within the window and overcount by at most
+ * total * e / width with high probability.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long windowRecords;
+    private final AtomicLongArray cells;
+    private final AtomicLong total = new AtomicLong();
+
+    CountMinSketch(int depth, int width, long windowRecords) {
+        this.depth = depth;
+        this.width = width;
+        this.windowRecords = windowRecords;
+        this.cells = new AtomicLongArray(depth * width);
+    }
+
+    /**
+     * Adds one occurrence of the hash.
+     *
+     * @return the estimated count of the hash in the current window, including this occurrence
+     */
+    long add(int hash) {
+        int hash2 = mix(hash);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = Math.floorMod(hash + row * hash2, width);
+            estimate = Math.min(estimate, cells.incrementAndGet(row * width + column));
+        }
+        if (total.incrementAndGet() == windowRecords) {
+            decay();
+        }
+        return estimate;
+    }
+
+    long total() {
+        return total.get();
+    }
+
+    /**
+     * Halves every cell. Additions racing with the decay may be halved or not, which only shifts their weight
+     * by one window.
+     */
+    private void decay() {
+        for (int i = 0; i < cells.length(); i++) {
+            long value;
+            do {
+                value = cells.get(i);
+            } while (!cells.compareAndSet(i, value, value >>> 1));
+        }
+        total.addAndGet(-(windowRecords - windowRecords / 2));
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -0,0 +1,16 @@
+package com.microservices.demo.kafka.producer.partitioner;
+
+/**
+ * How {@link HotKeyPartitioningStrategy} places records of keys it detected as hot.
+ */
+public enum HotKeyMode {
+    /**
+     * Plain murmur2 hash partitioning like the default partitioner. Hot keys and skew are still reported.
+     */
+    HASH,
+    /**
+     * Hot keys are salted over several partitions and lose their ordering while they are hot. All other keys
+     * stay on their hash partition, so their per-user ordering is kept.
+     */
+    SALT_HOT_KEYS
+}
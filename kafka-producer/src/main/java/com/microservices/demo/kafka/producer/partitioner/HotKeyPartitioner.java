@@ -0,0 +1,40 @@
+package com.microservices.demo.kafka.producer.partitioner;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.Map;
+
+/**
+ * Kafka {@link Partitioner} that delegates to the {@link HotKeyPartitioningStrategy} bean. Kafka creates the
+ * partitioner itself, so the bean is handed over through the producer configuration under
+ * {@link #STRATEGY_CONFIG}, see {@code KafkaProducerConfig.producerConfig()}.
+ */
+public class HotKeyPartitioner implements Partitioner {
+
+    public static final String STRATEGY_CONFIG = "hot.key.partitioning.strategy";
+
+    private HotKeyPartitioningStrategy strategy;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configuredStrategy = configs.get(STRATEGY_CONFIG);
+        if (!(configuredStrategy instanceof HotKeyPartitioningStrategy hotKeyPartitioningStrategy)) {
+            throw new ConfigException(STRATEGY_CONFIG, configuredStrategy,
+                    "HotKeyPartitioner needs the HotKeyPartitioningStrategy instance in the producer config");
+        }
+        this.strategy = hotKeyPartitioningStrategy;
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+                         Cluster cluster) {
+        return strategy.partition(topic, keyBytes, cluster.partitionsForTopic(topic).size());
+    }
+
+    @Override
+    public void close() {
+        // the strategy is a shared bean and outlives the producer
+    }
+}
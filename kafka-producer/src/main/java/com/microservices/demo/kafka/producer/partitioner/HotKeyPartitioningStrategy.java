@@ -0,0 +1,201 @@
+package com.microservices.demo.kafka.producer.partitioner;
+
+import com.microservices.demo.config.HotKeyPartitionerConfigData;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Partition choice shared by {@link HotKeyPartitioner}, which Kafka instantiates from partitioner.class, and
+ * the explicit partitions of {@code TwitterKafkaProducer.sendBatch}, so both paths place a key the same way.
+ * <p>
+ * Every key is counted in a {@link CountMinSketch}. A key is hot while its estimated share of the current window
+ * is at least hot-key-threshold. In {@link HotKeyMode#SALT_HOT_KEYS} mode records of a hot key are salted
+ * round-robin over salt-buckets consecutive partitions starting at the key's hash partition, everything else uses
+ * murmur2 of the serialized key like the default partitioner. Records per partition are counted per topic and
+ * reported as a skew ratio (busiest partition / mean).
+ */
+@Component
+public class HotKeyPartitioningStrategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotKeyPartitioningStrategy.class);
+
+    private final HotKeyMode mode;
+    private final double hotKeyThreshold;
+    private final long minWindowRecords;
+    private final int saltBuckets;
+    private final CountMinSketch sketch;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger nullKeyCounter = new AtomicInteger();
+    private final AtomicInteger saltCounter = new AtomicInteger();
+    private final LongAdder hotKeyRecords = new LongAdder();
+    private final LongAdder saltedRecords = new LongAdder();
+    private final Map<String, PartitionCounts> partitionCountsByTopic = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService skewReporter;
+
+    public HotKeyPartitioningStrategy(HotKeyPartitionerConfigData hotKeyPartitionerConfigData,
+                                      MeterRegistry meterRegistry) {
+        this.mode = HotKeyMode.valueOf(hotKeyPartitionerConfigData.getMode().trim().toUpperCase());
+        this.hotKeyThreshold = hotKeyPartitionerConfigData.getHotKeyThreshold();
+        this.minWindowRecords = hotKeyPartitionerConfigData.getMinWindowRecords();
+        this.saltBuckets = hotKeyPartitionerConfigData.getSaltBuckets();
+        this.sketch = new CountMinSketch(hotKeyPartitionerConfigData.getSketchDepth(),
+                hotKeyPartitionerConfigData.getSketchWidth(), hotKeyPartitionerConfigData.getWindowRecords());
+        this.meterRegistry = meterRegistry;
+
+        FunctionCounter.builder("kafka.producer.partitioner.hot.key.records", hotKeyRecords, LongAdder::sum)
+                .description("Records of keys that were hot when they were partitioned")
+                .register(meterRegistry);
+        FunctionCounter.builder("kafka.producer.partitioner.salted.records", saltedRecords, LongAdder::sum)
+                .description("Records moved off their hash partition by salting")
+                .register(meterRegistry);
+
+        skewReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-skew-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long reportIntervalMs = hotKeyPartitionerConfigData.getSkewReportIntervalMs();
+        skewReporter.scheduleAtFixedRate(this::logSkew, reportIntervalMs, reportIntervalMs, TimeUnit.MILLISECONDS);
+        LOG.info("Hot key partitioning in {} mode, hot above {} of the window", mode, hotKeyThreshold);
+    }
+
+    /**
+     * @param keyBytes      serialized key, or null for records without key
+     * @param numPartitions number of partitions of the topic
+     * @return the partition of the record
+     */
+    public int partition(String topic, byte[] keyBytes, int numPartitions) {
+        int partition;
+        if (keyBytes == null) {
+            partition = Utils.toPositive(nullKeyCounter.getAndIncrement()) % numPartitions;
+        } else {
+            int hash = Utils.murmur2(keyBytes);
+            partition = Utils.toPositive(hash) % numPartitions;
+            if (isHot(hash)) {
+                hotKeyRecords.increment();
+                if (mode == HotKeyMode.SALT_HOT_KEYS && numPartitions > 1) {
+                    int buckets = Math.min(saltBuckets, numPartitions);
+                    int salt = Utils.toPositive(saltCounter.getAndIncrement()) % buckets;
+                    if (salt != 0) {
+                        partition = (partition + salt) % numPartitions;
+                        saltedRecords.increment();
+                    }
+                }
+            }
+        }
+        partitionCounts(topic, numPartitions).increment(partition);
+        return partition;
+    }
+
+    public HotKeyMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return records per partition of the topic since start, empty if nothing was partitioned for it yet
+     */
+    public long[] getPartitionCounts(String topic) {
+        PartitionCounts partitionCounts = partitionCountsByTopic.get(topic);
+        return partitionCounts == null ? new long[0] : partitionCounts.snapshot();
+    }
+
+    @PreDestroy
+    public void close() {
+        skewReporter.shutdownNow();
+    }
+
+    private boolean isHot(int hash) {
+        long estimate = sketch.add(hash);
+        long total = sketch.total();
+        return total >= minWindowRecords && estimate >= hotKeyThreshold * total;
+    }
+
+    private PartitionCounts partitionCounts(String topic, int numPartitions) {
+        PartitionCounts partitionCounts = partitionCountsByTopic.get(topic);
+        if (partitionCounts == null || partitionCounts.size() < numPartitions) {
+            partitionCounts = partitionCountsByTopic.compute(topic, (name, current) -> {
+                if (current != null && current.size() >= numPartitions) {
+                    return current;
+                }
+                if (current == null) {
+                    Gauge.builder("kafka.producer.partition.skew", this, strategy -> strategy.skew(name))
+                            .description("Records of the busiest partition divided by the mean records per partition")
+                            .tag("topic", name)
+                            .register(meterRegistry);
+                }
+                return new PartitionCounts(numPartitions, current);
+            });
+        }
+        return partitionCounts;
+    }
+
+    private double skew(String topic) {
+        PartitionCounts partitionCounts = partitionCountsByTopic.get(topic);
+        return partitionCounts == null ? 1.0 : partitionCounts.skew();
+    }
+
+    private void logSkew() {
+        partitionCountsByTopic.forEach((topic, partitionCounts) ->
+                LOG.info("Partition skew of topic {}: {} (records per partition {}), hot key records {}, salted {}",
+                        topic, String.format("%.2f", partitionCounts.skew()),
+                        Arrays.toString(partitionCounts.snapshot()), hotKeyRecords.sum(), saltedRecords.sum()));
+    }
+
+    private static final class PartitionCounts {
+
+        private final AtomicLongArray counts;
+
+        PartitionCounts(int numPartitions, PartitionCounts previous) {
+            counts = new AtomicLongArray(numPartitions);
+            if (previous != null) {
+                for (int i = 0; i < previous.size(); i++) {
+                    counts.set(i, previous.counts.get(i));
+                }
+            }
+        }
+
+        int size() {
+            return counts.length();
+        }
+
+        void increment(int partition) {
+            counts.incrementAndGet(partition);
+        }
+
+        long[] snapshot() {
+            long[] snapshot = new long[counts.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return snapshot;
+        }
+
+        double skew() {
+            long max = 0;
+            long sum = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                long count = counts.get(i);
+                max = Math.max(max, count);
+                sum += count;
+            }
+            return sum == 0 ? 1.0 : max * (double) counts.length() / sum;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.microservices.demo.kafka.producer.pool;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A fixed set of {@link KafkaTemplate}s, each backed by its own Kafka producer, so sends are spread over several
+ * record accumulators and sender threads instead of queuing on one.
+ * <p>
+ * Records are striped by their target partition: partition {@code p} always goes through producer
+ * {@code p % size()}. A partition therefore has a single producer feeding it, which keeps the order of its records,
+ * and with it the per-key order. The first template starts as the application's {@code kafkaTemplate} bean; the
+ * producer factories of the others are owned and closed by the pool.
+ * <p>
+ * Templates are only used through {@link #withTemplate(int, Function)}, which leases the current template of a
+ * stripe for the call. {@link #roll(Map)} replaces the producers with ones created with other settings, one stripe
+ * at a time: the stripe is switched to its new template, the old producer is flushed and closed once its last
+ * lease is returned, and only then may the new template send. Senders of that stripe wait for the flush, usually a
+ * linger and a request round trip, so no record is lost and a partition's records keep their order across the
+ * switch.
+ * <p>
+ * With transactional producer factories every template also gets a non-transactional producer for calls outside of
+ * a transaction. Transactions run within a lease and commit before it is returned, so a roll never closes a
+ * producer with an open transaction. The factories of a stripe are created with the stripe's index, so the new
+ * producer can take over the transactional id of the one it replaces.
+ */
+public class KafkaTemplatePool<K, V> implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaTemplatePool.class);
+
+    private static final long LEASE_WAIT_NANOS = 100_000;
+
+    private final AtomicReferenceArray<Stripe<K, V>> stripes;
+    private final BiFunction<Integer, Map<String, Object>, DefaultKafkaProducerFactory<K, V>> producerFactoryCreator;
+    private volatile Map<String, Object> configOverrides = Map.of();
+
+    /**
+     * @param primaryTemplate        the template of stripe 0 until the first roll, not closed by the pool
+     * @param size                   number of stripes
+     * @param producerFactoryCreator creates a producer factory for the given stripe with the given settings on top of
+     *                               the producer config
+     */
+    public KafkaTemplatePool(KafkaTemplate<K, V> primaryTemplate, int size,
+                             BiFunction<Integer, Map<String, Object>, DefaultKafkaProducerFactory<K, V>>
+                                     producerFactoryCreator) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A kafka template pool needs at least one template");
+        }
+        this.producerFactoryCreator = producerFactoryCreator;
+        this.stripes = new AtomicReferenceArray<>(size);
+        stripes.set(0, new Stripe<>(primaryTemplate, null, true));
+        for (int stripe = 1; stripe < size; stripe++) {
+            DefaultKafkaProducerFactory<K, V> producerFactory = producerFactoryCreator.apply(stripe, Map.of());
+            stripes.set(stripe, new Stripe<>(newTemplate(producerFactory), producerFactory, true));
+        }
+    }
+
+    /**
+     * Runs the action with the current template of the stripe. The producer is not closed while the action runs;
+     * records it sends are flushed before a roll closes it.
+     */
+    public <T> T withTemplate(int stripe, Function<KafkaTemplate<K, V>, T> action) {
+        Stripe<K, V> leased = acquire(stripe);
+        try {
+            return action.apply(leased.template);
+        } finally {
+            leased.leases.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the template of stripe 0 as it is now, only for calls that do not send, like isTransactional
+     */
+    public KafkaTemplate<K, V> primary() {
+        return stripes.get(0).template;
+    }
+
+    public int stripeOf(int partition) {
+        return partition % stripes.length();
+    }
+
+    public int size() {
+        return stripes.length();
+    }
+
+    /**
+     * @return the settings the current producers were created with on top of the producer config, empty before
+     * the first roll
+     */
+    public Map<String, Object> getConfigOverrides() {
+        return configOverrides;
+    }
+
+    /**
+     * @return the client metrics of every current producer
+     */
+    public List<Map<MetricName, ? extends Metric>> metrics() {
+        List<Map<MetricName, ? extends Metric>> metrics = new ArrayList<>(size());
+        for (int stripe = 0; stripe < size(); stripe++) {
+            metrics.add(withTemplate(stripe, KafkaTemplate::metrics));
+        }
+        return metrics;
+    }
+
+    /**
+     * Flushes the producers of all stripes in parallel, each on a virtual thread of its own, and waits for them up
+     * to the timeout. A flush still running at the timeout is left to finish in the background.
+     *
+     * @return true if every producer was flushed within the timeout
+     */
+    public boolean flush(long timeoutMs) {
+        CompletableFuture<?>[] flushes = new CompletableFuture<?>[size()];
+        for (int stripe = 0; stripe < size(); stripe++) {
+            int flushedStripe = stripe;
+            flushes[stripe] = CompletableFuture.runAsync(() -> withTemplate(flushedStripe, template -> {
+                template.flush();
+                return null;
+            }), runnable -> Thread.ofVirtual().name("kafka-template-flush-" + flushedStripe).start(runnable));
+        }
+        try {
+            CompletableFuture.allOf(flushes).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            LOG.warn("Error flushing kafka producers", e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the producer of every stripe, one stripe at a time, by one created with the given settings. Blocks
+     * until the old producers are closed, which includes waiting for the acks of their in-flight records.
+     */
+    public synchronized void roll(Map<String, Object> overrides) {
+        Map<String, Object> newOverrides = Map.copyOf(overrides);
+        for (int stripe = 0; stripe < size(); stripe++) {
+            DefaultKafkaProducerFactory<K, V> producerFactory = producerFactoryCreator.apply(stripe, newOverrides);
+            Stripe<K, V> newStripe = new Stripe<>(newTemplate(producerFactory), producerFactory, false);
+            Stripe<K, V> oldStripe = stripes.getAndSet(stripe, newStripe);
+            try {
+                while (oldStripe.leases.get() > 0) {
+                    LockSupport.parkNanos(LEASE_WAIT_NANOS);
+                }
+                // waits for the acks of everything the old producer accepted
+                oldStripe.template.flush();
+                // closed before the new producer starts, which may use the same transactional id
+                if (oldStripe.producerFactory != null) {
+                    oldStripe.producerFactory.destroy();
+                } else {
+                    oldStripe.template.getProducerFactory().reset();
+                }
+            } finally {
+                newStripe.ready.countDown();
+            }
+        }
+        configOverrides = newOverrides;
+        LOG.info("Rolled {} producer(s) to settings {}", size(), newOverrides);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        for (int stripe = 0; stripe < size(); stripe++) {
+            DefaultKafkaProducerFactory<K, V> producerFactory = stripes.get(stripe).producerFactory;
+            if (producerFactory != null) {
+                producerFactory.destroy();
+            }
+        }
+    }
+
+    private static <K, V> KafkaTemplate<K, V> newTemplate(DefaultKafkaProducerFactory<K, V> producerFactory) {
+        KafkaTemplate<K, V> template = new KafkaTemplate<>(producerFactory);
+        template.setAllowNonTransactional(true);
+        return template;
+    }
+
+    private Stripe<K, V> acquire(int stripe) {
+        while (true) {
+            Stripe<K, V> current = stripes.get(stripe);
+            current.leases.incrementAndGet();
+            if (stripes.get(stripe) == current) {
+                awaitReady(current);
+                return current;
+            }
+            // replaced in between, the roll may be waiting for this lease
+            current.leases.decrementAndGet();
+        }
+    }
+
+    private static void awaitReady(Stripe<?, ?> stripe) {
+        if (stripe.ready.getCount() == 0) {
+            return;
+        }
+        try {
+            stripe.ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Stripe<K, V> {
+
+        private final KafkaTemplate<K, V> template;
+        private final DefaultKafkaProducerFactory<K, V> producerFactory;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final CountDownLatch ready;
+
+        /**
+         * @param producerFactory the factory owned by the pool, null if the template is not the pool's to close
+         * @param ready           false while the producer it replaces is still being flushed
+         */
+        Stripe(KafkaTemplate<K, V> template, DefaultKafkaProducerFactory<K, V> producerFactory, boolean ready) {
+            this.template = template;
+            this.producerFactory = producerFactory;
+            this.ready = new CountDownLatch(ready ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.microservices.demo.kafka.producer.serializer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Schema registry ids by subject, persisted to a properties file so a restart can produce without asking the
+ * registry first.
+ * <p>
+ * The file name carries a fingerprint of the Avro schemas, in parsing canonical form, and of the registry urls.
+ * A changed {@code .avsc} in kafka-model or another registry therefore starts with an empty cache instead of
+ * reusing ids that belong to a different schema. The file is replaced atomically on every new id.
+ */
+public final class SchemaIdCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaIdCache.class);
+
+    private static final String FILE_PREFIX = "schema-ids-";
+    private static final String FILE_SUFFIX = ".properties";
+
+    private final Path file;
+    private final String fingerprint;
+    private final Properties ids = new Properties();
+
+    public SchemaIdCache(Path directory, List<Schema> schemas, List<String> registryUrls) {
+        this.fingerprint = fingerprint(schemas, registryUrls);
+        this.file = directory.resolve(FILE_PREFIX + fingerprint + FILE_SUFFIX);
+        load();
+    }
+
+    /**
+     * @return the cached id of the subject, null if there is none
+     */
+    public synchronized Integer get(String subject) {
+        String id = ids.getProperty(subject);
+        return id == null ? null : Integer.valueOf(id);
+    }
+
+    /**
+     * Stores the id and writes the file, unless the same id is cached already. A failed write is logged, the id
+     * is kept in memory.
+     */
+    public synchronized void put(String subject, int id) {
+        String value = Integer.toString(id);
+        if (value.equals(ids.getProperty(subject))) {
+            return;
+        }
+        ids.setProperty(subject, value);
+        try {
+            store();
+        } catch (IOException e) {
+            LOG.warn("Could not write schema id cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ids.load(reader);
+            LOG.info("Loaded {} schema id(s) from {}", ids.size(), file);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Ignoring unreadable schema id cache {}: {}", file, e.getMessage());
+            ids.clear();
+        }
+    }
+
+    private void store() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), FILE_PREFIX, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                ids.store(writer, "Schema registry ids by subject");
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static String fingerprint(List<Schema> schemas, List<String> registryUrls) {
+        StringBuilder canonical = new StringBuilder();
+        for (Schema schema : schemas) {
+            canonical.append(SchemaNormalization.toParsingForm(schema)).append('\n');
+        }
+        registryUrls.stream().map(String::trim).sorted().forEach(url -> canonical.append(url).append('\n'));
+        long fingerprint = SchemaNormalization.fingerprint64(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return String.format("%016x", fingerprint);
+    }
+}
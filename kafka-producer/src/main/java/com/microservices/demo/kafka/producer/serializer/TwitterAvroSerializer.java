@@ -0,0 +1,256 @@
+package com.microservices.demo.kafka.producer.serializer;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.avro.AvroSchemaProvider;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClientFactory;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Value serializer for {@link TwitterAvroModel} that writes the Confluent wire format itself: the magic byte,
+ * the 4 byte schema id and the Avro binary encoding. Consumers using the Confluent deserializer read it as before.
+ * <p>
+ * The schema is registered, or looked up if auto.register.schemas is false, once per topic under the
+ * {@code <topic>-value} subject and the id is cached, so only the first record of a topic talks to the registry.
+ * With {@value #SCHEMA_ID_CACHE_DIR_CONFIG} set the ids are also kept in a {@link SchemaIdCache} on disk: after a
+ * restart the cached id is used right away and checked against the registry on a background thread, which
+ * replaces it if the registry returns another one.
+ * <p>
+ * Encoders, datum writers and output buffers are reused from a small lock-free pool rather than thread locals,
+ * because the producer is called from virtual threads too, which would each get their own copy. Only the
+ * returned byte array is allocated per record.
+ */
+public class TwitterAvroSerializer implements Serializer<TwitterAvroModel> {
+
+    /**
+     * Directory of the persistent schema id cache, passed with the producer properties. No cache if not set.
+     */
+    public static final String SCHEMA_ID_CACHE_DIR_CONFIG = "twitter.avro.schema.id.cache.dir";
+
+    private static final Logger LOG = LoggerFactory.getLogger(TwitterAvroSerializer.class);
+
+    private static final byte MAGIC_BYTE = 0x0;
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final AvroSchema SCHEMA = new AvroSchema(TwitterAvroModel.getClassSchema());
+
+    private final Map<String, Integer> schemaIds = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<EncoderState> pool =
+            new AtomicReferenceArray<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    private SchemaRegistryClient schemaRegistryClient;
+    private boolean autoRegisterSchema = true;
+    private String subjectSuffix = "-value";
+    private SchemaIdCache schemaIdCache;
+
+    /**
+     * Used by the Kafka producer, which calls {@link #configure(Map, boolean)} with the producer properties.
+     */
+    public TwitterAvroSerializer() {
+    }
+
+    public TwitterAvroSerializer(SchemaRegistryClient schemaRegistryClient, Map<String, ?> configs) {
+        this.schemaRegistryClient = schemaRegistryClient;
+        configure(configs, false);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        KafkaAvroSerializerConfig config = new KafkaAvroSerializerConfig(configs);
+        autoRegisterSchema = config.autoRegisterSchema();
+        subjectSuffix = isKey ? "-key" : "-value";
+        if (schemaRegistryClient == null) {
+            schemaRegistryClient = SchemaRegistryClientFactory.newClient(config.getSchemaRegistryUrls(),
+                    config.getMaxSchemasPerSubject(), List.of(new AvroSchemaProvider()), configs,
+                    config.requestHeaders());
+        }
+        Object cacheDirectory = configs.get(SCHEMA_ID_CACHE_DIR_CONFIG);
+        if (cacheDirectory != null && !cacheDirectory.toString().isBlank()) {
+            schemaIdCache = new SchemaIdCache(Path.of(cacheDirectory.toString()),
+                    List.of(TwitterAvroModel.getClassSchema()), config.getSchemaRegistryUrls());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, TwitterAvroModel data) {
+        if (data == null) {
+            return null;
+        }
+        int schemaId = schemaIdFor(topic);
+        EncoderState state = acquire();
+        try {
+            return state.encode(schemaId, data);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error serializing tweet " + data.getId() + " for topic " + topic, e);
+        } finally {
+            release(state);
+        }
+    }
+
+    @Override
+    public void close() {
+        schemaIds.clear();
+    }
+
+    private int schemaIdFor(String topic) {
+        Integer schemaId = schemaIds.get(topic);
+        if (schemaId != null) {
+            return schemaId;
+        }
+        String subject = topic + subjectSuffix;
+        Integer cachedSchemaId = schemaIdCache == null ? null : schemaIdCache.get(subject);
+        if (cachedSchemaId != null) {
+            if (schemaIds.putIfAbsent(topic, cachedSchemaId) == null) {
+                Thread.ofVirtual().name("schema-id-verifier").start(() -> verify(topic, subject, cachedSchemaId));
+            }
+            return schemaIds.get(topic);
+        }
+        schemaId = lookUpSchemaId(subject);
+        schemaIds.put(topic, schemaId);
+        if (schemaIdCache != null) {
+            schemaIdCache.put(subject, schemaId);
+        }
+        return schemaId;
+    }
+
+    private int lookUpSchemaId(String subject) {
+        try {
+            return autoRegisterSchema ? schemaRegistryClient.register(subject, SCHEMA) :
+                    schemaRegistryClient.getId(subject, SCHEMA);
+        } catch (IOException | RestClientException e) {
+            throw new SerializationException("Error retrieving the schema id of subject " + subject, e);
+        }
+    }
+
+    private void verify(String topic, String subject, int cachedSchemaId) {
+        try {
+            int schemaId = lookUpSchemaId(subject);
+            if (schemaId != cachedSchemaId) {
+                LOG.warn("Schema registry returned id {} for subject {}, replacing cached id {}", schemaId, subject,
+                        cachedSchemaId);
+                schemaIds.put(topic, schemaId);
+                schemaIdCache.put(subject, schemaId);
+            } else {
+                LOG.debug("Verified cached schema id {} of subject {}", schemaId, subject);
+            }
+        } catch (SerializationException e) {
+            LOG.warn("Could not verify cached schema id {} of subject {}, keeping it: {}", cachedSchemaId, subject,
+                    e.getMessage());
+        }
+    }
+
+    private EncoderState acquire() {
+        int size = pool.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            EncoderState state = pool.getAndSet((start + i) % size, null);
+            if (state != null) {
+                return state;
+            }
+        }
+        return new EncoderState();
+    }
+
+    private void release(EncoderState state) {
+        if (state.buffer.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            // do not keep the buffer of an unusually large record
+            return;
+        }
+        int size = pool.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            if (pool.compareAndSet((start + i) % size, null, state)) {
+                return;
+            }
+        }
+    }
+
+    private static final class EncoderState {
+
+        private final ReusableByteBuffer buffer = new ReusableByteBuffer(INITIAL_BUFFER_SIZE);
+        private final SpecificDatumWriter<TwitterAvroModel> writer =
+                new SpecificDatumWriter<>(TwitterAvroModel.getClassSchema());
+        private BinaryEncoder encoder;
+
+        byte[] encode(int schemaId, TwitterAvroModel data) throws IOException {
+            buffer.reset();
+            buffer.write(MAGIC_BYTE);
+            buffer.writeInt(schemaId);
+            encoder = EncoderFactory.get().binaryEncoder(buffer, encoder);
+            writer.write(data, encoder);
+            encoder.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Unsynchronized growable byte array output stream that keeps its array across {@link #reset()}.
+     */
+    private static final class ReusableByteBuffer extends OutputStream {
+
+        private byte[] bytes;
+        private int count;
+
+        ReusableByteBuffer(int initialSize) {
+            this.bytes = new byte[initialSize];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensureCapacity(count + length);
+            System.arraycopy(source, offset, bytes, count, length);
+            count += length;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(count + Integer.BYTES);
+            bytes[count++] = (byte) (value >>> 24);
+            bytes[count++] = (byte) (value >>> 16);
+            bytes[count++] = (byte) (value >>> 8);
+            bytes[count++] = (byte) value;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(minCapacity, bytes.length * 2));
+            }
+        }
+    }
+}
@@ -1,10 +1,48 @@
 package com.microservices.demo.kafka.producer.service;
 
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.model.RecordTrace;
 import org.apache.avro.specific.SpecificRecordBase;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface KafkaProducer<K extends Serializable, V extends SpecificRecordBase> {
     void send(String topicName, K key, V message);
 
+    /**
+     * Sends the record with the trace of its ingest, see {@link RecordTrace}. Producers that do not trace ignore it.
+     */
+    default void send(String topicName, K key, V message, RecordTrace trace) {
+        send(topicName, key, message);
+    }
+
+    /**
+     * Sends a list of records grouped by their target partition. Records with the same key keep their relative
+     * order, unless the partitioning strategy spreads a hot key over several partitions. The returned future never
+     * completes exceptionally for broker errors; failed records are reported in {@link BatchSendResult#failures()}
+     * instead.
+     */
+    CompletableFuture<BatchSendResult<K, V>> sendBatch(String topicName, List<Pair<K, V>> records);
+
+    /**
+     * Sends a batch like {@link #sendBatch(String, List)} with the trace of every record, at the same index as the
+     * record, or null if tracing is off. Producers that do not trace ignore them.
+     */
+    default CompletableFuture<BatchSendResult<K, V>> sendBatch(String topicName, List<Pair<K, V>> records,
+                                                               List<RecordTrace> traces) {
+        return sendBatch(topicName, records);
+    }
+
+    /**
+     * Blocks until the records sent so far are acknowledged or failed, or the timeout is over.
+     *
+     * @return true if nothing was left in flight within the timeout
+     */
+    default boolean flush(long timeoutMs) {
+        return true;
+    }
+
 }
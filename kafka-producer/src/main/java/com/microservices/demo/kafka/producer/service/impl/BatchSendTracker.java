@@ -0,0 +1,149 @@
+package com.microservices.demo.kafka.producer.service.impl;
+
+import com.microservices.demo.kafka.producer.metrics.ProducerMetrics;
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.model.RecordFailure;
+import com.microservices.demo.kafka.producer.model.RecordTrace;
+import com.microservices.demo.kafka.producer.tracing.IngestStage;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import org.apache.kafka.clients.producer.Callback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the acknowledgements of one batch and completes a single future when the last record is done.
+ * Replaces the per-record CompletableFuture and whenComplete callback of the single record path.
+ * With traces the ack and end-to-end latency of every acknowledged record are recorded as well.
+ * <p>
+ * A batch sent in transactions completes only once the outcome of every transaction is known as well. The records
+ * of an aborted transaction fail, including those the broker had already acknowledged.
+ */
+class BatchSendTracker<K, V> {
+
+    private final String topicName;
+    private final List<Pair<K, V>> records;
+    private final int[] partitions;
+    private final int partitionCount;
+    private final ProducerMetrics producerMetrics;
+    private final long sendTimeNanos;
+    private final Throwable[] errors;
+    private final AtomicInteger remaining;
+    private final CompletableFuture<BatchSendResult<K, V>> future = new CompletableFuture<>();
+    private final List<RecordTrace> traces;
+    private final StageLatencyRecorder stageLatencyRecorder;
+    private final AtomicLongArray sentNanos;
+
+    BatchSendTracker(String topicName, List<Pair<K, V>> records, int[] partitions, int partitionCount,
+                     ProducerMetrics producerMetrics, List<RecordTrace> traces,
+                     StageLatencyRecorder stageLatencyRecorder, int transactionCount) {
+        this.topicName = topicName;
+        this.records = records;
+        this.partitions = partitions;
+        this.partitionCount = partitionCount;
+        this.producerMetrics = producerMetrics;
+        this.sendTimeNanos = System.nanoTime();
+        this.errors = new Throwable[records.size()];
+        this.remaining = new AtomicInteger(records.size() + transactionCount);
+        this.traces = traces;
+        this.stageLatencyRecorder = stageLatencyRecorder;
+        this.sentNanos = traces == null ? null : new AtomicLongArray(records.size());
+    }
+
+    Callback callbackFor(int index) {
+        return (metadata, exception) -> {
+            producerMetrics.onCompletion(topicName, partitions[index], sendTimeNanos, exception);
+            if (exception == null && traces != null) {
+                recordAck(index);
+            }
+            complete(index, exception);
+        };
+    }
+
+    /**
+     * Notes the return of the send call of a traced record, the start of its ack stage.
+     */
+    void sent(int index, long nanos) {
+        sentNanos.set(index, nanos);
+    }
+
+    private void recordAck(int index) {
+        long nowNanos = System.nanoTime();
+        long sent = sentNanos.get(index);
+        if (sent != 0) {
+            // 0 if the ack overtook the return of the send call, then there is no ack stage to speak of
+            stageLatencyRecorder.record(IngestStage.ACK, nowNanos - sent);
+        }
+        stageLatencyRecorder.record(IngestStage.END_TO_END, nowNanos - traces.get(index).ingestNanos());
+    }
+
+    /**
+     * Marks a record that never reached the producer, e.g. because serialization failed, as done.
+     */
+    void fail(int index, RuntimeException exception) {
+        producerMetrics.onCompletion(topicName, partitions[index], sendTimeNanos, exception);
+        complete(index, exception);
+    }
+
+    void transactionCommitted() {
+        countDown();
+    }
+
+    /**
+     * Fails the records {@code order[from]} to {@code order[to - 1]} of an aborted transaction.
+     *
+     * @param handedOver false if the transaction failed before its records reached the producer, their callbacks
+     *                   will never run then
+     */
+    void transactionAborted(int[] order, int from, int to, boolean handedOver, RuntimeException exception) {
+        for (int i = from; i < to; i++) {
+            int index = order[i];
+            if (!handedOver) {
+                fail(index, exception);
+            } else if (errors[index] == null) {
+                errors[index] = exception;
+            }
+        }
+        countDown();
+    }
+
+    /**
+     * Marks a record as done. Errors are written before the decrement, so the thread that brings the counter
+     * to zero sees all of them.
+     */
+    private void complete(int index, Throwable exception) {
+        if (exception != null) {
+            errors[index] = exception;
+        }
+        countDown();
+    }
+
+    private void countDown() {
+        if (remaining.decrementAndGet() == 0) {
+            future.complete(new BatchSendResult<>(topicName, records.size(), partitionCount, collectFailures()));
+        }
+    }
+
+    CompletableFuture<BatchSendResult<K, V>> future() {
+        return future;
+    }
+
+    private List<RecordFailure<K, V>> collectFailures() {
+        List<RecordFailure<K, V>> failures = null;
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                if (failures == null) {
+                    failures = new ArrayList<>();
+                }
+                Pair<K, V> record = records.get(i);
+                failures.add(new RecordFailure<>(i, record.key(), record.value(), partitions[i], errors[i]));
+            }
+        }
+        return failures == null ? Collections.emptyList() : failures;
+    }
+}
@@ -1,17 +1,40 @@
 package com.microservices.demo.kafka.producer.service.impl;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.microservices.demo.config.KafkaProducerConfigData;
 import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.journal.SpillJournal;
+import com.microservices.demo.kafka.producer.metrics.ProducerMetrics;
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.model.RecordFailure;
+import com.microservices.demo.kafka.producer.model.RecordTrace;
+import com.microservices.demo.kafka.producer.partitioner.HotKeyPartitioningStrategy;
+import com.microservices.demo.kafka.producer.pool.KafkaTemplatePool;
 import com.microservices.demo.kafka.producer.service.KafkaProducer;
+import com.microservices.demo.kafka.producer.tracing.IngestStage;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import com.microservices.demo.kafka.producer.tracing.TraceHeaders;
 import jakarta.annotation.PreDestroy;
 import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations.ProducerCallback;
+import org.springframework.kafka.core.KafkaProducerException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
@@ -20,10 +43,61 @@ public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroMode
 
     private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaProducer.class);
 
-    private KafkaTemplate<Long, TwitterAvroModel> kafkaTemplate;
+    private final KafkaTemplatePool<Long, TwitterAvroModel> kafkaTemplatePool;
 
-    public TwitterKafkaProducer(KafkaTemplate<Long, TwitterAvroModel> template) {
-        this.kafkaTemplate = template;
+    private final Serializer<Long> keySerializer;
+
+    private final ProducerMetrics producerMetrics;
+
+    private final HotPathLogger sendLog;
+
+    private final HotPathLogger ackLog;
+
+    private final HotPathLogger errorLog;
+
+    private final HotPathLogger batchLog;
+
+    private final HotPathLogger batchFailureLog;
+
+    private final HotKeyPartitioningStrategy hotKeyPartitioningStrategy;
+
+    private final SpillJournal spillJournal;
+
+    private final StageLatencyRecorder stageLatencyRecorder;
+
+    private final long closeTimeoutMs;
+
+    private final long backpressureMaxInFlight;
+
+    @SuppressWarnings("unchecked")
+    public TwitterKafkaProducer(KafkaTemplatePool<Long, TwitterAvroModel> kafkaTemplatePool,
+                                KafkaProducerConfigData kafkaProducerConfigData,
+                                ProducerMetrics producerMetrics,
+                                HotPathLoggerFactory hotPathLoggerFactory,
+                                HotKeyPartitioningStrategy hotKeyPartitioningStrategy,
+                                SpillJournal spillJournal,
+                                StageLatencyRecorder stageLatencyRecorder) {
+        this.kafkaTemplatePool = kafkaTemplatePool;
+        this.hotKeyPartitioningStrategy = hotKeyPartitioningStrategy;
+        this.spillJournal = spillJournal;
+        this.stageLatencyRecorder = stageLatencyRecorder;
+        this.producerMetrics = producerMetrics;
+        this.closeTimeoutMs = kafkaProducerConfigData.getCloseTimeoutMs() == null ? 0 :
+                kafkaProducerConfigData.getCloseTimeoutMs();
+        this.backpressureMaxInFlight = kafkaProducerConfigData.getBackpressureMaxInFlight() == null ? 0 :
+                kafkaProducerConfigData.getBackpressureMaxInFlight();
+        this.sendLog = hotPathLoggerFactory.getLogger(TwitterKafkaProducer.class, "kafka-producer.send");
+        this.ackLog = hotPathLoggerFactory.getLogger(TwitterKafkaProducer.class, "kafka-producer.ack");
+        this.errorLog = hotPathLoggerFactory.getLogger(TwitterKafkaProducer.class, "kafka-producer.error");
+        this.batchLog = hotPathLoggerFactory.getLogger(TwitterKafkaProducer.class, "kafka-producer.batch");
+        this.batchFailureLog = hotPathLoggerFactory.getLogger(TwitterKafkaProducer.class,
+                "kafka-producer.batch-failure");
+        try {
+            this.keySerializer = Utils.newInstance(kafkaProducerConfigData.getKeySerializerClass(), Serializer.class);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Key serializer class not found: " +
+                    kafkaProducerConfigData.getKeySerializerClass(), e);
+        }
     }
 
 
@@ -38,12 +112,193 @@ public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroMode
      */
     @Override
     public void send(String topicName, Long key, TwitterAvroModel message) {
-        LOG.info("Sending message='{}' to topic='{}'", message, topicName);
-        CompletableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture = kafkaTemplate.send(topicName, key, message);
-        kafkaResultFuture.whenComplete(getCallback(topicName, message));
+        send(topicName, key, message, null);
+    }
+
+    /**
+     * Sends like {@link #send(String, Long, TwitterAvroModel)}, with the trace in the record headers and the
+     * serialize, ack and end-to-end latency recorded.
+     */
+    @Override
+    public void send(String topicName, Long key, TwitterAvroModel message, RecordTrace trace) {
+        sendLog.info("Sending message='{}' to topic='{}'", message, topicName);
+        if ((spillJournal.hasPending() || isBackpressured()) && spillJournal.append(topicName, key, message)) {
+            return; // keeps the order behind records still waiting for replay
+        }
+        producerMetrics.onSend(1);
+        long sendTimeNanos = System.nanoTime();
+        CompletableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture;
+        try {
+            kafkaResultFuture = sendThroughPool(topicName, key, message, trace);
+        } catch (RuntimeException e) {
+            // e.g. a metadata timeout while the brokers are down, the callback spills the record
+            kafkaResultFuture = CompletableFuture.failedFuture(e);
+        }
+        long sentNanos = System.nanoTime();
+        producerMetrics.onSendCall(1, sentNanos - sendTimeNanos);
+        if (trace != null) {
+            stageLatencyRecorder.record(IngestStage.SERIALIZE, sentNanos - sendTimeNanos);
+        }
+        kafkaResultFuture.whenComplete(getCallback(topicName, key, message, sendTimeNanos, trace, sentNanos));
+    }
+
+    /**
+     * Sends the records with explicit partitions, chosen by the same {@link HotKeyPartitioningStrategy} the
+     * configured partitioner uses, so hot keys are spread and all other keys land on their murmur2 partition.
+     * Records are ordered by partition with a stable counting sort, so records of one (non-salted) key stay in
+     * their original order. With a producer pool the partitions are grouped by the stripe of their producer, and
+     * every stripe sends its share in one pass. Every record gets a light producer callback that only feeds a
+     * shared {@link BatchSendTracker}; logging happens once per batch.
+     * <p>
+     * With transactional producers every stripe sends its share in one transaction, and the call returns once all
+     * of them are committed or aborted.
+     * <p>
+     * Records that fail with a retriable error (broker unreachable, delivery or buffer timeout) are written to the
+     * {@link SpillJournal} and reported as spilled. While the journal has records waiting for replay, new batches
+     * go straight to the journal so they reach Kafka after the spilled ones. So do batches sent while the
+     * producers are backpressured, with backpressure-max-in-flight records unacknowledged, and batches for a
+     * topic whose metadata cannot be fetched, so the workers keep their rate instead of blocking in send.
+     */
+    @Override
+    public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatch(String topicName,
+                                                                                List<Pair<Long, TwitterAvroModel>> records) {
+        return sendBatch(topicName, records, null);
+    }
+
+    /**
+     * Sends the batch like {@link #sendBatch(String, List)}. Traced records carry their trace in the record
+     * headers, and the serialize, ack and end-to-end latency of each is recorded. Spilled records lose their
+     * trace, the journal keeps key and value only.
+     */
+    @Override
+    public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatch(String topicName,
+                                                                                List<Pair<Long, TwitterAvroModel>> records,
+                                                                                List<RecordTrace> traces) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchSendResult<>(topicName, 0, 0, Collections.emptyList()));
+        }
+        if (spillJournal.hasPending() || isBackpressured()) {
+            return CompletableFuture.completedFuture(spillAll(topicName, records));
+        }
+        int partitionCount;
+        try {
+            partitionCount = getPartitionCount(topicName);
+        } catch (RuntimeException e) {
+            if (!spillJournal.isEnabled() || !isRetriable(e)) {
+                throw e;
+            }
+            batchFailureLog.warn("No metadata for topic {}, spilling {} record(s): {}", topicName, records.size(),
+                    e.getMessage());
+            return CompletableFuture.completedFuture(spillAll(topicName, records));
+        }
+        CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> batchFuture =
+                sendThroughStripes(topicName, records, traces, partitionCount)
+                        .thenApply(this::spillRetriableFailures);
+        batchFuture.thenAccept(this::logBatchResult);
+        return batchFuture;
+    }
+
+    /**
+     * Sends records read back from the {@link SpillJournal} like {@link #sendBatch(String, List)}, on the same
+     * partitions and through the same producers, so they keep their order against records of the same key sent
+     * later. Bypasses the journal: failed records are reported, not spilled again, the replayer retries them.
+     *
+     * @throws RuntimeException if the partitions of the topic cannot be fetched
+     */
+    public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendSpilled(String topicName,
+                                                                                  List<Pair<Long, TwitterAvroModel>> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchSendResult<>(topicName, 0, 0, Collections.emptyList()));
+        }
+        return sendThroughStripes(topicName, records, null, getPartitionCount(topicName));
+    }
+
+    private CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendThroughStripes(
+            String topicName, List<Pair<Long, TwitterAvroModel>> records, List<RecordTrace> traces,
+            int partitionCount) {
+        boolean transactional = kafkaTemplatePool.primary().isTransactional();
+        // slot of a partition: stripe-major, so the records of each producer end up next to each other
+        int stripes = Math.min(kafkaTemplatePool.size(), partitionCount);
+        int slotsPerStripe = (partitionCount + stripes - 1) / stripes;
+        int size = records.size();
+        int[] partitions = new int[size];
+        int[] slotOffsets = new int[stripes * slotsPerStripe + 1];
+        for (int i = 0; i < size; i++) {
+            partitions[i] = partitionFor(topicName, records.get(i).key(), partitionCount);
+            slotOffsets[slotOf(partitions[i], stripes, slotsPerStripe) + 1]++;
+        }
+        int usedPartitions = 0;
+        for (int slot = 0; slot < slotOffsets.length - 1; slot++) {
+            if (slotOffsets[slot + 1] > 0) {
+                usedPartitions++;
+            }
+            slotOffsets[slot + 1] += slotOffsets[slot];
+        }
+        int[] stripeStarts = new int[stripes + 1];
+        for (int stripe = 0; stripe <= stripes; stripe++) {
+            stripeStarts[stripe] = slotOffsets[stripe * slotsPerStripe];
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[slotOffsets[slotOf(partitions[i], stripes, slotsPerStripe)]++] = i;
+        }
+
+        int usedStripes = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (stripeStarts[stripe] < stripeStarts[stripe + 1]) {
+                usedStripes++;
+            }
+        }
+
+        producerMetrics.onSend(size);
+        BatchSendTracker<Long, TwitterAvroModel> tracker =
+                new BatchSendTracker<>(topicName, records, partitions, usedPartitions, producerMetrics, traces,
+                        stageLatencyRecorder, transactional ? usedStripes : 0);
+        long sendCallStartNanos = System.nanoTime();
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int from = stripeStarts[stripe];
+            int to = stripeStarts[stripe + 1];
+            if (from == to) {
+                continue;
+            }
+            ProducerCallback<Long, TwitterAvroModel, Void> sendStripe = producer -> {
+                for (int i = from; i < to; i++) {
+                    int index = order[i];
+                    Pair<Long, TwitterAvroModel> record = records.get(index);
+                    RecordTrace trace = traces == null ? null : traces.get(index);
+                    try {
+                        long recordSendNanos = trace == null ? 0 : System.nanoTime();
+                        producer.send(new ProducerRecord<>(topicName, partitions[index], null, record.key(),
+                                record.value(), TraceHeaders.of(trace)), tracker.callbackFor(index));
+                        if (trace != null) {
+                            long sentNanos = System.nanoTime();
+                            tracker.sent(index, sentNanos);
+                            stageLatencyRecorder.record(IngestStage.SERIALIZE, sentNanos - recordSendNanos);
+                        }
+                    } catch (RuntimeException e) {
+                        tracker.fail(index, e);
+                    }
+                }
+                return null;
+            };
+            kafkaTemplatePool.withTemplate(stripe, template -> transactional ?
+                    sendInTransaction(template, sendStripe, tracker, order, from, to) : template.execute(sendStripe));
+        }
+        producerMetrics.onSendCall(size, System.nanoTime() - sendCallStartNanos);
+        return tracker.future();
     }
 
 
+    /**
+     * Flushes every producer of the pool, records still in flight after the timeout keep their callbacks.
+     */
+    @Override
+    public boolean flush(long timeoutMs) {
+        return kafkaTemplatePool.flush(timeoutMs) && producerMetrics.getInFlight() == 0;
+    }
+
 /**
  *The selected code is part of the TwitterKafkaProducer class, which is a Kafka producer implementation for sending Twitter data to a Kafka topic. The @PreDestroy annotation indicates that this method will be called when the Spring application context is being closed, typically when the application is shutting down.
 
@@ -54,9 +309,154 @@ public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroMode
 
     @PreDestroy
     public void close() {
-        if (kafkaTemplate != null) {
+        if (kafkaTemplatePool != null) {
             LOG.info("Closing kafka producer!");
-            kafkaTemplate.destroy();
+            // usually flushed by the shutdown sequence already, this covers a context closed without it
+            if (!flush(closeTimeoutMs)) {
+                LOG.warn("Closing kafka producer with {} record(s) still in flight after {} ms",
+                        producerMetrics.getInFlight(), closeTimeoutMs);
+            }
+            // the producers themselves are closed by the pool's destroy, the pool bean outlives this one
+        }
+    }
+
+    /**
+     * @return true if so many records are unacknowledged that the next send would likely block on a full buffer
+     */
+    private boolean isBackpressured() {
+        return backpressureMaxInFlight > 0 && spillJournal.isEnabled()
+                && producerMetrics.getInFlight() >= backpressureMaxInFlight;
+    }
+
+    /**
+     * Read per call and not cached, so partitions added by the partition auto scaler get records as soon as the
+     * producer's metadata knows them. partitionsFor answers from the client's metadata cache, which is refreshed
+     * every metadata.max.age.ms, so this is cheap.
+     */
+    private int getPartitionCount(String topicName) {
+        return kafkaTemplatePool.withTemplate(0, template -> template.partitionsFor(topicName)).size();
+    }
+
+    /**
+     * With a single producer the configured partitioner picks the partition as before. With a pool the partition
+     * is chosen here, by the same strategy, because it decides which producer sends the record.
+     */
+    private CompletableFuture<SendResult<Long, TwitterAvroModel>> sendThroughPool(String topicName, Long key,
+                                                                                 TwitterAvroModel message,
+                                                                                 RecordTrace trace) {
+        if (kafkaTemplatePool.size() == 1) {
+            return kafkaTemplatePool.withTemplate(0, template -> send(template,
+                    new ProducerRecord<>(topicName, null, null, key, message, TraceHeaders.of(trace))));
+        }
+        int partition = partitionFor(topicName, key, getPartitionCount(topicName));
+        return kafkaTemplatePool.withTemplate(kafkaTemplatePool.stripeOf(partition), template -> send(template,
+                new ProducerRecord<>(topicName, partition, null, key, message, TraceHeaders.of(trace))));
+    }
+
+    /**
+     * Sends a single record, in a transaction of its own if the producer is transactional. The commit waits for
+     * the ack, so this is for the occasional record, batches go through {@link #sendBatch(String, List, List)}.
+     */
+    private static CompletableFuture<SendResult<Long, TwitterAvroModel>> send(
+            KafkaTemplate<Long, TwitterAvroModel> template, ProducerRecord<Long, TwitterAvroModel> record) {
+        if (!template.isTransactional()) {
+            return template.send(record);
+        }
+        try {
+            return template.executeInTransaction(operations -> operations.send(record));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends the records {@code order[from]} to {@code order[to - 1]} of a batch in one transaction. The commit
+     * returns once the broker has acknowledged all of them, a failure aborts the transaction and fails them all.
+     * One transaction per micro-batch and producer keeps the commit overhead to a round trip per batch.
+     */
+    private static Void sendInTransaction(KafkaTemplate<Long, TwitterAvroModel> template,
+                                          ProducerCallback<Long, TwitterAvroModel, Void> sendStripe,
+                                          BatchSendTracker<Long, TwitterAvroModel> tracker,
+                                          int[] order, int from, int to) {
+        boolean[] handedOver = new boolean[1];
+        try {
+            template.executeInTransaction(operations -> operations.execute(producer -> {
+                sendStripe.doInKafka(producer);
+                handedOver[0] = true;
+                return null;
+            }));
+            tracker.transactionCommitted();
+        } catch (RuntimeException e) {
+            tracker.transactionAborted(order, from, to, handedOver[0], e);
+        }
+        return null;
+    }
+
+    /**
+     * Partition {@code p} belongs to stripe {@code p % stripes}, the same producer {@link KafkaTemplatePool}
+     * picks for it, and gets the slots of a stripe in ascending partition order.
+     */
+    private static int slotOf(int partition, int stripes, int slotsPerStripe) {
+        return (partition % stripes) * slotsPerStripe + partition / stripes;
+    }
+
+    private int partitionFor(String topicName, Long key, int partitionCount) {
+        byte[] keyBytes = key == null ? null : keySerializer.serialize(topicName, key);
+        return hotKeyPartitioningStrategy.partition(topicName, keyBytes, partitionCount);
+    }
+
+    private BatchSendResult<Long, TwitterAvroModel> spillAll(String topicName,
+                                                             List<Pair<Long, TwitterAvroModel>> records) {
+        List<RecordFailure<Long, TwitterAvroModel>> failures = new ArrayList<>(0);
+        for (int i = 0; i < records.size(); i++) {
+            Pair<Long, TwitterAvroModel> record = records.get(i);
+            if (!spillJournal.append(topicName, record.key(), record.value())) {
+                failures.add(new RecordFailure<>(i, record.key(), record.value(), -1,
+                        new IllegalStateException("Spill journal is full")));
+            }
+        }
+        return new BatchSendResult<>(topicName, records.size(), 0, failures, records.size() - failures.size());
+    }
+
+    private BatchSendResult<Long, TwitterAvroModel> spillRetriableFailures(BatchSendResult<Long, TwitterAvroModel> result) {
+        if (!result.hasFailures() || !spillJournal.isEnabled()) {
+            return result;
+        }
+        List<RecordFailure<Long, TwitterAvroModel>> failures = new ArrayList<>(0);
+        int spilled = 0;
+        for (RecordFailure<Long, TwitterAvroModel> failure : result.failures()) {
+            if (isRetriable(failure.exception()) &&
+                    spillJournal.append(result.topicName(), failure.key(), failure.value())) {
+                spilled++;
+            } else {
+                failures.add(failure);
+            }
+        }
+        return new BatchSendResult<>(result.topicName(), result.recordCount(), result.partitionCount(), failures,
+                result.spilledCount() + spilled);
+    }
+
+    private static boolean isRetriable(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void logBatchResult(BatchSendResult<Long, TwitterAvroModel> result) {
+        if (result.hasFailures()) {
+            RecordFailure<Long, TwitterAvroModel> firstFailure = result.failures().get(0);
+            batchFailureLog.error("{} of {} record(s) failed while sending batch to topic {}, first failure at index {} " +
+                            "on partition {}", result.failures().size(), result.recordCount(), result.topicName(),
+                    firstFailure.index(), firstFailure.partition(), firstFailure.exception());
+        } else if (result.spilledCount() > 0) {
+            batchLog.info("Spilled {} of {} record(s) for topic {} to the local journal", result.spilledCount(),
+                    result.recordCount(), result.topicName());
+        } else {
+            batchLog.info("Sent batch of {} record(s) to topic {} over {} partition(s)",
+                    result.recordCount(), result.topicName(), result.partitionCount());
         }
     }
 
@@ -66,12 +466,30 @@ public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroMode
      * or it will log an error if the send operation fails.
      *
      * @param topicName the name of the Kafka topic to which the message is sent
+     * @param key the key of the message, needed to spill it to the local journal
      * @param message the message being sent to the Kafka topic
+     * @param sendTimeNanos the time the message was handed to the template, for the ack latency metric
+     * @param trace the trace of the message, null if it is not traced
+     * @param sentNanos the time the send call returned, where the ack stage of a traced message starts
      * @return a callback function that will be executed after sending the message
      */
-    private BiConsumer<SendResult<Long, TwitterAvroModel>, Throwable> getCallback(String topicName, TwitterAvroModel message) {
+    private BiConsumer<SendResult<Long, TwitterAvroModel>, Throwable> getCallback(String topicName, Long key,
+                                                                                 TwitterAvroModel message,
+                                                                                 long sendTimeNanos,
+                                                                                 RecordTrace trace,
+                                                                                 long sentNanos) {
         return (result, ex) -> {
+            producerMetrics.onCompletion(result != null ? result.getRecordMetadata() : null, topicName,
+                    sendTimeNanos, ex instanceof KafkaProducerException && ex.getCause() != null ? ex.getCause() : ex);
+            if (ex == null && trace != null) {
+                long ackNanos = System.nanoTime();
+                stageLatencyRecorder.record(IngestStage.ACK, ackNanos - sentNanos);
+                stageLatencyRecorder.record(IngestStage.END_TO_END, ackNanos - trace.ingestNanos());
+            }
             if (ex == null) {
+                if (!ackLog.sample()) {
+                    return;
+                }
                 RecordMetadata metadata = result.getRecordMetadata();
                 LOG.info("Received new metadata. Topic: {}; Partition {}; Offset {}; Timestamp {}, at time {}",
                         metadata.topic(),
@@ -79,8 +497,11 @@ public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroMode
                         metadata.offset(),
                         metadata.timestamp(),
                         System.nanoTime());
+            } else if (isRetriable(ex) && spillJournal.append(topicName, key, message)) {
+                errorLog.warn("Spilled message {} for topic {} to the local journal after {}", message, topicName,
+                        ex.getMessage());
             } else {
-                LOG.error("Error while sending message {} to topic {}", message.toString(), topicName, ex);
+                errorLog.error("Error while sending message {} to topic {}", message, topicName, ex);
             }
         };
     }
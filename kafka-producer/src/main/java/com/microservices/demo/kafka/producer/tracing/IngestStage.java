@@ -0,0 +1,33 @@
+package com.microservices.demo.kafka.producer.tracing;
+
+/**
+ * Stages a tweet passes on its way from the stream source to the broker ack, see {@link StageLatencyRecorder}.
+ */
+public enum IngestStage {
+
+    /**
+     * From the socket read, or the generation of a mock tweet, until the parsed tweet is published to the pipeline.
+     */
+    PARSE,
+    /**
+     * Conversion of a twitter4j status to the Avro model on a pipeline worker. Sources that decode straight into
+     * the Avro model skip it.
+     */
+    CONVERT,
+    /**
+     * Waiting in the pipeline ring buffer, including the wait for a free slot with the BLOCK policy.
+     */
+    ENQUEUE,
+    /**
+     * The producer send call: serialization, partitioning and the append to the record accumulator.
+     */
+    SERIALIZE,
+    /**
+     * From the return of the send call until the broker ack reaches the producer callback.
+     */
+    ACK,
+    /**
+     * From the ingest until the broker ack, the sum of all stages.
+     */
+    END_TO_END
+}
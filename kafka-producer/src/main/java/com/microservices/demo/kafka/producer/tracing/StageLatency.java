@@ -0,0 +1,8 @@
+package com.microservices.demo.kafka.producer.tracing;
+
+/**
+ * Latency distribution of one {@link IngestStage}, in microseconds.
+ */
+public record StageLatency(IngestStage stage, long count, double meanMicros, long p50Micros, long p99Micros,
+                           long p999Micros, long maxMicros) {
+}
@@ -0,0 +1,106 @@
+package com.microservices.demo.kafka.producer.tracing;
+
+import com.microservices.demo.config.LatencyTracingConfigData;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of every {@link IngestStage} of the tweets, kept in HdrHistograms with microsecond resolution.
+ * <p>
+ * Stream, worker and producer callback threads record into one {@link Recorder} per stage, which is wait-free:
+ * no lock and no CAS loop on the hot path, whatever the number of recording threads. Readers swap the active
+ * histogram of a recorder for an empty one and add the interval to a cumulative histogram, so percentiles cover
+ * everything recorded since the start or the last {@link #reset()}. Latencies above
+ * highest-trackable-latency-ms are recorded as that value.
+ */
+@Component
+public class StageLatencyRecorder {
+
+    private final boolean enabled;
+    private final long highestTrackableMicros;
+    private final Recorder[] recorders;
+    private final Histogram[] totals;
+    private final Histogram[] intervals;
+    private long sinceEpochMs = System.currentTimeMillis();
+
+    public StageLatencyRecorder(LatencyTracingConfigData latencyTracingConfigData) {
+        this.enabled = Boolean.TRUE.equals(latencyTracingConfigData.getEnabled());
+        this.highestTrackableMicros = TimeUnit.MILLISECONDS.toMicros(
+                latencyTracingConfigData.getHighestTrackableLatencyMs());
+        int significantDigits = latencyTracingConfigData.getSignificantDigits();
+        int stageCount = IngestStage.values().length;
+        this.recorders = new Recorder[stageCount];
+        this.totals = new Histogram[stageCount];
+        this.intervals = new Histogram[stageCount];
+        if (enabled) {
+            for (int i = 0; i < stageCount; i++) {
+                recorders[i] = new Recorder(highestTrackableMicros, significantDigits);
+                totals[i] = new Histogram(highestTrackableMicros, significantDigits);
+            }
+        }
+    }
+
+    /**
+     * @return false if latency-tracing-config.enabled is off, callers then skip taking timestamps too
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(IngestStage stage, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        long micros = Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(durationNanos), highestTrackableMicros));
+        recorders[stage.ordinal()].recordValue(micros);
+    }
+
+    /**
+     * @return the latencies of all stages since {@link #getSinceEpochMs()}, empty if tracing is disabled
+     */
+    public synchronized List<StageLatency> snapshot() {
+        if (!enabled) {
+            return List.of();
+        }
+        List<StageLatency> latencies = new ArrayList<>(totals.length);
+        for (IngestStage stage : IngestStage.values()) {
+            Histogram total = collect(stage.ordinal());
+            latencies.add(new StageLatency(stage, total.getTotalCount(), total.getMean(),
+                    total.getValueAtPercentile(50.0), total.getValueAtPercentile(99.0),
+                    total.getValueAtPercentile(99.9), total.getMaxValue()));
+        }
+        return latencies;
+    }
+
+    /**
+     * Starts over, e.g. after warm-up or before reproducing an incident.
+     */
+    public synchronized void reset() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < totals.length; i++) {
+            intervals[i] = recorders[i].getIntervalHistogram(intervals[i]);
+            totals[i].reset();
+        }
+        sinceEpochMs = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the wall clock time since which the snapshot reports
+     */
+    public synchronized long getSinceEpochMs() {
+        return sinceEpochMs;
+    }
+
+    private Histogram collect(int index) {
+        intervals[index] = recorders[index].getIntervalHistogram(intervals[index]);
+        totals[index].add(intervals[index]);
+        return totals[index];
+    }
+}
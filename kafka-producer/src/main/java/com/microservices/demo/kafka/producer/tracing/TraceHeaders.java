@@ -0,0 +1,40 @@
+package com.microservices.demo.kafka.producer.tracing;
+
+import com.microservices.demo.kafka.producer.model.RecordTrace;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record headers carrying the {@link RecordTrace} of a tweet, so consumers can measure the latency from the ingest
+ * and tell the sources apart. The ingest timestamp is the epoch milliseconds as an 8 byte big-endian long, as
+ * written by Kafka's LongSerializer, the source is its UTF-8 id.
+ */
+public final class TraceHeaders {
+
+    public static final String INGEST_TIMESTAMP_HEADER = "ingest-timestamp-ms";
+
+    public static final String SOURCE_HEADER = "ingest-source";
+
+    private static final Map<String, byte[]> SOURCE_BYTES = new ConcurrentHashMap<>();
+
+    private TraceHeaders() {
+    }
+
+    /**
+     * @return the headers of the trace, null for no trace
+     */
+    public static List<Header> of(RecordTrace trace) {
+        if (trace == null) {
+            return null;
+        }
+        byte[] timestamp = ByteBuffer.allocate(Long.BYTES).putLong(trace.ingestEpochMs()).array();
+        byte[] source = SOURCE_BYTES.computeIfAbsent(trace.source(), id -> id.getBytes(StandardCharsets.UTF_8));
+        return List.of(new RecordHeader(INGEST_TIMESTAMP_HEADER, timestamp), new RecordHeader(SOURCE_HEADER, source));
+    }
+}
@@ -0,0 +1,286 @@
+package com.microservices.demo.kafka.producer.tuning;
+
+import com.microservices.demo.config.AdaptiveProducerConfigData;
+import com.microservices.demo.config.KafkaConfigData;
+import com.microservices.demo.config.KafkaProducerConfigData;
+import com.microservices.demo.kafka.producer.pool.KafkaTemplatePool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts batch.size, linger.ms and compression.type of the tweet producers to the load, for a latency or a
+ * throughput goal instead of fixed knobs.
+ * <p>
+ * Every evaluation interval the client metrics of the pooled producers are read: record-send-rate,
+ * record-size-avg, batch-size-avg, record-queue-time-avg and request-latency-avg. From them the settings the goal
+ * needs are derived, see {@link ProducerTuningGoal}, bounded by the min and max of adaptive-producer-config. As
+ * batch.size applies per partition, the record rate of a producer is spread over the partitions it feeds, the
+ * topic's partitions divided by the pool size. Only when they differ from the current ones by a regime, half or
+ * double the batch size, half the linger or another compression, for sustained-evaluations evaluations in a row
+ * and outside roll-cooldown-ms, the {@link KafkaTemplatePool} is rolled to freshly configured producers. The roll
+ * flushes the old producers, so records in flight are neither lost nor reordered.
+ * <p>
+ * Not available with EXACTLY_ONCE delivery: outside of a transaction the template hands out a separate
+ * non-transactional producer, so its metrics do not show the load of the producers that send the tweets.
+ */
+@Component
+public class AdaptiveProducerTuner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveProducerTuner.class);
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+    private static final double MIN_RECORD_RATE = 1.0;
+    private static final double FULL_BATCH_RATIO = 0.75;
+
+    private final AdaptiveProducerConfigData adaptiveProducerConfigData;
+    private final KafkaConfigData kafkaConfigData;
+    private final KafkaProducerConfigData kafkaProducerConfigData;
+    private final KafkaTemplatePool<?, ?> kafkaTemplatePool;
+
+    private ScheduledExecutorService evaluationExecutor;
+    private ProducerTuningGoal goal;
+    private int evaluationsAwayFromTarget;
+    private long lastRollMs;
+
+    public AdaptiveProducerTuner(AdaptiveProducerConfigData adaptiveProducerConfigData,
+                                 KafkaConfigData kafkaConfigData,
+                                 KafkaProducerConfigData kafkaProducerConfigData,
+                                 KafkaTemplatePool<?, ?> kafkaTemplatePool) {
+        this.adaptiveProducerConfigData = adaptiveProducerConfigData;
+        this.kafkaConfigData = kafkaConfigData;
+        this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.kafkaTemplatePool = kafkaTemplatePool;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(adaptiveProducerConfigData.getEnabled())) {
+            return;
+        }
+        if (kafkaTemplatePool.primary().isTransactional()) {
+            // KafkaTemplate#metrics reads an idle non-transactional producer, the transactional ones are not exposed
+            LOG.warn("Adaptive producer tuning is off with EXACTLY_ONCE delivery, the metrics of the " +
+                    "transactional producers cannot be read");
+            return;
+        }
+        goal = ProducerTuningGoal.valueOf(adaptiveProducerConfigData.getGoal().trim().toUpperCase());
+        evaluationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptive-producer-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evaluationIntervalMs = adaptiveProducerConfigData.getEvaluationIntervalMs();
+        evaluationExecutor.scheduleWithFixedDelay(this::evaluate, evaluationIntervalMs, evaluationIntervalMs,
+                TimeUnit.MILLISECONDS);
+        LOG.info("Adaptive producer tuning for {} (target latency {} ms) every {} ms, starting from {}", goal,
+                adaptiveProducerConfigData.getTargetLatencyMs(), evaluationIntervalMs, currentSettings());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (evaluationExecutor != null) {
+            evaluationExecutor.shutdownNow();
+        }
+    }
+
+    private void evaluate() {
+        try {
+            ProducerLoad load = ProducerLoad.of(kafkaTemplatePool.metrics());
+            if (load.recordRate() < MIN_RECORD_RATE) {
+                LOG.debug("Producers are idle, keeping {}", currentSettings());
+                evaluationsAwayFromTarget = 0;
+                return;
+            }
+            ProducerSettings current = currentSettings();
+            ProducerSettings target = targetSettings(load, current);
+            if (!target.isOtherRegimeThan(current)) {
+                if (evaluationsAwayFromTarget > 0) {
+                    LOG.info("Load is back in the regime of {} at {}, keeping the producers", current, load);
+                } else {
+                    LOG.debug("Keeping {} at {}", current, load);
+                }
+                evaluationsAwayFromTarget = 0;
+                return;
+            }
+            evaluationsAwayFromTarget++;
+            int sustainedEvaluations = adaptiveProducerConfigData.getSustainedEvaluations();
+            if (evaluationsAwayFromTarget < sustainedEvaluations) {
+                LOG.info("Load {} calls for {} instead of {}, {} of {} evaluations", load, target, current,
+                        evaluationsAwayFromTarget, sustainedEvaluations);
+                return;
+            }
+            long cooldownLeftMs = lastRollMs + adaptiveProducerConfigData.getRollCooldownMs()
+                    - System.currentTimeMillis();
+            if (cooldownLeftMs > 0) {
+                LOG.info("Load {} calls for {} instead of {}, waiting {} ms of cooldown", load, target, current,
+                        cooldownLeftMs);
+                return;
+            }
+            LOG.info("Load {} calls for {} instead of {}, rolling the producers", load, target, current);
+            kafkaTemplatePool.roll(target.toConfig());
+            lastRollMs = System.currentTimeMillis();
+            evaluationsAwayFromTarget = 0;
+        } catch (RuntimeException e) {
+            LOG.warn("Adaptive producer tuning failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private ProducerSettings targetSettings(ProducerLoad load, ProducerSettings current) {
+        int minLingerMs = adaptiveProducerConfigData.getMinLingerMs();
+        int maxLingerMs = adaptiveProducerConfigData.getMaxLingerMs();
+        int lingerMs;
+        String compressionType;
+        if (goal == ProducerTuningGoal.THROUGHPUT) {
+            lingerMs = maxLingerMs;
+            compressionType = adaptiveProducerConfigData.getThroughputCompressionType();
+        } else {
+            // half of the budget the broker round trip leaves, the other half absorbs queueing
+            double budgetMs = adaptiveProducerConfigData.getTargetLatencyMs() - load.requestLatencyAvgMs();
+            lingerMs = clamp((int) (budgetMs / 2), minLingerMs, maxLingerMs);
+            compressionType = adaptiveProducerConfigData.getLatencyCompressionType();
+        }
+        // room for the bytes one partition gets in a linger, twice over so a batch rarely fills up before the
+        // linger ends
+        double partitionRecordRate = load.recordRate() / partitionsPerProducer();
+        double bytesPerLinger = partitionRecordRate * load.recordSizeAvg() * Math.max(lingerMs, 1) / 1000.0;
+        int batchSize = roundUpToPowerOfTwo(2 * bytesPerLinger);
+        if (goal == ProducerTuningGoal.LATENCY && lingerMs <= minLingerMs
+                && load.queueTimeAvgMs() > adaptiveProducerConfigData.getTargetLatencyMs()
+                && load.batchSizeAvg() >= FULL_BATCH_RATIO * current.batchSize()) {
+            // records wait for the sender, not for the linger, and batches leave full: fewer, larger requests
+            // drain the queue faster. With batches far from full a larger batch.size would not change them.
+            batchSize = (int) Math.min(Integer.MAX_VALUE, Math.max(batchSize, 2L * current.batchSize()));
+        }
+        batchSize = clamp(batchSize, adaptiveProducerConfigData.getMinBatchSize(),
+                adaptiveProducerConfigData.getMaxBatchSize());
+        return new ProducerSettings(batchSize, lingerMs, compressionType);
+    }
+
+    /**
+     * Partition p goes through producer p % pool size, so every producer feeds its share of the topic's
+     * partitions.
+     */
+    private double partitionsPerProducer() {
+        String topicName = kafkaConfigData.getTopicName();
+        int partitionCount = kafkaTemplatePool.withTemplate(0, template -> template.partitionsFor(topicName)).size();
+        return Math.max(1.0, (double) partitionCount / kafkaTemplatePool.size());
+    }
+
+    private ProducerSettings currentSettings() {
+        Map<String, Object> overrides = kafkaTemplatePool.getConfigOverrides();
+        if (!overrides.isEmpty()) {
+            return new ProducerSettings((Integer) overrides.get(ProducerConfig.BATCH_SIZE_CONFIG),
+                    (Integer) overrides.get(ProducerConfig.LINGER_MS_CONFIG),
+                    (String) overrides.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        }
+        return new ProducerSettings(
+                kafkaProducerConfigData.getBatchSize() * kafkaProducerConfigData.getBatchSizeBoostFactor(),
+                kafkaProducerConfigData.getLingerMs(), kafkaProducerConfigData.getCompressionType());
+    }
+
+    private static int roundUpToPowerOfTwo(double value) {
+        if (value >= 1 << 30) {
+            return 1 << 30;
+        }
+        int intValue = Math.max(1, (int) Math.ceil(value));
+        int highestBit = Integer.highestOneBit(intValue);
+        return highestBit == intValue ? intValue : highestBit << 1;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * The settings a roll changes.
+     */
+    private record ProducerSettings(int batchSize, int lingerMs, String compressionType) {
+
+        /**
+         * Small differences are noise of the measurement, only a change of regime is worth new producers.
+         */
+        boolean isOtherRegimeThan(ProducerSettings other) {
+            return batchSize >= 2L * other.batchSize || 2L * batchSize <= other.batchSize
+                    || Math.abs(lingerMs - other.lingerMs) >= Math.max(2, other.lingerMs / 2)
+                    || !compressionType.equals(other.compressionType);
+        }
+
+        Map<String, Object> toConfig() {
+            return Map.of(ProducerConfig.BATCH_SIZE_CONFIG, batchSize,
+                    ProducerConfig.LINGER_MS_CONFIG, lingerMs,
+                    ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        }
+
+        @Override
+        public String toString() {
+            return "batch.size=" + batchSize + ", linger.ms=" + lingerMs + ", compression.type=" + compressionType;
+        }
+    }
+
+    /**
+     * Client metrics of the pooled producers. The rate is per producer, the averages are weighted by the send rate
+     * of each producer.
+     */
+    private record ProducerLoad(double recordRate, double recordSizeAvg, double batchSizeAvg, double queueTimeAvgMs,
+                                double requestLatencyAvgMs) {
+
+        static ProducerLoad of(List<Map<MetricName, ? extends Metric>> producerMetrics) {
+            double totalRate = 0;
+            double recordSize = 0;
+            double batchSize = 0;
+            double queueTime = 0;
+            double requestLatency = 0;
+            for (Map<MetricName, ? extends Metric> metrics : producerMetrics) {
+                double rate = value(metrics, "record-send-rate");
+                if (rate <= 0) {
+                    continue;
+                }
+                totalRate += rate;
+                recordSize += rate * value(metrics, "record-size-avg");
+                batchSize += rate * value(metrics, "batch-size-avg");
+                queueTime += rate * value(metrics, "record-queue-time-avg");
+                requestLatency += rate * value(metrics, "request-latency-avg");
+            }
+            if (totalRate == 0) {
+                return new ProducerLoad(0, 0, 0, 0, 0);
+            }
+            return new ProducerLoad(totalRate / producerMetrics.size(), recordSize / totalRate,
+                    batchSize / totalRate, queueTime / totalRate, requestLatency / totalRate);
+        }
+
+        /**
+         * @return the value of the producer-metrics metric, 0 if it is missing or has no samples yet
+         */
+        private static double value(Map<MetricName, ? extends Metric> metrics, String name) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                if (metric.getKey().name().equals(name) && metric.getKey().group().equals(PRODUCER_METRICS_GROUP)) {
+                    Object value = metric.getValue().metricValue();
+                    if (value instanceof Number number && Double.isFinite(number.doubleValue())) {
+                        return number.doubleValue();
+                    }
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f records/s per producer, %.0f B per record, %.0f B per batch, "
+                            + "%.1f ms queue time, %.1f ms request latency", recordRate, recordSizeAvg, batchSizeAvg,
+                    queueTimeAvgMs, requestLatencyAvgMs);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.microservices.demo.kafka.producer.tuning;
+
+/**
+ * What {@link AdaptiveProducerTuner} optimizes the producer settings for.
+ */
+public enum ProducerTuningGoal {
+    /**
+     * Keep the time from send to ack within adaptive-producer-config.target-latency-ms: linger only as long as the
+     * budget left after the request latency allows, batches just large enough for the records of one linger.
+     */
+    LATENCY,
+    /**
+     * Send as many records per request as possible: the longest allowed linger and batches that fill up within it.
+     */
+    THROUGHPUT
+}
@@ -0,0 +1,211 @@
+package com.microservices.demo.kafka.producer.journal;
+
+import com.microservices.demo.config.SpillJournalConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillJournalTest {
+
+    private static final String TOPIC_NAME = "twitter-topic";
+
+    /**
+     * Holds three of the test records, so a handful of records spans several segments.
+     */
+    private static final int SMALL_SEGMENT_SIZE = 256;
+
+    private static final int LARGE_SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final List<SpillJournal> openJournals = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() {
+        openJournals.forEach(SpillJournal::close);
+    }
+
+    @Test
+    void readsRecordsInAppendOrderUntilCommitted() throws IOException {
+        SpillJournal journal = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        assertThat(journal.hasPending()).isFalse();
+
+        appendAll(journal, 1, 3);
+
+        assertThat(journal.hasPending()).isTrue();
+        assertThat(ids(journal.read(10))).containsExactly(1L, 2L, 3L);
+        // reading does not move the read position
+        SpillBatch batch = journal.read(2);
+        assertThat(ids(batch)).containsExactly(1L, 2L);
+        assertThat(batch.records().get(0).topicName()).isEqualTo(TOPIC_NAME);
+        assertThat(batch.records().get(0).key()).isEqualTo(1L);
+
+        journal.commit(batch.nextPosition());
+        assertThat(ids(journal.read(10))).containsExactly(3L);
+
+        journal.commit(journal.read(10).nextPosition());
+        assertThat(journal.hasPending()).isFalse();
+        assertThat(journal.read(10).isEmpty()).isTrue();
+    }
+
+    @Test
+    void dropsRecordWithCrcMismatchOnReopen() throws IOException {
+        SpillJournal journal = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        appendAll(journal, 1, 3);
+        int thirdRecordPosition = journal.read(2).nextPosition().position();
+        journal.close();
+
+        // a torn write: the length made it to disk, part of the body did not
+        overwrite(segmentFile(0), thirdRecordPosition + 8 + 1, 0x7F7F7F7F);
+
+        SpillJournal reopened = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        assertThat(ids(reopened.read(10))).containsExactly(1L, 2L);
+
+        // new records overwrite the torn one instead of landing behind it
+        append(reopened, 4);
+        assertThat(ids(reopened.read(10))).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void dropsRecordWithoutLengthOnReopen() throws IOException {
+        SpillJournal journal = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        appendAll(journal, 1, 3);
+        int thirdRecordPosition = journal.read(2).nextPosition().position();
+        journal.close();
+
+        // the length is written last, a crash before it leaves the end of data marker
+        overwrite(segmentFile(0), thirdRecordPosition, 0);
+
+        SpillJournal reopened = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        assertThat(ids(reopened.read(10))).containsExactly(1L, 2L);
+        append(reopened, 4);
+        assertThat(ids(reopened.read(10))).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void resumesFromCheckpointAfterReopen() throws IOException {
+        SpillJournal journal = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        appendAll(journal, 1, 3);
+        journal.commit(journal.read(2).nextPosition());
+        journal.close();
+
+        SpillJournal reopened = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        assertThat(reopened.hasPending()).isTrue();
+        assertThat(ids(reopened.read(10))).containsExactly(3L);
+
+        reopened.commit(reopened.read(10).nextPosition());
+        reopened.close();
+
+        SpillJournal drained = open(LARGE_SEGMENT_SIZE, 1024L * 1024);
+        assertThat(drained.hasPending()).isFalse();
+        assertThat(drained.read(10).isEmpty()).isTrue();
+    }
+
+    @Test
+    void rollsOverSegmentsAndDeletesConsumedOnes() throws IOException {
+        SpillJournal journal = open(SMALL_SEGMENT_SIZE, SMALL_SEGMENT_SIZE * 10L);
+        appendAll(journal, 1, 7);
+
+        assertThat(segmentFiles()).hasSizeGreaterThanOrEqualTo(3);
+        assertThat(ids(journal.read(100))).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+
+        // reads across segment boundaries in small batches
+        List<Long> readIds = new ArrayList<>();
+        SpillBatch batch;
+        while (!(batch = journal.read(3)).isEmpty()) {
+            readIds.addAll(ids(batch));
+            journal.commit(batch.nextPosition());
+        }
+        assertThat(readIds).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(journal.hasPending()).isFalse();
+        assertThat(segmentFiles()).hasSize(1);
+        journal.close();
+
+        SpillJournal reopened = open(SMALL_SEGMENT_SIZE, SMALL_SEGMENT_SIZE * 10L);
+        assertThat(reopened.hasPending()).isFalse();
+        append(reopened, 8);
+        assertThat(ids(reopened.read(10))).containsExactly(8L);
+    }
+
+    @Test
+    void rejectsRecordsWhenFullUntilSegmentsAreConsumed() throws IOException {
+        SpillJournal journal = open(SMALL_SEGMENT_SIZE, SMALL_SEGMENT_SIZE * 2L);
+        long id = 0;
+        while (journal.append(TOPIC_NAME, id + 1, tweet(id + 1))) {
+            id++;
+        }
+        assertThat(id).isGreaterThanOrEqualTo(2);
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(journal.read(100).records()).hasSize((int) id);
+
+        journal.commit(journal.read(100).nextPosition());
+        assertThat(journal.append(TOPIC_NAME, id + 1, tweet(id + 1))).isTrue();
+        assertThat(ids(journal.read(10))).containsExactly(id + 1);
+    }
+
+    private SpillJournal open(int segmentSizeBytes, long maxDiskBytes) throws IOException {
+        SpillJournalConfigData spillJournalConfigData = new SpillJournalConfigData();
+        spillJournalConfigData.setEnabled(true);
+        spillJournalConfigData.setDirectory(directory.toString());
+        spillJournalConfigData.setSegmentSizeBytes(segmentSizeBytes);
+        spillJournalConfigData.setMaxDiskBytes(maxDiskBytes);
+        SpillJournal journal = new SpillJournal(spillJournalConfigData, new SimpleMeterRegistry());
+        journal.open();
+        openJournals.add(journal);
+        return journal;
+    }
+
+    private static void appendAll(SpillJournal journal, long fromId, long toId) {
+        for (long id = fromId; id <= toId; id++) {
+            append(journal, id);
+        }
+    }
+
+    private static void append(SpillJournal journal, long id) {
+        assertThat(journal.append(TOPIC_NAME, id, tweet(id))).isTrue();
+    }
+
+    private static TwitterAvroModel tweet(long id) {
+        return TwitterAvroModel.newBuilder()
+                .setUserId(id)
+                .setId(id)
+                .setText("spilled tweet " + id)
+                .setCreatedAt(1728900930000L)
+                .build();
+    }
+
+    private static List<Long> ids(SpillBatch batch) {
+        return batch.records().stream().map(record -> record.value().getId()).toList();
+    }
+
+    private Path segmentFile(long baseOffset) {
+        return directory.resolve(String.format("%020d.spill", baseOffset));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".spill")).toList();
+        }
+    }
+
+    private static void overwrite(Path file, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.microservices.demo.kafka.producer.partitioner;
+
+import com.microservices.demo.config.HotKeyPartitionerConfigData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotKeyPartitioningStrategyTest {
+
+    private static final String TOPIC_NAME = "twitter-topic";
+    private static final long MIN_WINDOW_RECORDS = 10;
+    private static final long HOT_USER_ID = 42L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<HotKeyPartitioningStrategy> openStrategies = new ArrayList<>();
+
+    @AfterEach
+    void closeStrategies() {
+        openStrategies.forEach(HotKeyPartitioningStrategy::close);
+    }
+
+    @Test
+    void sketchCountsExactlyWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, 1_000_000);
+        for (int i = 1; i <= 5; i++) {
+            assertThat(sketch.add(7)).isEqualTo(i);
+        }
+        assertThat(sketch.add(8)).isEqualTo(1);
+        assertThat(sketch.total()).isEqualTo(6);
+    }
+
+    @Test
+    void sketchNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(4, 64, 1_000_000);
+        Map<Integer, Long> counts = new HashMap<>();
+        // far more keys than columns, so cells are shared and estimates are too high
+        for (int i = 0; i < 20_000; i++) {
+            int hash = Utils.murmur2(keyBytes(i % 500));
+            long count = counts.merge(hash, 1L, Long::sum);
+            assertThat(sketch.add(hash)).isGreaterThanOrEqualTo(count);
+        }
+    }
+
+    @Test
+    void sketchHalvesCountsAtEndOfWindow() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024, 100);
+        for (int i = 0; i < 60; i++) {
+            sketch.add(1);
+        }
+        for (int i = 0; i < 39; i++) {
+            sketch.add(2);
+        }
+        assertThat(sketch.total()).isEqualTo(99);
+
+        // the hundredth addition is counted before the decay halves everything
+        assertThat(sketch.add(2)).isEqualTo(40);
+
+        assertThat(sketch.total()).isEqualTo(50);
+        assertThat(sketch.add(1)).isEqualTo(31);
+        assertThat(sketch.add(2)).isEqualTo(21);
+    }
+
+    @Test
+    void hashModeKeepsEveryKeyOnItsHashPartition() {
+        HotKeyPartitioningStrategy strategy = strategy(HotKeyMode.HASH, 4);
+        int hashPartition = hashPartition(HOT_USER_ID, 6);
+        for (int i = 0; i < 500; i++) {
+            assertThat(strategy.partition(TOPIC_NAME, keyBytes(HOT_USER_ID), 6)).isEqualTo(hashPartition);
+        }
+        assertThat(hotKeyRecords()).isEqualTo(500 - MIN_WINDOW_RECORDS + 1);
+        assertThat(saltedRecords()).isZero();
+        assertThat(strategy.getPartitionCounts(TOPIC_NAME)).hasSize(6).contains(500L);
+    }
+
+    @Test
+    void saltsHotKeyOverConsecutivePartitions() {
+        HotKeyPartitioningStrategy strategy = strategy(HotKeyMode.SALT_HOT_KEYS, 2);
+        int numPartitions = 8;
+        int hashPartition = hashPartition(HOT_USER_ID, numPartitions);
+
+        Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            partitions.add(strategy.partition(TOPIC_NAME, keyBytes(HOT_USER_ID), numPartitions));
+        }
+
+        assertThat(partitions).containsExactlyInAnyOrder(hashPartition, (hashPartition + 1) % numPartitions);
+    }
+
+    @Test
+    void limitsSaltBucketsToPartitionCount() {
+        HotKeyPartitioningStrategy strategy = strategy(HotKeyMode.SALT_HOT_KEYS, 8);
+        int numPartitions = 3;
+        int hashPartition = hashPartition(HOT_USER_ID, numPartitions);
+
+        // the key turns hot with the record that fills the minimum window
+        for (int i = 0; i < MIN_WINDOW_RECORDS - 1; i++) {
+            assertThat(strategy.partition(TOPIC_NAME, keyBytes(HOT_USER_ID), numPartitions)).isEqualTo(hashPartition);
+        }
+        for (int i = 0; i < 300; i++) {
+            strategy.partition(TOPIC_NAME, keyBytes(HOT_USER_ID), numPartitions);
+        }
+
+        // eight buckets over three partitions would wrap and favour some of them, three spread evenly
+        long[] expected = {100, 100, 100};
+        expected[hashPartition] += MIN_WINDOW_RECORDS - 1;
+        assertThat(strategy.getPartitionCounts(TOPIC_NAME)).containsExactly(expected);
+        assertThat(hotKeyRecords()).isEqualTo(300);
+        assertThat(saltedRecords()).isEqualTo(200);
+    }
+
+    @Test
+    void keepsColdKeysOnTheirHashPartition() {
+        HotKeyPartitioningStrategy strategy = strategy(HotKeyMode.SALT_HOT_KEYS, 4);
+        for (long userId = 0; userId < 1000; userId++) {
+            assertThat(strategy.partition(TOPIC_NAME, keyBytes(userId), 6)).isEqualTo(hashPartition(userId, 6));
+        }
+        assertThat(hotKeyRecords()).isZero();
+        assertThat(saltedRecords()).isZero();
+    }
+
+    @Test
+    void spreadsRecordsWithoutKeyRoundRobin() {
+        HotKeyPartitioningStrategy strategy = strategy(HotKeyMode.SALT_HOT_KEYS, 4);
+        for (int i = 0; i < 12; i++) {
+            assertThat(strategy.partition(TOPIC_NAME, null, 4)).isEqualTo(i % 4);
+        }
+        assertThat(strategy.getPartitionCounts(TOPIC_NAME)).containsExactly(3, 3, 3, 3);
+    }
+
+    private HotKeyPartitioningStrategy strategy(HotKeyMode mode, int saltBuckets) {
+        HotKeyPartitionerConfigData hotKeyPartitionerConfigData = new HotKeyPartitionerConfigData();
+        hotKeyPartitionerConfigData.setMode(mode.name());
+        hotKeyPartitionerConfigData.setSketchDepth(4);
+        hotKeyPartitionerConfigData.setSketchWidth(1024);
+        hotKeyPartitionerConfigData.setHotKeyThreshold(0.5);
+        hotKeyPartitionerConfigData.setMinWindowRecords(MIN_WINDOW_RECORDS);
+        hotKeyPartitionerConfigData.setWindowRecords(1_000_000L);
+        hotKeyPartitionerConfigData.setSaltBuckets(saltBuckets);
+        hotKeyPartitionerConfigData.setSkewReportIntervalMs(60_000L);
+        HotKeyPartitioningStrategy strategy = new HotKeyPartitioningStrategy(hotKeyPartitionerConfigData,
+                meterRegistry);
+        openStrategies.add(strategy);
+        return strategy;
+    }
+
+    /**
+     * The key as the Long key serializer writes it.
+     */
+    private static byte[] keyBytes(long userId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(userId).array();
+    }
+
+    private static int hashPartition(long userId, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(keyBytes(userId))) % numPartitions;
+    }
+
+    private double hotKeyRecords() {
+        return meterRegistry.get("kafka.producer.partitioner.hot.key.records").functionCounter().count();
+    }
+
+    private double saltedRecords() {
+        return meterRegistry.get("kafka.producer.partitioner.salted.records").functionCounter().count();
+    }
+}
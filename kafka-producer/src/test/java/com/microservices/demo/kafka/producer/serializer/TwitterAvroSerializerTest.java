@@ -0,0 +1,198 @@
+package com.microservices.demo.kafka.producer.serializer;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TwitterAvroSerializerTest {
+
+    private static final String TOPIC_NAME = "twitter-topic";
+    private static final String SUBJECT = TOPIC_NAME + "-value";
+    private static final String REGISTRY_URL = "mock://twitter-avro-serializer-test";
+    private static final AvroSchema SCHEMA = new AvroSchema(TwitterAvroModel.getClassSchema());
+    private static final long VERIFY_TIMEOUT_MS = 5000;
+
+    @TempDir
+    Path directory;
+
+    private final MockSchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
+    private final List<AutoCloseable> openSerializers = new ArrayList<>();
+
+    @AfterEach
+    void closeSerializers() throws Exception {
+        for (AutoCloseable serializer : openSerializers) {
+            serializer.close();
+        }
+    }
+
+    @Test
+    void writesSameBytesAsKafkaAvroSerializer() {
+        KafkaAvroSerializer kafkaAvroSerializer = new KafkaAvroSerializer(schemaRegistryClient, configs(true));
+        openSerializers.add(kafkaAvroSerializer);
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs(true));
+
+        for (TwitterAvroModel tweet : List.of(tweet(1, "hello kafka"), tweet(2, null), tweet(3, "çağ 東京 🚀"),
+                tweet(4, "x".repeat(100_000)), tweet(5, "pooled again"),
+                TwitterAvroModel.newBuilder(tweet(6, "tagged")).setMatchedKeywords(List.of("kafka", "java")).build())) {
+            byte[] expected = kafkaAvroSerializer.serialize(TOPIC_NAME, tweet);
+            assertThat(twitterAvroSerializer.serialize(TOPIC_NAME, tweet)).as("tweet %d", tweet.getId())
+                    .isEqualTo(expected);
+        }
+        assertThat(twitterAvroSerializer.serialize(TOPIC_NAME, null)).isNull();
+    }
+
+    @Test
+    void writesSameBytesFromConcurrentThreads() throws Exception {
+        KafkaAvroSerializer kafkaAvroSerializer = new KafkaAvroSerializer(schemaRegistryClient, configs(true));
+        openSerializers.add(kafkaAvroSerializer);
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs(true));
+        List<TwitterAvroModel> tweets = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            TwitterAvroModel tweet = tweet(i, "tweet " + "#".repeat(i * 7));
+            tweets.add(tweet);
+            expected.add(kafkaAvroSerializer.serialize(TOPIC_NAME, tweet));
+        }
+
+        // more threads than pooled encoders, so encoders are handed between threads and created on demand
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 16; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        int index = (offset * 31 + round * 17) % tweets.size();
+                        assertThat(twitterAvroSerializer.serialize(TOPIC_NAME, tweets.get(index)))
+                                .isEqualTo(expected.get(index));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failsForUnregisteredSchemaWithoutAutoRegister() {
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs(false));
+
+        assertThatThrownBy(() -> twitterAvroSerializer.serialize(TOPIC_NAME, tweet(1, "hello")))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining(SUBJECT);
+    }
+
+    @Test
+    void storesLookedUpIdInCache() throws Exception {
+        int schemaId = schemaRegistryClient.register(SUBJECT, SCHEMA);
+        Map<String, Object> configs = configs(false);
+        configs.put(TwitterAvroSerializer.SCHEMA_ID_CACHE_DIR_CONFIG, directory.toString());
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs);
+
+        assertThat(schemaIdOf(twitterAvroSerializer.serialize(TOPIC_NAME, tweet(1, "hello")))).isEqualTo(schemaId);
+
+        assertThat(schemaIdCache().get(SUBJECT)).isEqualTo(schemaId);
+    }
+
+    @Test
+    void usesCachedIdAndKeepsItWhenVerified() throws Exception {
+        int schemaId = schemaRegistryClient.register(SUBJECT, SCHEMA);
+        schemaIdCache().put(SUBJECT, schemaId);
+        Map<String, Object> configs = configs(false);
+        configs.put(TwitterAvroSerializer.SCHEMA_ID_CACHE_DIR_CONFIG, directory.toString());
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs);
+
+        assertThat(schemaIdOf(twitterAvroSerializer.serialize(TOPIC_NAME, tweet(1, "hello")))).isEqualTo(schemaId);
+
+        assertThat(schemaIdCache().get(SUBJECT)).isEqualTo(schemaId);
+    }
+
+    @Test
+    void replacesStaleCachedIdAfterVerification() throws Exception {
+        int staleSchemaId = 999;
+        schemaIdCache().put(SUBJECT, staleSchemaId);
+        Map<String, Object> configs = configs(true);
+        configs.put(TwitterAvroSerializer.SCHEMA_ID_CACHE_DIR_CONFIG, directory.toString());
+        TwitterAvroSerializer twitterAvroSerializer = serializer(configs);
+
+        int firstSchemaId = schemaIdOf(twitterAvroSerializer.serialize(TOPIC_NAME, tweet(1, "hello")));
+
+        // the file is written after the in-memory id is replaced
+        int registeredSchemaId = awaitCachedSchemaIdOtherThan(staleSchemaId);
+        assertThat(registeredSchemaId).isEqualTo(schemaRegistryClient.getId(SUBJECT, SCHEMA));
+        // the cached id is used without waiting for the registry, unless the verifier was quicker
+        assertThat(firstSchemaId).isIn(staleSchemaId, registeredSchemaId);
+        assertThat(schemaIdOf(twitterAvroSerializer.serialize(TOPIC_NAME, tweet(2, "again"))))
+                .isEqualTo(registeredSchemaId);
+    }
+
+    private TwitterAvroSerializer serializer(Map<String, Object> configs) {
+        TwitterAvroSerializer twitterAvroSerializer = new TwitterAvroSerializer(schemaRegistryClient, configs);
+        openSerializers.add(twitterAvroSerializer);
+        return twitterAvroSerializer;
+    }
+
+    private static Map<String, Object> configs(boolean autoRegisterSchemas) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, REGISTRY_URL);
+        configs.put(AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS, autoRegisterSchemas);
+        return configs;
+    }
+
+    /**
+     * Opens the cache file the serializer uses, read fresh from disk.
+     */
+    private SchemaIdCache schemaIdCache() {
+        return new SchemaIdCache(directory, List.of(TwitterAvroModel.getClassSchema()), List.of(REGISTRY_URL));
+    }
+
+    private int awaitCachedSchemaIdOtherThan(int schemaId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + VERIFY_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Integer current = schemaIdCache().get(SUBJECT);
+            if (current != null && current != schemaId) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Cached schema id " + schemaId + " was not replaced within " +
+                VERIFY_TIMEOUT_MS + " ms");
+    }
+
+    private static int schemaIdOf(byte[] bytes) {
+        assertThat(bytes[0]).isZero();
+        return ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+    }
+
+    private static TwitterAvroModel tweet(long id, String text) {
+        return TwitterAvroModel.newBuilder()
+                .setUserId(2244994945L)
+                .setId(id)
+                .setText(text)
+                .setCreatedAt(1728900930000L)
+                .build();
+    }
+}
@@ -2,10 +2,10 @@ package com.twitter.to.kafka.service;
 
 
 import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
+import com.twitter.to.kafka.service.init.StreamInitializer;
 import com.twitter.to.kafka.service.runner.StreamRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -24,9 +24,13 @@ public class TwitterToKafkaServiceApplication implements CommandLineRunner {
 
     private final StreamRunner streamRunner;
 
-    public TwitterToKafkaServiceApplication(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData,@Qualifier("mockkafka") StreamRunner streamRunner) {
+    private final StreamInitializer streamInitializer;
+
+    public TwitterToKafkaServiceApplication(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData, StreamRunner streamRunner,
+                                            StreamInitializer streamInitializer) {
         this.twitterToKafkaServiceConfigData = twitterToKafkaServiceConfigData;
         this.streamRunner = streamRunner;
+        this.streamInitializer = streamInitializer;
     }
 
 
@@ -39,6 +43,7 @@ public class TwitterToKafkaServiceApplication implements CommandLineRunner {
         LOG.info("App starts");
         LOG.info(Arrays.toString(twitterToKafkaServiceConfigData.getTwitterKeywords().toArray(new String[]{})));
         LOG.info(twitterToKafkaServiceConfigData.getWelcomeMessage());
+        streamInitializer.init(); //Creates the tweet and analytics topics before the first tweet is sent.
         streamRunner.start(); //Starts the stream runner when the application starts.
     }
 }
\ No newline at end of file
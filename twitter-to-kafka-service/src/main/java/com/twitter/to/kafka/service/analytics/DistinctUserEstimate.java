@@ -0,0 +1,12 @@
+package com.twitter.to.kafka.service.analytics;
+
+/**
+ * Estimated number of distinct users that tweeted about a keyword within a window.
+ *
+ * @param distinctUsers      estimate over this instance and every other instance publishing sketches
+ * @param localDistinctUsers estimate over the tweets ingested by this instance only
+ * @param remoteInstances    number of other instances whose sketches were merged
+ */
+public record DistinctUserEstimate(String keyword, long windowMs, long distinctUsers, long localDistinctUsers,
+                                   int remoteInstances) {
+}
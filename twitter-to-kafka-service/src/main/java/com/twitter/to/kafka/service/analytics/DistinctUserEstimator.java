@@ -0,0 +1,328 @@
+package com.twitter.to.kafka.service.analytics;
+
+import com.microservices.demo.config.AnalyticsConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import com.twitter.to.kafka.service.config.AnalyticsKafkaProducerConfig;
+import com.twitter.to.kafka.service.pipeline.BoundedRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Estimates the number of distinct users per matched keyword, and over all tweets as {@value #ALL_KEYWORD}, with
+ * one {@link HyperLogLog} of the user ids per keyword and pane.
+ * <p>
+ * Panes are aligned to multiples of distinct-users-pane-ms, so panes of different instances cover the same time
+ * and merge by their start. A window query merges the retained panes it covers, rounded up to whole panes, and the
+ * sketches other instances published to the compacted sketch topic. This instance publishes its current panes
+ * every sketch-publish-interval-ms, a closed pane once more when it closes, and a tombstone once a pane leaves
+ * the retention.
+ * <p>
+ * Ingest workers only put the tweet into a ring buffer; one estimator thread updates the sketches. A lock guards
+ * the sketches against the queries, held per drained batch rather than per tweet.
+ */
+@Component
+public class DistinctUserEstimator implements TweetAnalyticsStage {
+
+    public static final String ALL_KEYWORD = "*";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DistinctUserEstimator.class);
+
+    private static final String METRIC_PREFIX = "twitter.analytics.distinct.users.";
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    private static final long NO_PANE = Long.MIN_VALUE;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long THREAD_JOIN_TIMEOUT_MS = 5000;
+
+    private final AnalyticsConfigData analyticsConfigData;
+    private final KafkaTemplate<String, byte[]> sketchKafkaTemplate;
+    private final DistinctUserSketchReader distinctUserSketchReader;
+    private final ExecutionModel executionModel;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, HyperLogLog[]> sketches = new HashMap<>();
+    private final LongAdder droppedTweetCount = new LongAdder();
+    private final LongAdder publishedSketchCount = new LongAdder();
+    private final LongAdder failedSketchCount = new LongAdder();
+
+    private boolean enabled;
+    private int precision;
+    private long paneMs;
+    private long[] paneStartMs;
+    private int currentPane;
+    private long nextPublishMs;
+    private BoundedRingBuffer<TwitterAvroModel> tweets;
+    private Thread estimatorThread;
+    private volatile boolean running;
+
+    public DistinctUserEstimator(AnalyticsConfigData analyticsConfigData,
+                                 @Qualifier(AnalyticsKafkaProducerConfig.SKETCH_KAFKA_TEMPLATE)
+                                 KafkaTemplate<String, byte[]> sketchKafkaTemplate,
+                                 DistinctUserSketchReader distinctUserSketchReader,
+                                 ExecutionModel executionModel,
+                                 MeterRegistry meterRegistry) {
+        this.analyticsConfigData = analyticsConfigData;
+        this.sketchKafkaTemplate = sketchKafkaTemplate;
+        this.distinctUserSketchReader = distinctUserSketchReader;
+        this.executionModel = executionModel;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        enabled = Boolean.TRUE.equals(analyticsConfigData.getDistinctUsersEnabled());
+        if (!enabled) {
+            return;
+        }
+        precision = analyticsConfigData.getHllPrecision();
+        paneMs = analyticsConfigData.getDistinctUsersPaneMs();
+        int paneCount = (int) Math.max(1, analyticsConfigData.getDistinctUsersRetentionMs() / paneMs);
+        paneStartMs = new long[paneCount];
+        Arrays.fill(paneStartMs, NO_PANE);
+        paneStartMs[0] = alignedPaneStart(System.currentTimeMillis());
+        nextPublishMs = System.currentTimeMillis() + analyticsConfigData.getSketchPublishIntervalMs();
+        tweets = new BoundedRingBuffer<>(analyticsConfigData.getDistinctUsersBufferCapacity());
+
+        bindMetrics();
+        running = true;
+        estimatorThread = executionModel.startThread("distinct-user-estimator", this::update);
+        LOG.info("Started distinct user estimator with precision {}, {} panes of {} ms, instance id {}",
+                precision, paneCount, paneMs, analyticsConfigData.getInstanceId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (estimatorThread != null) {
+            try {
+                estimatorThread.join(THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Never blocks; the tweet is dropped and counted if the estimator falls behind.
+     */
+    @Override
+    public void offer(TwitterAvroModel twitterAvroModel) {
+        if (enabled && !tweets.offer(twitterAvroModel)) {
+            droppedTweetCount.increment();
+        }
+    }
+
+    /**
+     * @param keyword  a configured twitter keyword, case insensitive, or {@value #ALL_KEYWORD} for all tweets
+     * @param windowMs the window ending now, at most distinct-users-retention-ms
+     * @throws IllegalArgumentException if the window is not positive or longer than the retention
+     */
+    public DistinctUserEstimate estimate(String keyword, long windowMs) {
+        String normalizedKeyword = normalize(keyword);
+        long fromPaneStartMs = fromPaneStart(windowMs);
+        HyperLogLog merged = mergeLocal(normalizedKeyword, fromPaneStartMs);
+        long localDistinctUsers = merged.estimate();
+        int remoteInstances = distinctUserSketchReader.mergeInto(merged, normalizedKeyword, fromPaneStartMs);
+        return new DistinctUserEstimate(normalizedKeyword, windowMs, merged.estimate(), localDistinctUsers,
+                remoteInstances);
+    }
+
+    /**
+     * @return the merged sketch of the window over all instances, as written by {@link HyperLogLog#toBytes()}
+     * @throws IllegalArgumentException if the window is not positive or longer than the retention
+     */
+    public byte[] sketch(String keyword, long windowMs) {
+        String normalizedKeyword = normalize(keyword);
+        long fromPaneStartMs = fromPaneStart(windowMs);
+        HyperLogLog merged = mergeLocal(normalizedKeyword, fromPaneStartMs);
+        distinctUserSketchReader.mergeInto(merged, normalizedKeyword, fromPaneStartMs);
+        return merged.toBytes();
+    }
+
+    private void update() {
+        while (running) {
+            int drained = drain();
+            long nowMs = System.currentTimeMillis();
+            if (nowMs >= paneStartMs[currentPane] + paneMs) {
+                rotate(nowMs);
+            }
+            if (nowMs >= nextPublishMs) {
+                publish(currentPane);
+                nextPublishMs = nowMs + analyticsConfigData.getSketchPublishIntervalMs();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int drain() {
+        TwitterAvroModel tweet = tweets.poll();
+        if (tweet == null) {
+            return 0;
+        }
+        int drained = 0;
+        lock.lock();
+        try {
+            do {
+                long userId = tweet.getUserId();
+                sketchOf(ALL_KEYWORD, currentPane).add(userId);
+                List<String> matchedKeywords = tweet.getMatchedKeywords();
+                if (matchedKeywords != null) {
+                    for (int i = 0; i < matchedKeywords.size(); i++) {
+                        sketchOf(matchedKeywords.get(i), currentPane).add(userId);
+                    }
+                }
+                drained++;
+            } while (drained < DRAIN_BATCH_SIZE && (tweet = tweets.poll()) != null);
+        } finally {
+            lock.unlock();
+        }
+        return drained;
+    }
+
+    /**
+     * Publishes the closing pane a last time, then moves to the pane of the current time. Panes that are reused
+     * leave the retention, they are tombstoned on the topic and cleared.
+     */
+    private void rotate(long nowMs) {
+        publish(currentPane);
+        long currentStartMs = alignedPaneStart(nowMs);
+        List<String> tombstones = new ArrayList<>();
+        lock.lock();
+        try {
+            while (paneStartMs[currentPane] < currentStartMs) {
+                long nextStartMs = paneStartMs[currentPane] + paneMs;
+                currentPane = (currentPane + 1) % paneStartMs.length;
+                long expiredStartMs = paneStartMs[currentPane];
+                for (Map.Entry<String, HyperLogLog[]> entry : sketches.entrySet()) {
+                    HyperLogLog sketch = entry.getValue()[currentPane];
+                    if (sketch != null && expiredStartMs != NO_PANE) {
+                        tombstones.add(new SketchKey(analyticsConfigData.getInstanceId(), entry.getKey(),
+                                expiredStartMs).format());
+                        sketch.clear();
+                    }
+                }
+                // after a long pause skip directly to the current pane instead of walking every missed one
+                paneStartMs[currentPane] = Math.max(nextStartMs, currentStartMs - (paneStartMs.length - 1) * paneMs);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (String key : tombstones) {
+            send(key, null);
+        }
+    }
+
+    private void publish(int pane) {
+        Map<String, byte[]> snapshots = new HashMap<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, HyperLogLog[]> entry : sketches.entrySet()) {
+                HyperLogLog sketch = entry.getValue()[pane];
+                if (sketch != null && !sketch.isEmpty()) {
+                    snapshots.put(new SketchKey(analyticsConfigData.getInstanceId(), entry.getKey(),
+                            paneStartMs[pane]).format(), sketch.toBytes());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        snapshots.forEach(this::send);
+    }
+
+    private void send(String key, byte[] value) {
+        try {
+            sketchKafkaTemplate.send(analyticsConfigData.getSketchTopicName(), key, value).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    publishedSketchCount.increment();
+                } else {
+                    failedSketchCount.increment();
+                    LOG.warn("Could not publish distinct user sketch {}: {}", key, ex.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            failedSketchCount.increment();
+            LOG.warn("Could not publish distinct user sketch {}: {}", key, e.getMessage());
+        }
+    }
+
+    private HyperLogLog mergeLocal(String keyword, long fromPaneStartMs) {
+        HyperLogLog merged = new HyperLogLog(precision);
+        lock.lock();
+        try {
+            HyperLogLog[] keywordSketches = sketches.get(keyword);
+            if (keywordSketches != null) {
+                for (int pane = 0; pane < keywordSketches.length; pane++) {
+                    if (keywordSketches[pane] != null && paneStartMs[pane] != NO_PANE
+                            && paneStartMs[pane] >= fromPaneStartMs) {
+                        merged.merge(keywordSketches[pane]);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return merged;
+    }
+
+    private HyperLogLog sketchOf(String keyword, int pane) {
+        HyperLogLog[] keywordSketches = sketches.computeIfAbsent(keyword, k -> new HyperLogLog[paneStartMs.length]);
+        HyperLogLog sketch = keywordSketches[pane];
+        if (sketch == null) {
+            sketch = new HyperLogLog(precision);
+            keywordSketches[pane] = sketch;
+        }
+        return sketch;
+    }
+
+    private long fromPaneStart(long windowMs) {
+        if (windowMs <= 0 || windowMs > analyticsConfigData.getDistinctUsersRetentionMs()) {
+            throw new IllegalArgumentException("Window must be between 1 and " +
+                    analyticsConfigData.getDistinctUsersRetentionMs() + " ms, was " + windowMs);
+        }
+        long panes = (windowMs + paneMs - 1) / paneMs;
+        return alignedPaneStart(System.currentTimeMillis()) - (panes - 1) * paneMs;
+    }
+
+    private long alignedPaneStart(long timeMs) {
+        return timeMs - Math.floorMod(timeMs, paneMs);
+    }
+
+    private static String normalize(String keyword) {
+        return keyword == null || keyword.isBlank() ? ALL_KEYWORD : keyword.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void bindMetrics() {
+        FunctionCounter.builder(METRIC_PREFIX + "tweets.dropped", droppedTweetCount, LongAdder::sum)
+                .description("Tweets not added to the sketches because the estimator buffer was full")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "sketches.published", publishedSketchCount, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "sketches.failed", failedSketchCount, LongAdder::sum)
+                .register(meterRegistry);
+    }
+}
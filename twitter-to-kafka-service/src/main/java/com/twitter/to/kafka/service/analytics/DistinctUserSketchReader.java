@@ -0,0 +1,203 @@
+package com.twitter.to.kafka.service.analytics;
+
+import com.microservices.demo.config.AnalyticsConfigData;
+import com.microservices.demo.config.KafkaConfigData;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the distinct user sketches of the other service instances from the compacted sketch topic, so
+ * {@link DistinctUserEstimator} can merge them into its estimates. Every instance reads all partitions from the
+ * beginning without a consumer group; compaction keeps that to the latest version of every retained pane.
+ * Sketches of this instance are skipped, and panes older than the retention are evicted even without a tombstone,
+ * since an instance that went away never sends one.
+ */
+@Component
+public class DistinctUserSketchReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DistinctUserSketchReader.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration METADATA_TIMEOUT = Duration.ofSeconds(10);
+    private static final long RETRY_BACKOFF_MS = 5000;
+    private static final long THREAD_JOIN_TIMEOUT_MS = 5000;
+
+    private final AnalyticsConfigData analyticsConfigData;
+    private final KafkaConfigData kafkaConfigData;
+    private final ExecutionModel executionModel;
+    private final Map<SketchKey, HyperLogLog> remoteSketches = new ConcurrentHashMap<>();
+
+    private Thread readerThread;
+    private volatile KafkaConsumer<String, byte[]> consumer;
+    private volatile boolean running;
+
+    public DistinctUserSketchReader(AnalyticsConfigData analyticsConfigData, KafkaConfigData kafkaConfigData,
+                                    ExecutionModel executionModel) {
+        this.analyticsConfigData = analyticsConfigData;
+        this.kafkaConfigData = kafkaConfigData;
+        this.executionModel = executionModel;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(analyticsConfigData.getDistinctUsersEnabled())) {
+            return;
+        }
+        running = true;
+        readerThread = executionModel.startThread("distinct-user-sketch-reader", this::read);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        KafkaConsumer<String, byte[]> currentConsumer = consumer;
+        if (currentConsumer != null) {
+            currentConsumer.wakeup();
+        }
+        if (readerThread != null) {
+            try {
+                readerThread.join(THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Merges the remote sketches of the keyword whose pane starts at or after the given time into the target.
+     *
+     * @return the number of remote instances that contributed a sketch
+     */
+    int mergeInto(HyperLogLog target, String keyword, long fromPaneStartMs) {
+        Set<String> instances = new HashSet<>();
+        remoteSketches.forEach((key, sketch) -> {
+            if (key.paneStartMs() >= fromPaneStartMs && key.keyword().equals(keyword)
+                    && sketch.getPrecision() == target.getPrecision()) {
+                target.merge(sketch);
+                instances.add(key.instanceId());
+            }
+        });
+        return instances.size();
+    }
+
+    private void read() {
+        while (running) {
+            try (KafkaConsumer<String, byte[]> kafkaConsumer = new KafkaConsumer<>(consumerConfig())) {
+                consumer = kafkaConsumer;
+                if (assignAllPartitions(kafkaConsumer)) {
+                    poll(kafkaConsumer);
+                } else {
+                    sleep(RETRY_BACKOFF_MS);
+                }
+            } catch (WakeupException e) {
+                // stop() was called
+            } catch (KafkaException e) {
+                LOG.warn("Reading distinct user sketches from topic {} failed, retrying in {} ms: {}",
+                        analyticsConfigData.getSketchTopicName(), RETRY_BACKOFF_MS, e.getMessage());
+                sleep(RETRY_BACKOFF_MS);
+            } finally {
+                consumer = null;
+            }
+        }
+    }
+
+    private boolean assignAllPartitions(KafkaConsumer<String, byte[]> kafkaConsumer) {
+        List<PartitionInfo> partitions = kafkaConsumer.partitionsFor(analyticsConfigData.getSketchTopicName(),
+                METADATA_TIMEOUT);
+        if (partitions == null || partitions.isEmpty()) {
+            LOG.info("Sketch topic {} does not exist yet", analyticsConfigData.getSketchTopicName());
+            return false;
+        }
+        List<TopicPartition> topicPartitions = partitions.stream()
+                .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                .toList();
+        kafkaConsumer.assign(topicPartitions);
+        kafkaConsumer.seekToBeginning(topicPartitions);
+        LOG.info("Reading distinct user sketches from {} partition(s) of topic {}", topicPartitions.size(),
+                analyticsConfigData.getSketchTopicName());
+        return true;
+    }
+
+    private void poll(KafkaConsumer<String, byte[]> kafkaConsumer) {
+        long nextEvictionMs = System.currentTimeMillis() + analyticsConfigData.getDistinctUsersPaneMs();
+        while (running) {
+            for (ConsumerRecord<String, byte[]> record : kafkaConsumer.poll(POLL_TIMEOUT)) {
+                apply(record);
+            }
+            long nowMs = System.currentTimeMillis();
+            if (nowMs >= nextEvictionMs) {
+                evictExpired(nowMs);
+                nextEvictionMs = nowMs + analyticsConfigData.getDistinctUsersPaneMs();
+            }
+        }
+    }
+
+    private void apply(ConsumerRecord<String, byte[]> record) {
+        SketchKey key = SketchKey.parse(record.key());
+        if (key == null || key.instanceId().equals(analyticsConfigData.getInstanceId())) {
+            return;
+        }
+        if (record.value() == null) {
+            remoteSketches.remove(key);
+            return;
+        }
+        if (key.paneStartMs() < oldestRetainedPaneStartMs(System.currentTimeMillis())) {
+            return;
+        }
+        try {
+            remoteSketches.put(key, HyperLogLog.fromBytes(record.value()));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Skipping sketch {} at offset {}: {}", record.key(), record.offset(), e.getMessage());
+        }
+    }
+
+    private void evictExpired(long nowMs) {
+        long oldestPaneStartMs = oldestRetainedPaneStartMs(nowMs);
+        remoteSketches.keySet().removeIf(key -> key.paneStartMs() < oldestPaneStartMs);
+    }
+
+    private long oldestRetainedPaneStartMs(long nowMs) {
+        return nowMs - analyticsConfigData.getDistinctUsersRetentionMs() - analyticsConfigData.getDistinctUsersPaneMs();
+    }
+
+    private Map<String, Object> consumerConfig() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaConfigData.getBootstrapServers());
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "distinct-user-sketch-reader-" + analyticsConfigData.getInstanceId());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return props;
+    }
+
+    private void sleep(long sleepMs) {
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.twitter.to.kafka.service.analytics;
+
+/**
+ * Key of a distinct user sketch on the compacted sketch topic: one record per instance, keyword and pane, so the
+ * latest version of a pane replaces the earlier ones and a tombstone removes it once it leaves the retention.
+ * Formatted as {@code instanceId|keyword|paneStartMs}.
+ */
+record SketchKey(String instanceId, String keyword, long paneStartMs) {
+
+    private static final char SEPARATOR = '|';
+
+    String format() {
+        return instanceId + SEPARATOR + keyword + SEPARATOR + paneStartMs;
+    }
+
+    /**
+     * @return the parsed key, null if the key does not have the expected format
+     */
+    static SketchKey parse(String key) {
+        if (key == null) {
+            return null;
+        }
+        int first = key.indexOf(SEPARATOR);
+        int last = key.lastIndexOf(SEPARATOR);
+        if (first <= 0 || last <= first) {
+            return null;
+        }
+        try {
+            return new SketchKey(key.substring(0, first), key.substring(first + 1, last),
+                    Long.parseLong(key.substring(last + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
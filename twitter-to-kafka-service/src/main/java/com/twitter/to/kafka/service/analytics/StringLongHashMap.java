@@ -0,0 +1,170 @@
+package com.twitter.to.kafka.service.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Map from lower case words to primitive long counts with open addressing and linear probing, sized once for a
+ * maximum number of entries.
+ * <p>
+ * Words are looked up directly from a range of the tweet text, folded to lower case while hashing and comparing,
+ * so counting a word that is present already allocates nothing; only the first occurrence creates the key string.
+ * Not thread safe; {@link #clear()} keeps the table so a closed window is reused without allocation.
+ */
+final class StringLongHashMap {
+
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private final String[] keys;
+    private final long[] values;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    StringLongHashMap(int maxSize) {
+        int capacity = Integer.highestOneBit((int) Math.min(1 << 30, Math.ceil(maxSize / MAX_LOAD_FACTOR)) - 1) << 1;
+        this.keys = new String[Math.max(2, capacity)];
+        this.values = new long[keys.length];
+        this.mask = keys.length - 1;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds to the count of the word {@code text[start, end)}, folded to lower case.
+     *
+     * @return false if the word is new and the map is full, the count is not kept then
+     */
+    boolean addTo(CharSequence text, int start, int end, long delta) {
+        int slot = slot(hash(text, start, end));
+        String current;
+        while ((current = keys[slot]) != null) {
+            if (equalsFolded(current, text, start, end)) {
+                values[slot] += delta;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxSize) {
+            return false;
+        }
+        keys[slot] = fold(text, start, end);
+        values[slot] = delta;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds to the count of a word that is lower case already, used to merge one map into another. The key string
+     * is shared, not copied.
+     *
+     * @return false if the word is new and the map is full
+     */
+    boolean addTo(String word, long delta) {
+        int slot = slot(hash(word, 0, word.length()));
+        String current;
+        while ((current = keys[slot]) != null) {
+            if (current.equals(word)) {
+                values[slot] += delta;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxSize) {
+            return false;
+        }
+        keys[slot] = word;
+        values[slot] = delta;
+        size++;
+        return true;
+    }
+
+    boolean containsKey(CharSequence text, int start, int end) {
+        int slot = slot(hash(text, start, end));
+        String current;
+        while ((current = keys[slot]) != null) {
+            if (equalsFolded(current, text, start, end)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds all counts of the other map to this one.
+     *
+     * @return the number of words that were dropped because this map is full
+     */
+    int mergeFrom(StringLongHashMap other) {
+        int dropped = 0;
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            String word = other.keys[slot];
+            if (word != null && !addTo(word, other.values[slot])) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * @return the table length, slots {@code 0 .. capacity() - 1} can be read with {@link #keyAt(int)}
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the word in the slot, null if the slot is empty
+     */
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long valueAt(int slot) {
+        return values[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, 0L);
+            size = 0;
+        }
+    }
+
+    private int slot(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean equalsFolded(String key, CharSequence text, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fold(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,12 @@
+package com.twitter.to.kafka.service.analytics;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+/**
+ * In-process analytics fed by the ingest workers with every tweet that is sent to Kafka. Implementations run on
+ * their own threads; {@link #offer(TwitterAvroModel)} must not block and must not modify the model, which is
+ * serialized by the producer at the same time.
+ */
+public interface TweetAnalyticsStage {
+    void offer(TwitterAvroModel twitterAvroModel);
+}
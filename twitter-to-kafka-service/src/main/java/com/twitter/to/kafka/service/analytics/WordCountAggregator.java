@@ -0,0 +1,347 @@
+package com.twitter.to.kafka.service.analytics;
+
+import com.microservices.demo.config.AnalyticsConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAnalyticsAvroModel;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import com.twitter.to.kafka.service.config.AnalyticsKafkaProducerConfig;
+import com.twitter.to.kafka.service.pipeline.BoundedRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Counts the words of the ingested tweets in tumbling and sliding windows and publishes the top words of every
+ * closed window as {@link TwitterAnalyticsAvroModel} records, keyed by the word, to the analytics topic.
+ * <p>
+ * Ingest workers {@link #offer(TwitterAvroModel)} tweets, which only puts the text into a ring buffer; one
+ * aggregator thread tokenizes and owns all counts, so no counter is shared or boxed. Counts go into the pane of
+ * the current slide interval.
+ * When a pane closes it is merged into the tumbling window, the sliding window is summed from the retained panes,
+ * and the oldest pane is cleared for reuse. Records carry a {@code window-type} and {@code window-size-ms} header
+ * and the window end as their timestamp and createdAt.
+ */
+@Component
+public class WordCountAggregator implements TweetAnalyticsStage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WordCountAggregator.class);
+
+    private static final String METRIC_PREFIX = "twitter.analytics.";
+    private static final String WINDOW_TYPE_HEADER = "window-type";
+    private static final String WINDOW_SIZE_HEADER = "window-size-ms";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long THREAD_JOIN_TIMEOUT_MS = 5000;
+
+    private final AnalyticsConfigData analyticsConfigData;
+    private final KafkaTemplate<String, TwitterAnalyticsAvroModel> analyticsKafkaTemplate;
+    private final ExecutionModel executionModel;
+    private final MeterRegistry meterRegistry;
+
+    private final LongAdder droppedTweetCount = new LongAdder();
+    private final LongAdder overflowWordCount = new LongAdder();
+    private final LongAdder emittedRecordCount = new LongAdder();
+    private final LongAdder failedRecordCount = new LongAdder();
+
+    private boolean enabled;
+    private BoundedRingBuffer<String> texts;
+    private StringLongHashMap[] panes;
+    private StringLongHashMap tumblingCounts;
+    private StringLongHashMap slidingCounts;
+    private StringLongHashMap stopWords;
+    private int[] topSlots;
+    private int currentPane;
+    private int closedPanes;
+    private int panesPerTumblingWindow;
+    private long slideMs;
+    private long paneEndMs;
+    private int minWordLength;
+    private int maxWordLength;
+    private Thread aggregatorThread;
+    private volatile boolean running;
+
+    public WordCountAggregator(AnalyticsConfigData analyticsConfigData,
+                               @Qualifier(AnalyticsKafkaProducerConfig.ANALYTICS_KAFKA_TEMPLATE)
+                               KafkaTemplate<String, TwitterAnalyticsAvroModel> analyticsKafkaTemplate,
+                               ExecutionModel executionModel,
+                               MeterRegistry meterRegistry) {
+        this.analyticsConfigData = analyticsConfigData;
+        this.analyticsKafkaTemplate = analyticsKafkaTemplate;
+        this.executionModel = executionModel;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        enabled = Boolean.TRUE.equals(analyticsConfigData.getEnabled());
+        if (!enabled) {
+            return;
+        }
+        initWindows(System.currentTimeMillis());
+        bindMetrics();
+        running = true;
+        aggregatorThread = executionModel.startThread("word-count-aggregator", this::aggregate);
+        LOG.info("Started word count aggregator with {} ms slide, {} ms sliding and {} ms tumbling window to topic {}",
+                slideMs, panes.length * slideMs, panesPerTumblingWindow * slideMs,
+                analyticsConfigData.getTopicName());
+    }
+
+    /**
+     * Allocates the panes and counts, the first pane ends at the slide boundary after nowMs.
+     */
+    void initWindows(long nowMs) {
+        slideMs = analyticsConfigData.getSlideMs();
+        int panesPerSlidingWindow = (int) Math.max(1, analyticsConfigData.getSlidingWindowMs() / slideMs);
+        panesPerTumblingWindow = (int) Math.max(1, analyticsConfigData.getTumblingWindowMs() / slideMs);
+        minWordLength = analyticsConfigData.getMinWordLength();
+        maxWordLength = analyticsConfigData.getMaxWordLength();
+        int maxDistinctWords = analyticsConfigData.getMaxDistinctWords();
+
+        texts = new BoundedRingBuffer<>(analyticsConfigData.getBufferCapacity());
+        panes = new StringLongHashMap[panesPerSlidingWindow];
+        for (int i = 0; i < panes.length; i++) {
+            panes[i] = new StringLongHashMap(maxDistinctWords);
+        }
+        tumblingCounts = new StringLongHashMap(maxDistinctWords);
+        slidingCounts = new StringLongHashMap(maxDistinctWords);
+        stopWords = createStopWords(analyticsConfigData.getStopWords());
+        topSlots = new int[analyticsConfigData.getTopWords()];
+        paneEndMs = (nowMs / slideMs + 1) * slideMs;
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (aggregatorThread != null) {
+            try {
+                aggregatorThread.join(THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Never blocks; the text is dropped and counted if the aggregator falls behind.
+     */
+    @Override
+    public void offer(TwitterAvroModel twitterAvroModel) {
+        String text = twitterAvroModel.getText();
+        if (!enabled || text == null) {
+            return;
+        }
+        if (!texts.offer(text)) {
+            droppedTweetCount.increment();
+        }
+    }
+
+    private void aggregate() {
+        while (running) {
+            String text = texts.poll();
+            if (text != null) {
+                countWords(text);
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            advanceTo(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Closes every pane that ended at or before nowMs and emits its windows.
+     */
+    void advanceTo(long nowMs) {
+        while (nowMs >= paneEndMs) {
+            closePane(paneEndMs);
+            paneEndMs += slideMs;
+        }
+    }
+
+    void countWords(String text) {
+        StringLongHashMap pane = panes[currentPane];
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                countWord(pane, text, start, i);
+                start = -1;
+            }
+        }
+    }
+
+    private void countWord(StringLongHashMap pane, String text, int start, int end) {
+        int wordLength = end - start;
+        if (wordLength < minWordLength || wordLength > maxWordLength || stopWords.containsKey(text, start, end)) {
+            return;
+        }
+        if (!pane.addTo(text, start, end, 1)) {
+            overflowWordCount.increment();
+        }
+    }
+
+    private void closePane(long windowEndMs) {
+        StringLongHashMap pane = panes[currentPane];
+        overflowWordCount.add(tumblingCounts.mergeFrom(pane));
+        closedPanes++;
+
+        slidingCounts.clear();
+        for (StringLongHashMap retainedPane : panes) {
+            overflowWordCount.add(slidingCounts.mergeFrom(retainedPane));
+        }
+        emitTopWords(slidingCounts, "sliding", panes.length * slideMs, windowEndMs);
+
+        if (closedPanes % panesPerTumblingWindow == 0) {
+            emitTopWords(tumblingCounts, "tumbling", panesPerTumblingWindow * slideMs, windowEndMs);
+            tumblingCounts.clear();
+        }
+
+        currentPane = (currentPane + 1) % panes.length;
+        panes[currentPane].clear();
+    }
+
+    private void emitTopWords(StringLongHashMap counts, String windowType, long windowSizeMs, long windowEndMs) {
+        int topCount = selectTopSlots(counts);
+        if (topCount == 0) {
+            return;
+        }
+        byte[] windowTypeHeader = windowType.getBytes(StandardCharsets.UTF_8);
+        byte[] windowSizeHeader = Long.toString(windowSizeMs).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < topCount; i++) {
+            int slot = topSlots[i];
+            String word = counts.keyAt(slot);
+            TwitterAnalyticsAvroModel model = TwitterAnalyticsAvroModel.newBuilder()
+                    .setWord(word)
+                    .setWordCount(counts.valueAt(slot))
+                    .setCreatedAt(windowEndMs)
+                    .build();
+            ProducerRecord<String, TwitterAnalyticsAvroModel> record = new ProducerRecord<>(
+                    analyticsConfigData.getTopicName(), null, windowEndMs, word, model,
+                    List.of(new RecordHeader(WINDOW_TYPE_HEADER, windowTypeHeader),
+                            new RecordHeader(WINDOW_SIZE_HEADER, windowSizeHeader)));
+            send(record);
+        }
+        LOG.debug("Emitted top {} word(s) of the {} ms {} window ending at {}", topCount, windowSizeMs, windowType,
+                windowEndMs);
+    }
+
+    private void send(ProducerRecord<String, TwitterAnalyticsAvroModel> record) {
+        try {
+            analyticsKafkaTemplate.send(record).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    emittedRecordCount.increment();
+                } else {
+                    failedRecordCount.increment();
+                    LOG.warn("Could not send word count of {} to topic {}: {}", record.key(), record.topic(),
+                            ex.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            failedRecordCount.increment();
+            LOG.warn("Could not send word count of {} to topic {}: {}", record.key(), record.topic(), e.getMessage());
+        }
+    }
+
+    /**
+     * Selects the slots of the highest counts with a min heap over {@link #topSlots}, then sorts them by count
+     * in descending order.
+     *
+     * @return the number of selected slots, less than the configured top words if the window has fewer words
+     */
+    private int selectTopSlots(StringLongHashMap counts) {
+        int heapSize = 0;
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (counts.keyAt(slot) == null) {
+                continue;
+            }
+            if (heapSize < topSlots.length) {
+                topSlots[heapSize] = slot;
+                siftUp(counts, heapSize++);
+            } else if (counts.valueAt(slot) > counts.valueAt(topSlots[0])) {
+                topSlots[0] = slot;
+                siftDown(counts, 0, heapSize);
+            }
+        }
+        for (int end = heapSize - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(counts, 0, end);
+        }
+        return heapSize;
+    }
+
+    private void siftUp(StringLongHashMap counts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts.valueAt(topSlots[index]) >= counts.valueAt(topSlots[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(StringLongHashMap counts, int index, int heapSize) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && counts.valueAt(topSlots[left]) < counts.valueAt(topSlots[smallest])) {
+                smallest = left;
+            }
+            if (right < heapSize && counts.valueAt(topSlots[right]) < counts.valueAt(topSlots[smallest])) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int slot = topSlots[i];
+        topSlots[i] = topSlots[j];
+        topSlots[j] = slot;
+    }
+
+    private static StringLongHashMap createStopWords(List<String> words) {
+        List<String> stopWordList = words == null ? List.of() : words;
+        StringLongHashMap stopWordMap = new StringLongHashMap(Math.max(1, stopWordList.size()));
+        for (String word : stopWordList) {
+            if (word != null && !word.isBlank()) {
+                String trimmed = word.trim();
+                stopWordMap.addTo(trimmed, 0, trimmed.length(), 1);
+            }
+        }
+        return stopWordMap;
+    }
+
+    private void bindMetrics() {
+        FunctionCounter.builder(METRIC_PREFIX + "tweets.dropped", droppedTweetCount, LongAdder::sum)
+                .description("Tweets not counted because the aggregator buffer was full")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "words.overflow", overflowWordCount, LongAdder::sum)
+                .description("Words not counted because a window reached max-distinct-words")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "records.emitted", emittedRecordCount, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "records.failed", failedRecordCount, LongAdder::sum)
+                .register(meterRegistry);
+    }
+}
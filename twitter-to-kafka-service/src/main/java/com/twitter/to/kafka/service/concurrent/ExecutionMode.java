@@ -0,0 +1,15 @@
+package com.twitter.to.kafka.service.concurrent;
+
+/**
+ * Kind of threads the stream sources and the ingest pipeline stages run on.
+ */
+public enum ExecutionMode {
+    /**
+     * One platform thread per source and per worker.
+     */
+    PLATFORM,
+    /**
+     * Virtual threads, so blocking reads and many concurrent sources do not need a sized thread pool.
+     */
+    VIRTUAL
+}
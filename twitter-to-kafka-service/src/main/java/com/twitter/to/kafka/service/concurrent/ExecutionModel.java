@@ -0,0 +1,75 @@
+package com.twitter.to.kafka.service.concurrent;
+
+import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the named threads of stream runners and pipeline stages according to
+ * twitter-to-kafka-service.execution-mode. Every thread gets a name prefix so sources and stages can be told
+ * apart in thread dumps, whichever mode is active.
+ */
+@Component
+public class ExecutionModel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionModel.class);
+
+    private final ExecutionMode executionMode;
+
+    public ExecutionModel(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData) {
+        String configuredMode = twitterToKafkaServiceConfigData.getExecutionMode();
+        this.executionMode = configuredMode == null ? ExecutionMode.PLATFORM :
+                ExecutionMode.valueOf(configuredMode.trim().toUpperCase());
+        LOG.info("Stream sources and ingest stages run on {} threads", executionMode);
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @param namePrefix prefix of the thread names, a running number is appended
+     * @return a factory for long running source or stage threads
+     */
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return Thread.ofVirtual().name(namePrefix + "-", 0).factory();
+        }
+        return Thread.ofPlatform().name(namePrefix + "-", 0).factory();
+    }
+
+    /**
+     * Creates and starts a single named thread.
+     */
+    public Thread startThread(String name, Runnable task) {
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return Thread.ofVirtual().name(name).start(task);
+        }
+        return Thread.ofPlatform().name(name).start(task);
+    }
+
+    /**
+     * @return an executor with a new thread per task, used for sources that hold a thread while they run
+     */
+    public ExecutorService newTaskExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+    }
+
+    /**
+     * Executor for short completion callbacks. In virtual mode every callback gets its own virtual thread so
+     * the Kafka sender thread is released immediately; in platform mode callbacks run inline on the thread
+     * that completes the send, as they did before.
+     */
+    public Executor callbackExecutor(String namePrefix) {
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+        }
+        return Runnable::run;
+    }
+}
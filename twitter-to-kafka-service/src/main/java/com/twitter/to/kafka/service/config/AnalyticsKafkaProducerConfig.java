@@ -0,0 +1,78 @@
+package com.twitter.to.kafka.service.config;
+
+import com.microservices.demo.kafka.avro.model.TwitterAnalyticsAvroModel;
+import com.microservices.demo.kafka.producer.config.KafkaProducerConfig;
+import com.microservices.demo.kafka.producer.partitioner.HotKeyPartitioner;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Producers for the in-process analytics: word counts as Avro keyed by the word, and distinct user sketches as
+ * raw bytes. They share the tweet producer settings, with the key and value serializers replaced and the user id
+ * based hot key partitioner left out. The templates are injected by name, the tweet template stays the only one
+ * matching {@code KafkaTemplate<Long, TwitterAvroModel>}.
+ */
+@Configuration
+public class AnalyticsKafkaProducerConfig {
+
+    public static final String ANALYTICS_KAFKA_TEMPLATE = "analyticsKafkaTemplate";
+    public static final String SKETCH_KAFKA_TEMPLATE = "sketchKafkaTemplate";
+
+    private final KafkaProducerConfig<?, ?> kafkaProducerConfig;
+    private final MeterRegistry meterRegistry;
+
+    public AnalyticsKafkaProducerConfig(KafkaProducerConfig<?, ?> kafkaProducerConfig, MeterRegistry meterRegistry) {
+        this.kafkaProducerConfig = kafkaProducerConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public ProducerFactory<String, TwitterAnalyticsAvroModel> analyticsProducerFactory() {
+        Map<String, Object> props = stringKeyedProducerConfig();
+        // the configured value serializer may be specialized for TwitterAvroModel
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        DefaultKafkaProducerFactory<String, TwitterAnalyticsAvroModel> producerFactory =
+                new DefaultKafkaProducerFactory<>(props);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    @Bean(name = ANALYTICS_KAFKA_TEMPLATE)
+    public KafkaTemplate<String, TwitterAnalyticsAvroModel> analyticsKafkaTemplate() {
+        return new KafkaTemplate<>(analyticsProducerFactory());
+    }
+
+    @Bean
+    public ProducerFactory<String, byte[]> sketchProducerFactory() {
+        Map<String, Object> props = stringKeyedProducerConfig();
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        DefaultKafkaProducerFactory<String, byte[]> producerFactory = new DefaultKafkaProducerFactory<>(props);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    @Bean(name = SKETCH_KAFKA_TEMPLATE)
+    public KafkaTemplate<String, byte[]> sketchKafkaTemplate() {
+        return new KafkaTemplate<>(sketchProducerFactory());
+    }
+
+    private Map<String, Object> stringKeyedProducerConfig() {
+        Map<String, Object> props = new HashMap<>(kafkaProducerConfig.producerConfig());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.remove(ProducerConfig.PARTITIONER_CLASS_CONFIG);
+        props.remove(HotKeyPartitioner.STRATEGY_CONFIG);
+        return props;
+    }
+}
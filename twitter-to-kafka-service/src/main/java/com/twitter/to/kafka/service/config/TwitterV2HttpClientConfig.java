@@ -0,0 +1,66 @@
+package com.twitter.to.kafka.service.config;
+
+import com.microservices.demo.config.TwitterV2HttpClientConfigData;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@ConditionalOnExpression("${twitter-to-kafka-service.enable-v2-tweets} && not ${twitter-to-kafka-service.enable-mock-tweets}" +
+        " && not ${twitter-to-kafka-service.enable-replay-tweets:false}")
+public class TwitterV2HttpClientConfig {
+
+    private static final String CONNECTION_POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_TIMEOUT_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private final TwitterV2HttpClientConfigData twitterV2HttpClientConfigData;
+
+    public TwitterV2HttpClientConfig(TwitterV2HttpClientConfigData twitterV2HttpClientConfigData) {
+        this.twitterV2HttpClientConfigData = twitterV2HttpClientConfigData;
+    }
+
+    /**
+     * Single NIO based client shared by the stream and the rule calls. The JDK client pools and keeps alive its
+     * connections itself; pool size and keep-alive are JDK system properties, so they are only set here when
+     * they were not given on the command line, and before the first client is built.
+     *
+     * @return the HTTP client used for every call to the Twitter v2 API
+     */
+    @Bean(destroyMethod = "")
+    public HttpClient twitterV2HttpClient() {
+        setIfAbsent(CONNECTION_POOL_SIZE_PROPERTY, twitterV2HttpClientConfigData.getConnectionPoolSize());
+        setIfAbsent(KEEP_ALIVE_TIMEOUT_PROPERTY, twitterV2HttpClientConfigData.getKeepAliveTimeoutSeconds());
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(twitterV2HttpClientConfigData.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(twitterV2HttpClientExecutor())
+                .build();
+    }
+
+    /**
+     * Runs the client's response handling, named so its threads are recognizable in thread dumps.
+     *
+     * @return the executor of the Twitter v2 HTTP client
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService twitterV2HttpClientExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(twitterV2HttpClientConfigData.getExecutorThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "twitter-v2-http-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void setIfAbsent(String property, Number value) {
+        if (value != null && System.getProperty(property) == null) {
+            System.setProperty(property, String.valueOf(value));
+        }
+    }
+}
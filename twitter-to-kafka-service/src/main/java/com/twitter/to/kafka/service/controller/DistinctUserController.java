@@ -0,0 +1,58 @@
+package com.twitter.to.kafka.service.controller;
+
+import com.twitter.to.kafka.service.analytics.DistinctUserEstimate;
+import com.twitter.to.kafka.service.analytics.DistinctUserEstimator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Distinct users per keyword and window, for example
+ * {@code GET /analytics/distinct-users?keyword=kafka&windowMs=300000}. {@code /sketch} returns the merged
+ * HyperLogLog itself, so callers can merge windows or services on their side.
+ */
+@RestController
+@RequestMapping("/analytics/distinct-users")
+public class DistinctUserController {
+
+    private static final String DEFAULT_WINDOW_MS = "300000";
+
+    private final DistinctUserEstimator distinctUserEstimator;
+
+    public DistinctUserController(DistinctUserEstimator distinctUserEstimator) {
+        this.distinctUserEstimator = distinctUserEstimator;
+    }
+
+    @GetMapping
+    public DistinctUserEstimate getDistinctUsers(
+            @RequestParam(defaultValue = DistinctUserEstimator.ALL_KEYWORD) String keyword,
+            @RequestParam(defaultValue = DEFAULT_WINDOW_MS) long windowMs) {
+        checkEnabled();
+        try {
+            return distinctUserEstimator.estimate(keyword, windowMs);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping(value = "/sketch", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public byte[] getSketch(@RequestParam(defaultValue = DistinctUserEstimator.ALL_KEYWORD) String keyword,
+                            @RequestParam(defaultValue = DEFAULT_WINDOW_MS) long windowMs) {
+        checkEnabled();
+        try {
+            return distinctUserEstimator.sketch(keyword, windowMs);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private void checkEnabled() {
+        if (!distinctUserEstimator.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Distinct user estimation is disabled");
+        }
+    }
+}
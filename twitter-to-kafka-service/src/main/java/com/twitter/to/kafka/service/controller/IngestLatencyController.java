@@ -0,0 +1,50 @@
+package com.twitter.to.kafka.service.controller;
+
+import com.microservices.demo.kafka.producer.tracing.StageLatency;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Count, mean, p50, p99, p999 and max per ingest stage in microseconds, {@code GET /ingest/latency}.
+ * {@code DELETE /ingest/latency} starts the histograms over, e.g. after the warm-up of a load test.
+ */
+@RestController
+@RequestMapping("/ingest/latency")
+public class IngestLatencyController {
+
+    private final StageLatencyRecorder stageLatencyRecorder;
+
+    public IngestLatencyController(StageLatencyRecorder stageLatencyRecorder) {
+        this.stageLatencyRecorder = stageLatencyRecorder;
+    }
+
+    @GetMapping
+    public IngestLatencyReport getLatencies() {
+        checkEnabled();
+        return new IngestLatencyReport(stageLatencyRecorder.getSinceEpochMs(), stageLatencyRecorder.snapshot());
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        checkEnabled();
+        stageLatencyRecorder.reset();
+    }
+
+    private void checkEnabled() {
+        if (!stageLatencyRecorder.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Latency tracing is disabled");
+        }
+    }
+
+    public record IngestLatencyReport(long sinceEpochMs, List<StageLatency> stages) {
+    }
+}
@@ -0,0 +1,254 @@
+package com.twitter.to.kafka.service.decoder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the newline delimited JSON of the Twitter v2 filtered stream straight into {@link TwitterAvroModel}.
+ * <p>
+ * A single Jackson token parser walks the entity stream once. Only the fields the Avro model needs are read
+ * ({@code data.id}, {@code data.text}, {@code data.author_id}, {@code data.created_at}), everything else is
+ * skipped without being materialized. Ids and timestamps are parsed from the parser's character buffer, so the
+ * tweet text is the only string created per tweet. Keep-alive newlines between messages are plain whitespace
+ * for the parser.
+ */
+@Component
+public class TwitterV2StreamDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TwitterV2StreamDecoder.class);
+
+    private static final String DATA_FIELD = "data";
+    private static final String ID_FIELD = "id";
+    private static final String TEXT_FIELD = "text";
+    private static final String AUTHOR_ID_FIELD = "author_id";
+    private static final String CREATED_AT_FIELD = "created_at";
+
+    private final JsonFactory jsonFactory = JsonFactory.builder().build();
+
+    /**
+     * Reads tweets until the stream ends and hands each one to the consumer on the calling thread.
+     *
+     * @return the number of tweets passed to the consumer
+     * @throws IOException if the stream fails or contains malformed JSON
+     */
+    public long decode(InputStream inputStream, Consumer<TwitterAvroModel> consumer) throws IOException {
+        return decode(inputStream, consumer, () -> {
+        });
+    }
+
+    /**
+     * Like {@link #decode(InputStream, Consumer)}, additionally calls skippedMessageHandler for every message that
+     * does not carry a complete tweet, including messages with a malformed id or author_id.
+     */
+    public long decode(InputStream inputStream, Consumer<TwitterAvroModel> consumer,
+                       Runnable skippedMessageHandler) throws IOException {
+        long decodedCount = 0;
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                TwitterAvroModel twitterAvroModel = readMessage(parser);
+                if (twitterAvroModel != null) {
+                    consumer.accept(twitterAvroModel);
+                    decodedCount++;
+                } else {
+                    skippedMessageHandler.run();
+                }
+            }
+        }
+        return decodedCount;
+    }
+
+    /**
+     * Decodes a single message, used for replayed or captured lines.
+     *
+     * @return the tweet, or null if the message does not carry a complete tweet or has a malformed id
+     */
+    public TwitterAvroModel decodeMessage(byte[] buffer, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(buffer, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return readMessage(parser);
+        }
+    }
+
+    private TwitterAvroModel readMessage(JsonParser parser) throws IOException {
+        TwitterAvroModel twitterAvroModel = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (DATA_FIELD.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                twitterAvroModel = readData(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return twitterAvroModel;
+    }
+
+    private TwitterAvroModel readData(JsonParser parser) throws IOException {
+        long id = 0;
+        long authorId = 0;
+        String text = null;
+        Long createdAt = null;
+        boolean hasId = false;
+        boolean hasAuthorId = false;
+        boolean malformedId = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (valueToken == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (fieldName) {
+                case ID_FIELD -> {
+                    id = readId(parser, valueToken);
+                    hasId = true;
+                    malformedId |= id < 0;
+                }
+                case AUTHOR_ID_FIELD -> {
+                    authorId = readId(parser, valueToken);
+                    hasAuthorId = true;
+                    malformedId |= authorId < 0;
+                }
+                case TEXT_FIELD -> text = valueToken == JsonToken.VALUE_STRING ? parser.getText() : skip(parser);
+                case CREATED_AT_FIELD -> createdAt = valueToken == JsonToken.VALUE_STRING ? readTimestamp(parser) :
+                        skip(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (!hasId || !hasAuthorId) {
+            LOG.debug("Message without id or author_id");
+            return null;
+        }
+        if (malformedId) {
+            LOG.debug("Message with a malformed id or author_id");
+            return null;
+        }
+        return new TwitterAvroModel(authorId, id, text, createdAt, null);
+    }
+
+    /**
+     * Skips a value of an unexpected type, an object or array with all its children.
+     *
+     * @return null, the field counts as absent
+     */
+    private static <T> T skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Reads an id, which the v2 API sends as a string of decimal digits.
+     *
+     * @return the id, or -1 if the value is not a non-negative number that fits into a long
+     */
+    private long readId(JsonParser parser, JsonToken valueToken) throws IOException {
+        if (valueToken == JsonToken.VALUE_NUMBER_INT) {
+            JsonParser.NumberType numberType = parser.getNumberType();
+            if (numberType != JsonParser.NumberType.INT && numberType != JsonParser.NumberType.LONG) {
+                return -1;
+            }
+            long value = parser.getLongValue();
+            return value < 0 ? -1 : value;
+        }
+        if (valueToken != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return -1;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == 0 || length > 19) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the {@code yyyy-MM-ddTHH:mm:ss.SSSZ} form the v2 API uses without creating a string, any other
+     * ISO-8601 instant, and any value with a field out of range such as February 30th or a leap second, goes
+     * through {@link Instant#parse}.
+     */
+    private Long readTimestamp(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if ((length == 24 || length == 20) && chars[offset + 4] == '-' && chars[offset + 7] == '-'
+                && chars[offset + 10] == 'T' && chars[offset + 13] == ':' && chars[offset + 16] == ':'
+                && chars[offset + length - 1] == 'Z' && (length == 20 || chars[offset + 19] == '.')) {
+            int year = digits(chars, offset, 4);
+            int month = digits(chars, offset + 5, 2);
+            int day = digits(chars, offset + 8, 2);
+            int hour = digits(chars, offset + 11, 2);
+            int minute = digits(chars, offset + 14, 2);
+            int second = digits(chars, offset + 17, 2);
+            int millis = length == 24 ? digits(chars, offset + 20, 3) : 0;
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59
+                    && millis >= 0) {
+                long epochSeconds = daysFromCivil(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second;
+                return epochSeconds * 1000 + millis;
+            }
+        }
+        try {
+            return Instant.parse(parser.getText()).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            LOG.warn("Could not parse created_at value {}", parser.getText());
+            return null;
+        }
+    }
+
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return Month.of(month).length(Year.isLeap(year));
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (Howard Hinnant's days_from_civil).
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
@@ -0,0 +1,8 @@
+package com.twitter.to.kafka.service.init;
+
+/**
+ * Prepares the Kafka side of the stream before the {@link com.twitter.to.kafka.service.runner.StreamRunner} starts.
+ */
+public interface StreamInitializer {
+    void init();
+}
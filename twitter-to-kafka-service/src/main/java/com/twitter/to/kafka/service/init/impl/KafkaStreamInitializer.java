@@ -0,0 +1,92 @@
+package com.twitter.to.kafka.service.init.impl;
+
+import com.microservices.demo.config.KafkaConfigData;
+import com.microservices.demo.config.KafkaProducerConfigData;
+import com.microservices.demo.kafka.admin.client.KafkaAdminClient;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.serializer.SchemaIdCache;
+import com.twitter.to.kafka.service.init.StreamInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Creates the configured topics, the tweet topic and the word count analytics topic, through the
+ * {@link KafkaAdminClient}, and checks that the schema registry is up. Both run concurrently and are bounded by
+ * kafka-config.bootstrap-timeout-ms. A failure is logged and the stream is started anyway: records sent while the
+ * brokers are unreachable are kept in the spill journal.
+ * <p>
+ * When the persistent {@link SchemaIdCache} already holds ids for the current schema and registry, the serializer
+ * does not need the registry to produce, so the start only waits for the topics and the registry check finishes
+ * in the background.
+ */
+@Component
+public class KafkaStreamInitializer implements StreamInitializer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaStreamInitializer.class);
+
+    private final KafkaConfigData kafkaConfigData;
+    private final KafkaProducerConfigData kafkaProducerConfigData;
+    private final KafkaAdminClient kafkaAdminClient;
+
+    public KafkaStreamInitializer(KafkaConfigData kafkaConfigData, KafkaProducerConfigData kafkaProducerConfigData,
+                                  KafkaAdminClient kafkaAdminClient) {
+        this.kafkaConfigData = kafkaConfigData;
+        this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.kafkaAdminClient = kafkaAdminClient;
+    }
+
+    @Override
+    public void init() {
+        CompletableFuture<Void> topicsReady = kafkaAdminClient.createTopicsAsync().whenComplete((ignored, error) -> {
+            if (error == null) {
+                LOG.info("Topics with name {} are ready for operations", kafkaConfigData.getTopicNamesToCreate());
+            } else {
+                LOG.error("Could not create topics {}, starting the stream anyway",
+                        kafkaConfigData.getTopicNamesToCreate(), error);
+            }
+        });
+        CompletableFuture<Void> schemaRegistryReady = kafkaAdminClient.checkSchemaRegistryAsync()
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        LOG.info("Schema registry {} is ready for operations", kafkaConfigData.getSchemaRegistryUrl());
+                    } else {
+                        LOG.error("Schema registry {} is not reachable", kafkaConfigData.getSchemaRegistryUrl(), error);
+                    }
+                });
+        if (hasWarmSchemaIdCache()) {
+            LOG.info("Schema ids are cached, checking schema registry {} in the background",
+                    kafkaConfigData.getSchemaRegistryUrl());
+            await(topicsReady);
+        } else {
+            await(CompletableFuture.allOf(topicsReady, schemaRegistryReady));
+        }
+    }
+
+    private void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException | CancellationException e) {
+            // logged by the stage that failed
+        }
+    }
+
+    private boolean hasWarmSchemaIdCache() {
+        String directory = kafkaProducerConfigData.getSchemaIdCacheDirectory();
+        if (directory == null || directory.isBlank()) {
+            return false;
+        }
+        List<String> registryUrls = Arrays.stream(kafkaConfigData.getSchemaRegistryUrl().split(","))
+                .map(String::trim)
+                .toList();
+        return !new SchemaIdCache(Path.of(directory), List.of(TwitterAvroModel.getClassSchema()), registryUrls)
+                .isEmpty();
+    }
+}
@@ -1,18 +1,33 @@
 package com.twitter.to.kafka.service.listener;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
 import org.springframework.stereotype.Component;
 import twitter4j.Status;
 import twitter4j.StatusAdapter;
 @Component
 public class TwitterKafkaStatusListener extends StatusAdapter { //This class extends the StatusAdapter class from the Twitter4J library, which provides default implementations for the StatusListener interface methods.
 
-    private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaStatusListener.class);
+    private final TweetIngestPipeline tweetIngestPipeline;
+
+    private final HotPathLogger statusLog;
+
+    public TwitterKafkaStatusListener(TweetIngestPipeline tweetIngestPipeline,
+                                      HotPathLoggerFactory hotPathLoggerFactory) {
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.statusLog = hotPathLoggerFactory.getLogger(TwitterKafkaStatusListener.class, "twitter-status");
+    }
 
     @Override
     public void onStatus(Status status) { //This method is called whenever a new status (tweet) is received from Twitter.
-        LOG.info("Twitter status with text: {}", status.getText()); //Logs the text of the tweet using SLF4J.
+        onStatus(status, IngestMetrics.SOURCE_TWITTER_V1, System.nanoTime()); //twitter4j has parsed the status already, so it is ingested now.
+    }
+
+    public void onStatus(Status status, String source, long ingestNanos) {
+        statusLog.info("Twitter status with text: {}", status.getText()); //Logs a sample of the tweet texts, every one at debug level.
+        tweetIngestPipeline.publish(status, source, ingestNanos); //Only buffers the status, conversion and sending happen on the pipeline workers.
     }
 }
 /*
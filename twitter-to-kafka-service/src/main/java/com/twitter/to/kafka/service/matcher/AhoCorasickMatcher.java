@@ -0,0 +1,251 @@
+package com.twitter.to.kafka.service.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Case insensitive multi keyword matcher, compiled once from the keyword list.
+ * <p>
+ * The keywords are folded to lower case and built into an Aho-Corasick automaton, which is then completed into a
+ * dense transition table: every state has an entry for every symbol, so matching is a single array lookup per
+ * character without following failure links. Characters that do not occur in any keyword share one symbol that
+ * always leads back to the root. Like {@link String#contains(CharSequence)} the keywords match anywhere in the text,
+ * also inside longer words.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class AhoCorasickMatcher {
+
+    private static final int ASCII_LIMIT = 128;
+    private static final int OTHER_SYMBOL = 0;
+
+    private final String[] keywords;
+    private final int symbolCount;
+    private final int[] asciiSymbols;
+    private final char[] nonAsciiChars;
+    private final int[] nonAsciiSymbols;
+    private final int[] transitions;
+    private final boolean[] accepting;
+    private final long[] outputs;
+    private final int outputWords;
+
+    public AhoCorasickMatcher(Collection<String> keywords) {
+        this.keywords = foldKeywords(keywords);
+        this.outputWords = Math.max(1, (this.keywords.length + Long.SIZE - 1) / Long.SIZE);
+
+        asciiSymbols = new int[ASCII_LIMIT];
+        char[] nonAscii = distinctNonAsciiChars(this.keywords);
+        nonAsciiChars = nonAscii;
+        nonAsciiSymbols = new int[nonAscii.length];
+        int nextSymbol = 1;
+        for (String keyword : this.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c < ASCII_LIMIT && asciiSymbols[c] == OTHER_SYMBOL) {
+                    asciiSymbols[c] = nextSymbol;
+                    asciiSymbols[Character.toUpperCase(c)] = nextSymbol;
+                    nextSymbol++;
+                }
+            }
+        }
+        for (int i = 0; i < nonAscii.length; i++) {
+            nonAsciiSymbols[i] = nextSymbol++;
+        }
+        symbolCount = nextSymbol;
+
+        int maxStates = 1;
+        for (String keyword : this.keywords) {
+            maxStates += keyword.length();
+        }
+        int[] table = new int[maxStates * symbolCount];
+        Arrays.fill(table, -1);
+        long[] stateOutputs = new long[maxStates * outputWords];
+        int stateCount = buildTrie(table, stateOutputs);
+
+        transitions = Arrays.copyOf(table, stateCount * symbolCount);
+        outputs = Arrays.copyOf(stateOutputs, stateCount * outputWords);
+        accepting = new boolean[stateCount];
+        completeTransitions(stateCount);
+    }
+
+    /**
+     * @return the folded keywords, in the order they were given, duplicates and blank entries removed
+     */
+    public List<String> getKeywords() {
+        return List.of(keywords);
+    }
+
+    /**
+     * @return the keywords found in the text in keyword order, an empty list if none or the text is null
+     */
+    public List<String> match(CharSequence text) {
+        if (text == null || keywords.length == 0) {
+            return List.of();
+        }
+        long[] matched = null;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * symbolCount + symbolOf(text.charAt(i))];
+            if (accepting[state]) {
+                if (matched == null) {
+                    matched = new long[outputWords];
+                }
+                int offset = state * outputWords;
+                for (int word = 0; word < outputWords; word++) {
+                    matched[word] |= outputs[offset + word];
+                }
+            }
+        }
+        return matched == null ? List.of() : toKeywords(matched);
+    }
+
+    /**
+     * @return whether any keyword occurs in the text, stops at the first match
+     */
+    public boolean matchesAny(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = transitions[state * symbolCount + symbolOf(text.charAt(i))];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int symbolOf(char c) {
+        if (c < ASCII_LIMIT) {
+            return asciiSymbols[c];
+        }
+        char folded = Character.toLowerCase(c);
+        if (folded < ASCII_LIMIT) {
+            // e.g. the Kelvin sign folds to 'k'
+            return asciiSymbols[folded];
+        }
+        if (nonAsciiChars.length == 0) {
+            return OTHER_SYMBOL;
+        }
+        int index = Arrays.binarySearch(nonAsciiChars, folded);
+        return index < 0 ? OTHER_SYMBOL : nonAsciiSymbols[index];
+    }
+
+    private int buildTrie(int[] table, long[] stateOutputs) {
+        int stateCount = 1;
+        for (int keywordIndex = 0; keywordIndex < keywords.length; keywordIndex++) {
+            String keyword = keywords[keywordIndex];
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = state * symbolCount + symbolOf(keyword.charAt(i));
+                if (table[slot] < 0) {
+                    table[slot] = stateCount++;
+                }
+                state = table[slot];
+            }
+            stateOutputs[state * outputWords + keywordIndex / Long.SIZE] |= 1L << (keywordIndex % Long.SIZE);
+        }
+        return stateCount;
+    }
+
+    /**
+     * Breadth first over the trie: a missing transition is replaced by the transition of the failure state, which
+     * is complete already because it is closer to the root. Outputs of the failure state are merged in, so a match
+     * of a keyword that is a suffix of another one is reported as well.
+     */
+    private void completeTransitions(int stateCount) {
+        int[] failure = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int next = transitions[symbol];
+            if (next < 0) {
+                transitions[symbol] = 0;
+            } else {
+                failure[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        accepting[0] = hasOutput(0);
+        while (head < tail) {
+            int state = queue[head++];
+            int fail = failure[state];
+            for (int word = 0; word < outputWords; word++) {
+                outputs[state * outputWords + word] |= outputs[fail * outputWords + word];
+            }
+            accepting[state] = hasOutput(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int slot = state * symbolCount + symbol;
+                int next = transitions[slot];
+                if (next < 0) {
+                    transitions[slot] = transitions[fail * symbolCount + symbol];
+                } else {
+                    failure[next] = transitions[fail * symbolCount + symbol];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private boolean hasOutput(int state) {
+        for (int word = 0; word < outputWords; word++) {
+            if (outputs[state * outputWords + word] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> toKeywords(long[] matched) {
+        List<String> found = new ArrayList<>(Math.min(keywords.length, Long.SIZE));
+        for (int word = 0; word < matched.length; word++) {
+            long bits = matched[word];
+            while (bits != 0) {
+                found.add(keywords[word * Long.SIZE + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return found;
+    }
+
+    private static String[] foldKeywords(Collection<String> keywords) {
+        Set<String> folded = new LinkedHashSet<>();
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                if (keyword != null && !keyword.isBlank()) {
+                    folded.add(fold(keyword.trim()));
+                }
+            }
+        }
+        return folded.toArray(new String[0]);
+    }
+
+    private static String fold(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static char[] distinctNonAsciiChars(String[] keywords) {
+        StringBuilder chars = new StringBuilder();
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ASCII_LIMIT && chars.indexOf(String.valueOf(c)) < 0) {
+                    chars.append(c);
+                }
+            }
+        }
+        char[] sorted = chars.toString().toCharArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
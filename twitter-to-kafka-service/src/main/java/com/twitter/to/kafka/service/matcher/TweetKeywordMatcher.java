@@ -0,0 +1,50 @@
+package com.twitter.to.kafka.service.matcher;
+
+import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Tags tweets with the configured twitter keywords they contain, using one {@link AhoCorasickMatcher} compiled at
+ * startup. With {@code drop-non-matching-tweets} the ingest workers drop tweets without any keyword before they
+ * are converted and sent, which filters client side for sources that do not filter themselves, like the mock runners.
+ */
+@Component
+public class TweetKeywordMatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetKeywordMatcher.class);
+
+    private final AhoCorasickMatcher matcher;
+    private final boolean enabled;
+    private final boolean dropNonMatching;
+
+    public TweetKeywordMatcher(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData) {
+        this.matcher = new AhoCorasickMatcher(twitterToKafkaServiceConfigData.getTwitterKeywords());
+        this.enabled = !matcher.getKeywords().isEmpty();
+        this.dropNonMatching = enabled
+                && Boolean.TRUE.equals(twitterToKafkaServiceConfigData.getDropNonMatchingTweets());
+        LOG.info("Compiled keyword matcher for {}, dropping non matching tweets: {}", matcher.getKeywords(),
+                dropNonMatching);
+    }
+
+    /**
+     * @return false if no keywords are configured, tweets are neither tagged nor dropped then
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDropNonMatching() {
+        return dropNonMatching;
+    }
+
+    /**
+     * @return the keywords found in the text, null if the matcher is not enabled
+     */
+    public List<String> match(String text) {
+        return enabled ? matcher.match(text) : null;
+    }
+}
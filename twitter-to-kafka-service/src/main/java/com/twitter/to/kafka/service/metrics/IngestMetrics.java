@@ -0,0 +1,89 @@
+package com.twitter.to.kafka.service.metrics;
+
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Names and creates the meters of the ingest side: tweets received and parse failures per source, the
+ * Status to Avro conversion time and the state of the {@link TweetIngestPipeline}. Callers look their meters
+ * up once and keep them, so the hot paths only increment a counter. Tweets per second is the rate of the
+ * received counter, e.g. {@code rate(twitter_source_tweets_total[1m])}.
+ */
+@Component
+public class IngestMetrics {
+
+    public static final String SOURCE_MOCK = "mock";
+    public static final String SOURCE_MOCK_LOAD = "mock-load";
+    public static final String SOURCE_TWITTER_V1 = "twitter-v1";
+    public static final String SOURCE_TWITTER_V2 = "twitter-v2";
+    public static final String SOURCE_REPLAY = "replay";
+
+    private static final String TWEETS_RECEIVED = "twitter.source.tweets";
+    private static final String PARSE_FAILURES = "twitter.source.parse.failures";
+    private static final String CONVERSION = "twitter.ingest.convert";
+    private static final String PIPELINE_PREFIX = "twitter.ingest.pipeline.";
+
+    private final MeterRegistry meterRegistry;
+
+    public IngestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Counter tweetsReceived(String source) {
+        return Counter.builder(TWEETS_RECEIVED)
+                .description("Tweets read from a stream source")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public Counter parseFailures(String source) {
+        return Counter.builder(PARSE_FAILURES)
+                .description("Messages of a stream source that could not be turned into a tweet")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public Timer conversionTimer() {
+        return Timer.builder(CONVERSION)
+                .description("Time to convert a twitter4j status into the avro model")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exposes the counters the pipeline keeps anyway, read when the registry is scraped.
+     */
+    public void bindPipeline(TweetIngestPipeline pipeline) {
+        Gauge.builder(PIPELINE_PREFIX + "queue.depth", pipeline, TweetIngestPipeline::getQueueDepth)
+                .description("Tweets buffered and not yet taken by a worker")
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "published", pipeline, TweetIngestPipeline::getPublishedCount)
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "processed", pipeline, TweetIngestPipeline::getProcessedCount)
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "failed", pipeline, TweetIngestPipeline::getFailedCount)
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "filtered", pipeline, TweetIngestPipeline::getFilteredCount)
+                .description("Tweets dropped because they contain none of the twitter keywords")
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "dropped", pipeline, TweetIngestPipeline::getDroppedOldestCount)
+                .tag("policy", "drop-oldest")
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "dropped", pipeline, TweetIngestPipeline::getDroppedNewestCount)
+                .tag("policy", "drop-newest")
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "duplicates", pipeline, TweetIngestPipeline::getDuplicateCount)
+                .description("Tweets dropped because their id was seen within the dedup window")
+                .register(meterRegistry);
+        Gauge.builder(PIPELINE_PREFIX + "dedup.hit.ratio", pipeline, TweetIngestPipeline::getDedupHitRatio)
+                .register(meterRegistry);
+        FunctionCounter.builder(PIPELINE_PREFIX + "dedup.early.rotations", pipeline,
+                        TweetIngestPipeline::getDedupEarlyRotationCount)
+                .description("Dedup generations rotated because they were full, each shortens the window")
+                .register(meterRegistry);
+    }
+}
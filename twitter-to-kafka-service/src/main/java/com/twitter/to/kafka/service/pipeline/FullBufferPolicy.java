@@ -0,0 +1,19 @@
+package com.twitter.to.kafka.service.pipeline;
+
+/**
+ * What a stream thread does when the ingest buffer of the target worker is full.
+ */
+public enum FullBufferPolicy {
+    /**
+     * Park the stream thread until the worker frees a slot. Nothing is lost, the source slows down.
+     */
+    BLOCK,
+    /**
+     * Evict the oldest buffered tweet to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the incoming tweet and keep what is already buffered.
+     */
+    DROP_NEWEST
+}
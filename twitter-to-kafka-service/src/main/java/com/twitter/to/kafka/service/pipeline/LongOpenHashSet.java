@@ -0,0 +1,114 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs with open addressing and linear probing, sized once for a maximum number of entries.
+ * Zero marks an empty slot and is tracked with a flag. Not thread safe; {@link #clear()} keeps the table so a
+ * rotated generation is reused without allocation.
+ */
+final class LongOpenHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    /**
+     * Largest maximum size whose table, a power of two at most half full, still fits into an array.
+     */
+    static final int MAX_SIZE = 1 << 29;
+
+    private final long[] table;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+    private boolean containsEmptyKey;
+
+    /**
+     * @throws IllegalArgumentException if maxSize is not between 1 and {@link #MAX_SIZE}
+     */
+    LongOpenHashSet(int maxSize) {
+        if (maxSize < 1 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Set size must be between 1 and " + MAX_SIZE + ", was " + maxSize);
+        }
+        // at most 1 << 30 for MAX_SIZE, rounding up to the next power of two cannot overflow
+        int minCapacity = (int) Math.ceil(maxSize / MAX_LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(minCapacity - 1) << 1;
+        this.table = new long[Math.max(2, capacity)];
+        this.mask = table.length - 1;
+        this.maxSize = maxSize;
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+        int slot = slot(key);
+        long current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key was added, false if it was present already
+     * @throws IllegalStateException if the set is full
+     */
+    boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            ensureSpace();
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        long current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ensureSpace();
+        table[slot] = key;
+        size++;
+        return true;
+    }
+
+    boolean isFull() {
+        return size >= maxSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(table, EMPTY);
+            size = 0;
+            containsEmptyKey = false;
+        }
+    }
+
+    private void ensureSpace() {
+        if (isFull()) {
+            throw new IllegalStateException("Set is full with " + size + " entries");
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
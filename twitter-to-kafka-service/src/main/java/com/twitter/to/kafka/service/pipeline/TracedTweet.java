@@ -0,0 +1,20 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import com.microservices.demo.kafka.producer.model.RecordTrace;
+
+/**
+ * A status or Avro model in a pipeline ring buffer, with the source it came from and the times needed for the
+ * stage latencies. The times are 0 while latency tracing is disabled.
+ *
+ * @param tweet         a twitter4j Status or a TwitterAvroModel
+ * @param source        id of the stream source, see IngestMetrics
+ * @param ingestNanos   {@link System#nanoTime()} of the socket read or generation of the tweet
+ * @param ingestEpochMs the same moment on the wall clock
+ * @param enqueueNanos  {@link System#nanoTime()} of the publish to the pipeline
+ */
+record TracedTweet(Object tweet, String source, long ingestNanos, long ingestEpochMs, long enqueueNanos) {
+
+    RecordTrace toRecordTrace() {
+        return new RecordTrace(source, ingestEpochMs, ingestNanos);
+    }
+}
@@ -0,0 +1,77 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the tweet ids of a time window to drop tweets that arrive twice, e.g. after a v2 stream reconnect or
+ * from overlapping sources.
+ * <p>
+ * The window is split into generations, each a {@link LongOpenHashSet} of raw ids. New ids go into the current
+ * generation; lookups check all of them. When a generation's time is up the oldest one is cleared and becomes
+ * the current one, so memory stays at generations * entriesPerGeneration ids. Since ids are stored exactly there
+ * are no false positives. If a generation fills up before its time is up it is rotated early, which shortens the
+ * window and may let a late duplicate through; those early rotations are counted.
+ * <p>
+ * One instance per worker: tweets are sharded by user id, so copies of a tweet always reach the same worker and
+ * the sets need no synchronization.
+ */
+final class TweetIdDeduplicator {
+
+    private final LongOpenHashSet[] generations;
+    private final long generationNanos;
+    private final LongAdder checkedCount;
+    private final LongAdder duplicateCount;
+    private final LongAdder earlyRotationCount;
+
+    private int current;
+    private long generationStartNanos;
+
+    /**
+     * @throws IllegalArgumentException if entriesPerGeneration is not between 1 and {@link LongOpenHashSet#MAX_SIZE}
+     */
+    TweetIdDeduplicator(long windowMs, int generationCount, int entriesPerGeneration,
+                        LongAdder checkedCount, LongAdder duplicateCount, LongAdder earlyRotationCount) {
+        this.generations = new LongOpenHashSet[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            generations[i] = new LongOpenHashSet(entriesPerGeneration);
+        }
+        this.generationNanos = TimeUnit.MILLISECONDS.toNanos(windowMs) / generationCount;
+        this.checkedCount = checkedCount;
+        this.duplicateCount = duplicateCount;
+        this.earlyRotationCount = earlyRotationCount;
+        this.generationStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Checks the id and remembers it if it was not seen within the window.
+     *
+     * @param nowNanos {@link System#nanoTime()}, read once per drained batch by the caller
+     * @return true if the id was seen before within the window
+     */
+    boolean isDuplicate(long tweetId, long nowNanos) {
+        checkedCount.increment();
+        long elapsedGenerations = (nowNanos - generationStartNanos) / generationNanos;
+        for (long i = Math.min(elapsedGenerations, generations.length); i > 0; i--) {
+            rotate(nowNanos);
+        }
+        for (LongOpenHashSet generation : generations) {
+            if (generation.contains(tweetId)) {
+                duplicateCount.increment();
+                return true;
+            }
+        }
+        if (generations[current].isFull()) {
+            earlyRotationCount.increment();
+            rotate(nowNanos);
+        }
+        generations[current].add(tweetId);
+        return false;
+    }
+
+    private void rotate(long nowNanos) {
+        current = (current + 1) % generations.length;
+        generations[current].clear();
+        generationStartNanos = nowNanos;
+    }
+}
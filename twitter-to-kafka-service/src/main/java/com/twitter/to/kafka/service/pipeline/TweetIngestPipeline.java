@@ -0,0 +1,340 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.microservices.demo.config.IngestPipelineConfigData;
+import com.microservices.demo.config.KafkaConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.service.KafkaProducer;
+import com.microservices.demo.kafka.producer.tracing.IngestStage;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import com.twitter.to.kafka.service.analytics.TweetAnalyticsStage;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import com.twitter.to.kafka.service.matcher.TweetKeywordMatcher;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.transformer.TwitterStatusToAvroTransformer;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import twitter4j.Status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples the stream reading threads from the Avro conversion and the Kafka send.
+ * <p>
+ * Stream runners call {@link #publish(Status, String, long)}, which only places the status into a bounded ring
+ * buffer. Sources that already build the Avro model, like the mock load generator, use
+ * {@link #publish(TwitterAvroModel, String, long)} and skip the conversion step. Every tweet carries its source
+ * and ingest time, for the record headers and the stage latencies of the {@link StageLatencyRecorder}. Each worker
+ * thread owns one buffer; tweets are sharded by user id so tweets of the same user keep their order on the way to
+ * the producer. When a buffer is full the configured {@link FullBufferPolicy} decides whether the stream thread
+ * waits or a tweet is dropped.
+ * <p>
+ * On shutdown {@link #drain(long)} lets the workers send what is buffered, within a deadline, once the sources
+ * have stopped publishing.
+ */
+@Component
+public class TweetIngestPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetIngestPipeline.class);
+
+    private static final long WORKER_JOIN_TIMEOUT_MS = 5000;
+
+    private final IngestPipelineConfigData ingestPipelineConfigData;
+    private final KafkaConfigData kafkaConfigData;
+    private final TwitterStatusToAvroTransformer twitterStatusToAvroTransformer;
+    private final KafkaProducer<Long, TwitterAvroModel> kafkaProducer;
+    private final ExecutionModel executionModel;
+    private final IngestMetrics ingestMetrics;
+    private final HotPathLoggerFactory hotPathLoggerFactory;
+    private final TweetKeywordMatcher tweetKeywordMatcher;
+    private final List<TweetAnalyticsStage> analyticsStages;
+    private final StageLatencyRecorder stageLatencyRecorder;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder filteredCount = new LongAdder();
+    private final LongAdder droppedOldestCount = new LongAdder();
+    private final LongAdder droppedNewestCount = new LongAdder();
+    private final LongAdder dedupCheckedCount = new LongAdder();
+    private final LongAdder duplicateCount = new LongAdder();
+    private final LongAdder dedupEarlyRotationCount = new LongAdder();
+
+    private FullBufferPolicy fullBufferPolicy;
+    private long blockParkNanos;
+    private List<BoundedRingBuffer<TracedTweet>> ringBuffers;
+    private List<TweetIngestWorker> workers;
+    private List<Thread> workerThreads;
+    private ScheduledExecutorService statsExecutor;
+    private boolean stopped;
+
+    public TweetIngestPipeline(IngestPipelineConfigData ingestPipelineConfigData,
+                               KafkaConfigData kafkaConfigData,
+                               TwitterStatusToAvroTransformer twitterStatusToAvroTransformer,
+                               KafkaProducer<Long, TwitterAvroModel> kafkaProducer,
+                               ExecutionModel executionModel,
+                               IngestMetrics ingestMetrics,
+                               HotPathLoggerFactory hotPathLoggerFactory,
+                               TweetKeywordMatcher tweetKeywordMatcher,
+                               List<TweetAnalyticsStage> analyticsStages,
+                               StageLatencyRecorder stageLatencyRecorder) {
+        this.ingestPipelineConfigData = ingestPipelineConfigData;
+        this.kafkaConfigData = kafkaConfigData;
+        this.twitterStatusToAvroTransformer = twitterStatusToAvroTransformer;
+        this.kafkaProducer = kafkaProducer;
+        this.executionModel = executionModel;
+        this.ingestMetrics = ingestMetrics;
+        this.hotPathLoggerFactory = hotPathLoggerFactory;
+        this.tweetKeywordMatcher = tweetKeywordMatcher;
+        this.analyticsStages = List.copyOf(analyticsStages);
+        this.stageLatencyRecorder = stageLatencyRecorder;
+    }
+
+    @PostConstruct
+    public void start() {
+        int workerCount = ingestPipelineConfigData.getWorkerCount();
+        int capacityPerWorker = Math.max(2, ingestPipelineConfigData.getBufferCapacity() / workerCount);
+        fullBufferPolicy = FullBufferPolicy.valueOf(ingestPipelineConfigData.getFullBufferPolicy().trim().toUpperCase());
+        blockParkNanos = ingestPipelineConfigData.getBlockParkNanos();
+
+        ringBuffers = new ArrayList<>(workerCount);
+        workers = new ArrayList<>(workerCount);
+        workerThreads = new ArrayList<>(workerCount);
+        ThreadFactory workerThreadFactory = executionModel.threadFactory("tweet-ingest-worker");
+        Executor callbackExecutor = executionModel.callbackExecutor("tweet-ingest-callback");
+        Timer conversionTimer = ingestMetrics.conversionTimer();
+        HotPathLogger conversionErrorLog = hotPathLoggerFactory.getLogger(TweetIngestWorker.class,
+                "tweet-ingest.conversion-error");
+        for (int i = 0; i < workerCount; i++) {
+            BoundedRingBuffer<TracedTweet> ringBuffer = new BoundedRingBuffer<>(capacityPerWorker);
+            TweetIdDeduplicator deduplicator = createDeduplicator(workerCount);
+            TweetIngestWorker worker = new TweetIngestWorker(ringBuffer, twitterStatusToAvroTransformer, kafkaProducer,
+                    kafkaConfigData.getTopicName(), ingestPipelineConfigData.getMaxBatchSize(),
+                    ingestPipelineConfigData.getIdleParkNanos(),
+                    processedCount, failedCount, filteredCount, callbackExecutor, conversionTimer,
+                    conversionErrorLog, deduplicator, tweetKeywordMatcher, analyticsStages, stageLatencyRecorder);
+            Thread workerThread = workerThreadFactory.newThread(worker);
+            ringBuffers.add(ringBuffer);
+            workers.add(worker);
+            workerThreads.add(workerThread);
+            workerThread.start();
+        }
+
+        ingestMetrics.bindPipeline(this);
+
+        statsExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tweet-ingest-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long statsLogIntervalMs = ingestPipelineConfigData.getStatsLogIntervalMs();
+        statsExecutor.scheduleAtFixedRate(this::logStats, statsLogIntervalMs, statsLogIntervalMs, TimeUnit.MILLISECONDS);
+
+        LOG.info("Started tweet ingest pipeline with {} worker(s), {} slots per worker and {} policy",
+                workerCount, ringBuffers.get(0).capacity(), fullBufferPolicy);
+    }
+
+    /**
+     * Hands a status over to the workers. Never does conversion or I/O on the calling thread.
+     *
+     * @param source      id of the stream source, one of the IngestMetrics sources
+     * @param ingestNanos {@link System#nanoTime()} of the socket read or generation of the status
+     * @return true if the status was buffered, false if it was dropped
+     */
+    public boolean publish(Status status, String source, long ingestNanos) {
+        return publish(status.getUser().getId(), status, source, ingestNanos);
+    }
+
+    /**
+     * Hands an already converted tweet over to the workers.
+     *
+     * @param source      id of the stream source, one of the IngestMetrics sources
+     * @param ingestNanos {@link System#nanoTime()} of the socket read or generation of the tweet
+     * @return true if the tweet was buffered, false if it was dropped
+     */
+    public boolean publish(TwitterAvroModel twitterAvroModel, String source, long ingestNanos) {
+        return publish(twitterAvroModel.getUserId(), twitterAvroModel, source, ingestNanos);
+    }
+
+    private boolean publish(long userId, Object tweet, String source, long ingestNanos) {
+        TracedTweet tracedTweet;
+        if (stageLatencyRecorder.isEnabled()) {
+            long enqueueNanos = System.nanoTime();
+            long parseNanos = enqueueNanos - ingestNanos;
+            stageLatencyRecorder.record(IngestStage.PARSE, parseNanos);
+            tracedTweet = new TracedTweet(tweet, source, ingestNanos,
+                    System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(parseNanos), enqueueNanos);
+        } else {
+            tracedTweet = new TracedTweet(tweet, source, 0, 0, 0);
+        }
+        BoundedRingBuffer<TracedTweet> ringBuffer = ringBuffers.get(shardOf(userId));
+        if (ringBuffer.offer(tracedTweet)) {
+            publishedCount.increment();
+            return true;
+        }
+        return switch (fullBufferPolicy) {
+            case BLOCK -> publishBlocking(ringBuffer, tracedTweet);
+            case DROP_OLDEST -> publishDroppingOldest(ringBuffer, tracedTweet);
+            case DROP_NEWEST -> {
+                droppedNewestCount.increment();
+                yield false;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void stop() {
+        drain(WORKER_JOIN_TIMEOUT_MS);
+    }
+
+    /**
+     * Stops the workers once they have handed every buffered tweet to the producer, or once the timeout is over,
+     * whichever comes first. Workers still busy at the deadline are abandoned with the tweets left in their
+     * buffers. Later calls return right away. Sources should be stopped first, tweets published meanwhile may
+     * be left behind.
+     *
+     * @param timeoutMs the longest time to wait for all workers together
+     * @return the tweets left in the buffers, not sent
+     */
+    public synchronized int drain(long timeoutMs) {
+        if (workers == null) {
+            return 0;
+        }
+        if (stopped) {
+            return getQueueDepth();
+        }
+        stopped = true;
+        LOG.info("Stopping tweet ingest pipeline, {} tweet(s) still buffered", getQueueDepth());
+        workers.forEach(TweetIngestWorker::stop);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Thread workerThread : workerThreads) {
+            try {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos > 0) {
+                    workerThread.join(Duration.ofNanos(remainingNanos));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int abandoned = getQueueDepth();
+        if (abandoned > 0) {
+            LOG.warn("Tweet ingest pipeline did not drain within {} ms, abandoning {} buffered tweet(s)",
+                    timeoutMs, abandoned);
+        }
+        workers.forEach(TweetIngestWorker::abandon);
+        statsExecutor.shutdownNow();
+        logStats();
+        return abandoned;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BoundedRingBuffer<TracedTweet> ringBuffer : ringBuffers) {
+            depth += ringBuffer.size();
+        }
+        return depth;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * @return tweets dropped because they contain none of the twitter keywords
+     */
+    public long getFilteredCount() {
+        return filteredCount.sum();
+    }
+
+    public long getDroppedOldestCount() {
+        return droppedOldestCount.sum();
+    }
+
+    public long getDroppedNewestCount() {
+        return droppedNewestCount.sum();
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    public long getDedupEarlyRotationCount() {
+        return dedupEarlyRotationCount.sum();
+    }
+
+    /**
+     * @return share of the checked tweets that were dropped as duplicates
+     */
+    public double getDedupHitRatio() {
+        long checked = dedupCheckedCount.sum();
+        return checked == 0 ? 0.0 : (double) duplicateCount.sum() / checked;
+    }
+
+    private TweetIdDeduplicator createDeduplicator(int workerCount) {
+        if (!Boolean.TRUE.equals(ingestPipelineConfigData.getDedupEnabled())) {
+            return null;
+        }
+        int generations = ingestPipelineConfigData.getDedupGenerations();
+        int entriesPerGeneration = Math.max(1, ingestPipelineConfigData.getDedupMaxEntries() / workerCount / generations);
+        return new TweetIdDeduplicator(ingestPipelineConfigData.getDedupWindowMs(), generations, entriesPerGeneration,
+                dedupCheckedCount, duplicateCount, dedupEarlyRotationCount);
+    }
+
+    private boolean publishBlocking(BoundedRingBuffer<TracedTweet> ringBuffer, TracedTweet tweet) {
+        while (!ringBuffer.offer(tweet)) {
+            LockSupport.parkNanos(blockParkNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                droppedNewestCount.increment();
+                return false;
+            }
+        }
+        publishedCount.increment();
+        return true;
+    }
+
+    private boolean publishDroppingOldest(BoundedRingBuffer<TracedTweet> ringBuffer, TracedTweet tweet) {
+        while (!ringBuffer.offer(tweet)) {
+            if (ringBuffer.poll() != null) {
+                droppedOldestCount.increment();
+            }
+        }
+        publishedCount.increment();
+        return true;
+    }
+
+    private int shardOf(long userId) {
+        return Math.floorMod(Long.hashCode(userId), ringBuffers.size());
+    }
+
+    private void logStats() {
+        LOG.info("Ingest pipeline stats: queue depth {}, published {}, processed {}, failed {}, filtered {}, " +
+                        "dropped oldest {}, dropped newest {}, duplicates {} ({}%), early dedup rotations {}",
+                getQueueDepth(), getPublishedCount(), getProcessedCount(), getFailedCount(), getFilteredCount(),
+                getDroppedOldestCount(), getDroppedNewestCount(), getDuplicateCount(),
+                String.format("%.3f", getDedupHitRatio() * 100), getDedupEarlyRotationCount());
+    }
+}
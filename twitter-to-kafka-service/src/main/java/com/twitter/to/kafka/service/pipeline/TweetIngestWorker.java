@@ -0,0 +1,241 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.model.BatchSendResult;
+import com.microservices.demo.kafka.producer.model.Pair;
+import com.microservices.demo.kafka.producer.model.RecordTrace;
+import com.microservices.demo.kafka.producer.service.KafkaProducer;
+import com.microservices.demo.kafka.producer.tracing.IngestStage;
+import com.microservices.demo.kafka.producer.tracing.StageLatencyRecorder;
+import com.twitter.to.kafka.service.analytics.TweetAnalyticsStage;
+import com.twitter.to.kafka.service.matcher.TweetKeywordMatcher;
+import com.twitter.to.kafka.service.transformer.TwitterStatusToAvroTransformer;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains one ring buffer, converts each status to Avro and hands it to the Kafka producer. Tweets that were
+ * published as Avro models already are passed on as they are. Both are tagged with the keywords they contain, and
+ * tweets without any keyword are dropped before the conversion if the keyword matcher is configured to do so.
+ * Every tweet that is sent is handed to the in-process analytics stages as well.
+ * Whatever is buffered when the worker wakes up (up to the max batch size) is sent as one batch, so the
+ * producer callback and logging cost is paid per batch rather than per tweet. With latency tracing the enqueue and
+ * conversion time of every tweet is recorded and its trace is sent along with the batch.
+ * Runs until stopped and the buffer is empty, so tweets already accepted are not thrown away on shutdown. A
+ * worker that is abandoned because the shutdown ran out of time leaves after the batch it is sending.
+ */
+class TweetIngestWorker implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetIngestWorker.class);
+
+    private static final int SPINS_BEFORE_PARK = 100;
+
+    private final BoundedRingBuffer<TracedTweet> ringBuffer;
+    private final TwitterStatusToAvroTransformer transformer;
+    private final KafkaProducer<Long, TwitterAvroModel> kafkaProducer;
+    private final String topicName;
+    private final int maxBatchSize;
+    private final long idleParkNanos;
+    private final LongAdder processedCount;
+    private final LongAdder failedCount;
+    private final LongAdder filteredCount;
+    private final Executor callbackExecutor;
+    private final Timer conversionTimer;
+    private final HotPathLogger conversionErrorLog;
+    private final TweetIdDeduplicator deduplicator;
+    private final TweetKeywordMatcher keywordMatcher;
+    private final List<TweetAnalyticsStage> analyticsStages;
+    private final StageLatencyRecorder stageLatencyRecorder;
+
+    private volatile boolean running = true;
+
+    private volatile boolean abandoned;
+
+    TweetIngestWorker(BoundedRingBuffer<TracedTweet> ringBuffer,
+                      TwitterStatusToAvroTransformer transformer,
+                      KafkaProducer<Long, TwitterAvroModel> kafkaProducer,
+                      String topicName,
+                      int maxBatchSize,
+                      long idleParkNanos,
+                      LongAdder processedCount,
+                      LongAdder failedCount,
+                      LongAdder filteredCount,
+                      Executor callbackExecutor,
+                      Timer conversionTimer,
+                      HotPathLogger conversionErrorLog,
+                      TweetIdDeduplicator deduplicator,
+                      TweetKeywordMatcher keywordMatcher,
+                      List<TweetAnalyticsStage> analyticsStages,
+                      StageLatencyRecorder stageLatencyRecorder) {
+        this.ringBuffer = ringBuffer;
+        this.transformer = transformer;
+        this.kafkaProducer = kafkaProducer;
+        this.topicName = topicName;
+        this.maxBatchSize = maxBatchSize;
+        this.idleParkNanos = idleParkNanos;
+        this.processedCount = processedCount;
+        this.failedCount = failedCount;
+        this.filteredCount = filteredCount;
+        this.callbackExecutor = callbackExecutor;
+        this.conversionTimer = conversionTimer;
+        this.conversionErrorLog = conversionErrorLog;
+        this.deduplicator = deduplicator;
+        this.keywordMatcher = keywordMatcher;
+        this.analyticsStages = analyticsStages;
+        this.stageLatencyRecorder = stageLatencyRecorder;
+    }
+
+    @Override
+    public void run() {
+        int idleSpins = 0;
+        while (!abandoned && (running || !ringBuffer.isEmpty())) {
+            Batch batch = drain();
+            if (batch == null || batch.records().isEmpty()) {
+                idleSpins = idle(idleSpins);
+                continue;
+            }
+            idleSpins = 0;
+            send(batch);
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /**
+     * Gives up on the tweets still buffered, they are left in the ring buffer.
+     */
+    void abandon() {
+        running = false;
+        abandoned = true;
+    }
+
+    /**
+     * @return the tweets to send, null if the buffer was empty
+     */
+    private Batch drain() {
+        TracedTweet tracedTweet = ringBuffer.poll();
+        if (tracedTweet == null) {
+            return null;
+        }
+        int capacity = Math.min(maxBatchSize, ringBuffer.size() + 1);
+        boolean tracing = stageLatencyRecorder.isEnabled();
+        Batch batch = new Batch(new ArrayList<>(capacity), tracing ? new ArrayList<>(capacity) : null);
+        long nowNanos = System.nanoTime();
+        do {
+            if (tracing) {
+                stageLatencyRecorder.record(IngestStage.ENQUEUE, System.nanoTime() - tracedTweet.enqueueNanos());
+            }
+            if (!isDuplicate(tracedTweet.tweet(), nowNanos)) {
+                convert(tracedTweet, batch);
+            }
+        } while (batch.records().size() < maxBatchSize && (tracedTweet = ringBuffer.poll()) != null);
+        return batch;
+    }
+
+    /**
+     * Checked before the conversion, so duplicate statuses are not converted at all.
+     */
+    private boolean isDuplicate(Object tweet, long nowNanos) {
+        if (deduplicator == null) {
+            return false;
+        }
+        long tweetId = tweet instanceof TwitterAvroModel twitterAvroModel ? twitterAvroModel.getId() :
+                ((Status) tweet).getId();
+        return deduplicator.isDuplicate(tweetId, nowNanos);
+    }
+
+    private void convert(TracedTweet tracedTweet, Batch batch) {
+        if (tracedTweet.tweet() instanceof TwitterAvroModel twitterAvroModel) {
+            List<String> matchedKeywords = keywordMatcher.match(twitterAvroModel.getText());
+            if (isFiltered(matchedKeywords)) {
+                return;
+            }
+            twitterAvroModel.setMatchedKeywords(matchedKeywords);
+            batch.add(twitterAvroModel, tracedTweet);
+            offerToAnalytics(twitterAvroModel);
+            return;
+        }
+        Status status = (Status) tracedTweet.tweet();
+        List<String> matchedKeywords = keywordMatcher.match(status.getText());
+        if (isFiltered(matchedKeywords)) {
+            return;
+        }
+        try {
+            long startNanos = System.nanoTime();
+            TwitterAvroModel twitterAvroModel = transformer.getTwitterAvroModelFromStatus(status);
+            long conversionNanos = System.nanoTime() - startNanos;
+            conversionTimer.record(conversionNanos, TimeUnit.NANOSECONDS);
+            stageLatencyRecorder.record(IngestStage.CONVERT, conversionNanos);
+            twitterAvroModel.setMatchedKeywords(matchedKeywords);
+            batch.add(twitterAvroModel, tracedTweet);
+            offerToAnalytics(twitterAvroModel);
+        } catch (RuntimeException e) {
+            failedCount.increment();
+            conversionErrorLog.error("Error while converting status {} to avro model", status.getId(), e);
+        }
+    }
+
+    private void offerToAnalytics(TwitterAvroModel twitterAvroModel) {
+        for (int i = 0; i < analyticsStages.size(); i++) {
+            analyticsStages.get(i).offer(twitterAvroModel);
+        }
+    }
+
+    private boolean isFiltered(List<String> matchedKeywords) {
+        if (keywordMatcher.isDropNonMatching() && matchedKeywords.isEmpty()) {
+            filteredCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void send(Batch batch) {
+        List<Pair<Long, TwitterAvroModel>> records = batch.records();
+        try {
+            kafkaProducer.sendBatch(topicName, records, batch.traces())
+                    .thenAcceptAsync(this::countResult, callbackExecutor);
+        } catch (RuntimeException e) {
+            failedCount.add(records.size());
+            LOG.error("Error while sending batch of {} record(s) to kafka topic {}", records.size(), topicName, e);
+        }
+    }
+
+    private void countResult(BatchSendResult<Long, TwitterAvroModel> result) {
+        processedCount.add(result.succeededCount());
+        failedCount.add(result.failures().size());
+    }
+
+    private int idle(int idleSpins) {
+        if (idleSpins < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+            return idleSpins + 1;
+        }
+        LockSupport.parkNanos(idleParkNanos);
+        return idleSpins;
+    }
+
+    /**
+     * The records of one send and their traces at the same index, no traces while tracing is disabled.
+     */
+    private record Batch(List<Pair<Long, TwitterAvroModel>> records, List<RecordTrace> traces) {
+
+        void add(TwitterAvroModel twitterAvroModel, TracedTweet tracedTweet) {
+            records.add(Pair.of(twitterAvroModel.getUserId(), twitterAvroModel));
+            if (traces != null) {
+                traces.add(tracedTweet.toRecordTrace());
+            }
+        }
+    }
+}
@@ -2,6 +2,17 @@ package com.twitter.to.kafka.service.runner;
 
 import twitter4j.TwitterException;
 
+/**
+ * A source of tweets. Implementations run their source on threads of the configured
+ * {@link com.twitter.to.kafka.service.concurrent.ExecutionModel}, so {@link #start()} returns as soon as the
+ * source is running and never blocks the caller for the lifetime of the stream.
+ */
 public interface StreamRunner {
     void start() throws TwitterException;
+
+    /**
+     * Stops the source and waits briefly for its threads to finish. Safe to call more than once and before
+     * {@link #start()}.
+     */
+    void stop();
 }
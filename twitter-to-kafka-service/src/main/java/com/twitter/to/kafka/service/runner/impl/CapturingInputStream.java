@@ -0,0 +1,98 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copies every byte read from the filtered stream into a capture file, which {@link ReplayKafkaStreamRunner} can
+ * replay later. The bytes are written as received, one message per line with the keep-alive newlines in between.
+ * A failing write stops the capture, never the stream.
+ */
+class CapturingInputStream extends FilterInputStream {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CapturingInputStream.class);
+
+    private static final int CAPTURE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path captureFile;
+    private OutputStream capture;
+
+    CapturingInputStream(InputStream in, Path captureFile) throws IOException {
+        super(in);
+        this.captureFile = captureFile;
+        this.capture = new BufferedOutputStream(Files.newOutputStream(captureFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE), CAPTURE_BUFFER_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0 && capture != null) {
+            try {
+                capture.write(value);
+            } catch (IOException e) {
+                stopCapture(e);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0 && capture != null) {
+            try {
+                capture.write(buffer, offset, count);
+            } catch (IOException e) {
+                stopCapture(e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the skipped bytes, so they end up in the capture file too.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] skipped = new byte[(int) Math.min(n, 8192)];
+        int count = read(skipped, 0, skipped.length);
+        return Math.max(count, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (capture != null) {
+                try {
+                    capture.close();
+                    LOG.info("Closed capture file {}", captureFile);
+                } catch (IOException e) {
+                    LOG.warn("Could not close capture file {}", captureFile, e);
+                }
+                capture = null;
+            }
+        }
+    }
+
+    private void stopCapture(IOException e) {
+        LOG.warn("Stopping capture to {}, the stream continues without it", captureFile, e);
+        try {
+            capture.close();
+        } catch (IOException closeException) {
+            e.addSuppressed(closeException);
+        }
+        capture = null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read timeout for a long lived response body. The JDK HTTP client only times out until the response headers
+ * arrive, so a stalled stream would block its reader forever. A watchdog closes the stream when no byte was
+ * read for longer than the timeout, which makes the pending read fail with an IOException. The reading thread is
+ * not interrupted, it may be busy outside of read, e.g. handing a tweet to a full pipeline.
+ */
+class IdleTimeoutInputStream extends FilterInputStream {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdleTimeoutInputStream.class);
+
+    private final long readTimeoutNanos;
+    private final ScheduledFuture<?> watchdog;
+    private volatile long lastReadNanos = System.nanoTime();
+    private volatile boolean timedOut;
+
+    IdleTimeoutInputStream(InputStream in, long readTimeoutMs, ScheduledExecutorService scheduler) {
+        super(in);
+        this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMs);
+        long checkIntervalMs = Math.max(100, readTimeoutMs / 4);
+        this.watchdog = scheduler.scheduleAtFixedRate(this::checkIdle, checkIntervalMs, checkIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the last read, the moment the bytes parsed last came off the socket
+     */
+    long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            int value = super.read();
+            lastReadNanos = System.nanoTime();
+            return value;
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        try {
+            int count = super.read(buffer, offset, length);
+            lastReadNanos = System.nanoTime();
+            return count;
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchdog.cancel(false);
+        super.close();
+    }
+
+    /**
+     * @return an exception naming the read timeout if the watchdog closed the stream, the given one otherwise
+     */
+    private IOException translate(IOException e) {
+        if (timedOut) {
+            return new IOException("No data received on stream for " +
+                    TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos) + " ms", e);
+        }
+        return e;
+    }
+
+    private void checkIdle() {
+        if (System.nanoTime() - lastReadNanos > readTimeoutNanos) {
+            timedOut = true;
+            watchdog.cancel(false);
+            LOG.warn("Closing idle stream, no data for {} ms", TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos));
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOG.warn("Error while closing idle stream", e);
+            }
+        }
+    }
+}
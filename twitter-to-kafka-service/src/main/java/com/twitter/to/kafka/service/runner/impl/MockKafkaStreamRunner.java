@@ -2,11 +2,16 @@ package com.twitter.to.kafka.service.runner.impl;
 
 import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
 
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
 import com.twitter.to.kafka.service.listener.TwitterKafkaStatusListener;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
 import com.twitter.to.kafka.service.runner.StreamRunner;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import twitter4j.Status;
 import twitter4j.TwitterException;
@@ -17,11 +22,12 @@ import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.Random;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Component("mockkafka")
-@ConditionalOnProperty(name = "twitter-to-kafka-service.enable-mock-tweets", havingValue = "true")
+@ConditionalOnExpression("${twitter-to-kafka-service.enable-mock-tweets} && not ${twitter-to-kafka-service.enable-replay-tweets:false}")
 public class MockKafkaStreamRunner implements StreamRunner {
 
     private static final Logger LOG = LoggerFactory.getLogger(MockKafkaStreamRunner.class);
@@ -30,6 +36,20 @@ public class MockKafkaStreamRunner implements StreamRunner {
 
     private final TwitterKafkaStatusListener twitterKafkaStatusListener;
 
+    private final TweetIngestPipeline tweetIngestPipeline;
+
+    private final ExecutionModel executionModel;
+
+    private final IngestMetrics ingestMetrics;
+
+    private MockTweetLoadGenerator mockTweetLoadGenerator;
+
+    private ExecutorService mockStreamExecutor;
+
+    private volatile boolean running;
+
+    private static final long STOP_TIMEOUT_MS = 5000;
+
     private static final Random RANDOM = new Random();
 
     private static final String[] WORDS = new String[]{
@@ -67,9 +87,15 @@ public class MockKafkaStreamRunner implements StreamRunner {
     private static final String TWITTER_STATUS_DATE_FORMAT = "EEE MMM dd HH:mm:ss zzz yyyy";
 
     public MockKafkaStreamRunner(TwitterToKafkaServiceConfigData configData,
-                                 TwitterKafkaStatusListener statusListener) {
+                                 TwitterKafkaStatusListener statusListener,
+                                 TweetIngestPipeline tweetIngestPipeline,
+                                 ExecutionModel executionModel,
+                                 IngestMetrics ingestMetrics) {
         this.twitterToKafkaServiceConfigData = configData;
         this.twitterKafkaStatusListener = statusListener;
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.executionModel = executionModel;
+        this.ingestMetrics = ingestMetrics;
     }
 
     @Override
@@ -78,22 +104,62 @@ public class MockKafkaStreamRunner implements StreamRunner {
         final int minTweetLength = twitterToKafkaServiceConfigData.getMockMinTweetLength();
         final int maxTweetLength = twitterToKafkaServiceConfigData.getMockMaxTweetLength();
         long sleepTimeMs = twitterToKafkaServiceConfigData.getMockSleepMs();
+        Long targetTweetsPerSecond = twitterToKafkaServiceConfigData.getMockTargetTweetsPerSecond();
         LOG.info("Starting mock filtering twitter streams for keywords {}", Arrays.toString(keywords));
-        simulateTwitterStream(keywords, minTweetLength, maxTweetLength, sleepTimeMs);
+        running = true;
+        if (targetTweetsPerSecond != null && targetTweetsPerSecond > 0) {
+            mockTweetLoadGenerator = new MockTweetLoadGenerator(tweetIngestPipeline, executionModel,
+                    WORDS, keywords, minTweetLength, maxTweetLength, targetTweetsPerSecond,
+                    twitterToKafkaServiceConfigData.getMockGeneratorThreads(),
+                    twitterToKafkaServiceConfigData.getMockRateReportIntervalMs(),
+                    ingestMetrics.tweetsReceived(IngestMetrics.SOURCE_MOCK_LOAD));
+            mockTweetLoadGenerator.start();
+        } else {
+            simulateTwitterStream(keywords, minTweetLength, maxTweetLength, sleepTimeMs);
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (mockTweetLoadGenerator != null) {
+            LOG.info("Stopping mock tweet load generator!");
+            mockTweetLoadGenerator.stop();
+            mockTweetLoadGenerator = null;
+        }
+        if (mockStreamExecutor != null) {
+            LOG.info("Stopping mock twitter stream!");
+            mockStreamExecutor.shutdownNow();
+            try {
+                if (!mockStreamExecutor.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Mock twitter stream did not stop within {} ms", STOP_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mockStreamExecutor = null;
+        }
     }
 
 
     private void simulateTwitterStream(String[] keywords, int minTweetLength, int maxTweetLength, long sleepTimeMs) {
-        Executors.newSingleThreadExecutor().submit(() -> {
-            try {
-                while (true) {
-                    String formattedTweetAsRawJson = getFormattedTweet(keywords, minTweetLength, maxTweetLength);
+        Counter tweetsReceived = ingestMetrics.tweetsReceived(IngestMetrics.SOURCE_MOCK);
+        Counter parseFailures = ingestMetrics.parseFailures(IngestMetrics.SOURCE_MOCK);
+        mockStreamExecutor = executionModel.newTaskExecutor("mock-twitter-stream");
+        mockStreamExecutor.submit(() -> {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                long ingestNanos = System.nanoTime();
+                String formattedTweetAsRawJson = getFormattedTweet(keywords, minTweetLength, maxTweetLength);
+                try {
                     Status status = TwitterObjectFactory.createStatus(formattedTweetAsRawJson);
-                    twitterKafkaStatusListener.onStatus(status);
-                    sleep(sleepTimeMs);
+                    tweetsReceived.increment();
+                    twitterKafkaStatusListener.onStatus(status, IngestMetrics.SOURCE_MOCK, ingestNanos);
+                } catch (TwitterException e) {
+                    parseFailures.increment();
+                    LOG.error("Error creating twitter status!", e);
                 }
-            } catch (TwitterException e) {
-                LOG.error("Error creating twitter status!", e);
+                sleep(sleepTimeMs);
             }
         });
     }
@@ -102,11 +168,11 @@ public class MockKafkaStreamRunner implements StreamRunner {
         try {
             Thread.sleep(sleepTimeMs);
         } catch (InterruptedException e) {
-            throw new RuntimeException("Error while sleeping for waiting new status to create!!");
+            Thread.currentThread().interrupt(); // stop() interrupts the sleep, the stream loop ends on the flag
         }
     }
 
-    private String getFormattedTweet(String[] keywords, int minTweetLength, int maxTweetLength) {
+    String getFormattedTweet(String[] keywords, int minTweetLength, int maxTweetLength) {
         String[] params = new String[]{
                 ZonedDateTime.now().format(DateTimeFormatter.ofPattern(TWITTER_STATUS_DATE_FORMAT, Locale.ENGLISH)),
                 String.valueOf(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE)),
@@ -0,0 +1,181 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paced load generator used by {@link MockKafkaStreamRunner} when a target rate is configured.
+ * <p>
+ * The target rate is split evenly over the generator threads. Each thread computes the absolute deadline of its
+ * next tweet from its start time, parks while the deadline is far away and spins for the last stretch, so the
+ * rate does not drift the way a sleep per tweet does. Tweets are built straight into {@link TwitterAvroModel}
+ * with a reused StringBuilder per thread, skipping the JSON template and the twitter4j parsing of the
+ * single-threaded mode.
+ */
+class MockTweetLoadGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MockTweetLoadGenerator.class);
+
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long THREAD_JOIN_TIMEOUT_MS = 5000;
+
+    private final TweetIngestPipeline tweetIngestPipeline;
+    private final ExecutionModel executionModel;
+    private final String[] words;
+    private final String[] keywords;
+    private final int minTweetLength;
+    private final int maxTweetLength;
+    private final long targetTweetsPerSecond;
+    private final int threadCount;
+    private final long rateReportIntervalMs;
+    private final Counter tweetsReceived;
+
+    private final LongAdder generatedCount = new LongAdder();
+    private final List<Thread> generatorThreads = new ArrayList<>();
+    private Thread rateReporterThread;
+    private volatile boolean running;
+
+    MockTweetLoadGenerator(TweetIngestPipeline tweetIngestPipeline, ExecutionModel executionModel,
+                           String[] words, String[] keywords,
+                           int minTweetLength, int maxTweetLength, long targetTweetsPerSecond, int threadCount,
+                           long rateReportIntervalMs, Counter tweetsReceived) {
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.executionModel = executionModel;
+        this.words = words;
+        this.keywords = keywords;
+        this.minTweetLength = minTweetLength;
+        this.maxTweetLength = maxTweetLength;
+        this.targetTweetsPerSecond = targetTweetsPerSecond;
+        this.threadCount = threadCount;
+        this.rateReportIntervalMs = rateReportIntervalMs;
+        this.tweetsReceived = tweetsReceived;
+    }
+
+    void start() {
+        running = true;
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) * (double) threadCount / targetTweetsPerSecond;
+        ThreadFactory threadFactory = executionModel.threadFactory("mock-tweet-generator");
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = threadFactory.newThread(() -> generate(intervalNanos));
+            generatorThreads.add(thread);
+            thread.start();
+        }
+        rateReporterThread = executionModel.startThread("mock-tweet-rate-reporter", new RateReport());
+        LOG.info("Started mock tweet load generator with {} thread(s) at a target of {} tweets/s",
+                threadCount, targetTweetsPerSecond);
+    }
+
+    void stop() {
+        running = false;
+        for (Thread thread : generatorThreads) {
+            try {
+                thread.join(THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (rateReporterThread != null) {
+            // the reporter only sleeps between reports, the interrupt ends it right away
+            rateReporterThread.interrupt();
+        }
+        LOG.info("Stopped mock tweet load generator after {} tweet(s)", generatedCount.sum());
+    }
+
+    long getGeneratedCount() {
+        return generatedCount.sum();
+    }
+
+    private void generate(double intervalNanos) {
+        StringBuilder text = new StringBuilder(maxTweetLength * 12);
+        long startNanos = System.nanoTime();
+        long sequence = 0;
+        while (running) {
+            long deadline = startNanos + (long) (sequence * intervalNanos);
+            long lag = System.nanoTime() - deadline;
+            if (lag > MAX_LAG_NANOS) {
+                // the pipeline could not keep up, restart pacing instead of bursting to catch up
+                startNanos = System.nanoTime();
+                sequence = 0;
+                deadline = startNanos;
+            }
+            awaitDeadline(deadline);
+            long ingestNanos = System.nanoTime();
+            tweetIngestPipeline.publish(nextTweet(text), IngestMetrics.SOURCE_MOCK_LOAD, ingestNanos);
+            generatedCount.increment();
+            tweetsReceived.increment();
+            sequence++;
+        }
+    }
+
+    private void awaitDeadline(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private TwitterAvroModel nextTweet(StringBuilder text) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        text.setLength(0);
+        int tweetLength = random.nextInt(minTweetLength, maxTweetLength + 1);
+        for (int i = 0; i < tweetLength; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+            if (i == tweetLength / 2) {
+                text.append(' ').append(keywords[random.nextInt(keywords.length)]);
+            }
+        }
+        return new TwitterAvroModel(random.nextLong(Long.MAX_VALUE), random.nextLong(Long.MAX_VALUE),
+                text.toString(), System.currentTimeMillis(), null);
+    }
+
+    private class RateReport implements Runnable {
+
+        private long lastCount;
+        private long lastNanos = System.nanoTime();
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    Thread.sleep(rateReportIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                report();
+            }
+        }
+
+        private void report() {
+            long count = generatedCount.sum();
+            long nanos = System.nanoTime();
+            double achieved = (count - lastCount) * (double) TimeUnit.SECONDS.toNanos(1) / (nanos - lastNanos);
+            LOG.info("Mock tweet load generator: achieved {} tweets/s, target {} tweets/s ({}%), total {}",
+                    Math.round(achieved), targetTweetsPerSecond, Math.round(achieved * 100 / targetTweetsPerSecond),
+                    count);
+            lastCount = count;
+            lastNanos = nanos;
+        }
+    }
+}
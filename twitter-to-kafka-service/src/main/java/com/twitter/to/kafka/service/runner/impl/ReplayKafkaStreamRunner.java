@@ -0,0 +1,272 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.microservices.demo.config.TweetReplayConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import com.twitter.to.kafka.service.decoder.TwitterV2StreamDecoder;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import com.twitter.to.kafka.service.runner.StreamRunner;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Replays captured filtered stream files, one v2 message per line as written by the capture mode of
+ * {@link TwitterV2StreamHelper}, for performance tests and for reproducing incidents with production traffic.
+ * <p>
+ * Files are memory mapped in windows of map-window-bytes and split on newlines in the mapped buffer. A line is
+ * copied into a reused byte array and decoded from there, no String is created for it. A line that crosses the
+ * end of a window is read again from the start of the next one. Blank keep-alive lines are skipped.
+ * <p>
+ * The speed sets the playback: 1 follows the original created_at spacing, 10 or 100 replays ten or a hundred
+ * times faster and 0 replays as fast as the pipeline takes the tweets. Gaps longer than max-gap-ms, e.g. a
+ * reconnect of the captured stream, are shortened to max-gap-ms.
+ */
+@Component("replaykafka")
+@ConditionalOnProperty(name = "twitter-to-kafka-service.enable-replay-tweets", havingValue = "true")
+public class ReplayKafkaStreamRunner implements StreamRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayKafkaStreamRunner.class);
+
+    private static final String CAPTURE_FILE_SUFFIX = ".ndjson";
+
+    private static final int INITIAL_LINE_BUFFER_SIZE = 8 * 1024;
+
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    private final TweetReplayConfigData tweetReplayConfigData;
+
+    private final TwitterV2StreamDecoder twitterV2StreamDecoder;
+
+    private final TweetIngestPipeline tweetIngestPipeline;
+
+    private final ExecutionModel executionModel;
+
+    private final Counter tweetsReceived;
+
+    private final Counter parseFailures;
+
+    private final HotPathLogger skippedLineLog;
+
+    private volatile boolean running;
+
+    private Thread replayThread;
+
+    // only touched by the replay thread
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+    private long playbackStartNanos;
+    private long playbackOffsetMs;
+    private long lastCreatedAtMs;
+
+    public ReplayKafkaStreamRunner(TweetReplayConfigData tweetReplayConfigData,
+                                   TwitterV2StreamDecoder twitterV2StreamDecoder,
+                                   TweetIngestPipeline tweetIngestPipeline,
+                                   ExecutionModel executionModel,
+                                   IngestMetrics ingestMetrics,
+                                   HotPathLoggerFactory hotPathLoggerFactory) {
+        this.tweetReplayConfigData = tweetReplayConfigData;
+        this.twitterV2StreamDecoder = twitterV2StreamDecoder;
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.executionModel = executionModel;
+        this.tweetsReceived = ingestMetrics.tweetsReceived(IngestMetrics.SOURCE_REPLAY);
+        this.parseFailures = ingestMetrics.parseFailures(IngestMetrics.SOURCE_REPLAY);
+        this.skippedLineLog = hotPathLoggerFactory.getLogger(ReplayKafkaStreamRunner.class, "replay.skipped-line");
+    }
+
+    @Override
+    public void start() {
+        List<Path> files = replayFiles(Path.of(tweetReplayConfigData.getReplayPath()));
+        LOG.info("Starting replay of {} file(s) from {} at speed {}{}", files.size(),
+                tweetReplayConfigData.getReplayPath(), tweetReplayConfigData.getSpeed(),
+                Boolean.TRUE.equals(tweetReplayConfigData.getLoop()) ? " in a loop" : "");
+        running = true;
+        replayThread = executionModel.startThread("tweet-replay", () -> replay(files));
+    }
+
+    @Override
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (replayThread != null) {
+            LOG.info("Stopping tweet replay!");
+            replayThread.interrupt();
+            try {
+                replayThread.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            replayThread = null;
+        }
+    }
+
+    private void replay(List<Path> files) {
+        do {
+            resetPlayback();
+            for (Path file : files) {
+                if (!running) {
+                    return;
+                }
+                try {
+                    long startNanos = System.nanoTime();
+                    long tweetCount = replayFile(file);
+                    LOG.info("Replayed {} tweet(s) of {} in {} ms", tweetCount, file,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                } catch (IOException e) {
+                    LOG.error("Error replaying {}, continuing with the next file", file, e);
+                }
+            }
+        } while (running && Boolean.TRUE.equals(tweetReplayConfigData.getLoop()));
+        LOG.info("Tweet replay finished");
+    }
+
+    private long replayFile(Path file) throws IOException {
+        long mapWindowBytes = Math.min(tweetReplayConfigData.getMapWindowBytes(), Integer.MAX_VALUE);
+        long tweetCount = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size && running) {
+                long windowSize = Math.min(mapWindowBytes, size - position);
+                boolean lastWindow = position + windowSize == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int limit = window.limit();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        tweetCount += replayLine(window, lineStart, i);
+                        lineStart = i + 1;
+                        if (!running) {
+                            return tweetCount;
+                        }
+                    }
+                }
+                if (lastWindow) {
+                    tweetCount += replayLine(window, lineStart, limit);
+                    position = size;
+                } else if (lineStart == 0) {
+                    throw new IOException("Line at offset " + position + " is longer than map-window-bytes "
+                            + mapWindowBytes);
+                } else {
+                    position += lineStart;
+                }
+            }
+        }
+        return tweetCount;
+    }
+
+    /**
+     * @return 1 if the line was published as a tweet, 0 otherwise
+     */
+    private int replayLine(MappedByteBuffer window, int start, int end) {
+        while (end > start && isWhitespace(window.get(end - 1))) {
+            end--;
+        }
+        while (start < end && isWhitespace(window.get(start))) {
+            start++;
+        }
+        int length = end - start;
+        if (length == 0) {
+            return 0;
+        }
+        if (length > lineBuffer.length) {
+            lineBuffer = new byte[Math.max(length, 2 * lineBuffer.length)];
+        }
+        window.get(start, lineBuffer, 0, length);
+        TwitterAvroModel twitterAvroModel;
+        long parseStartNanos = System.nanoTime();
+        try {
+            twitterAvroModel = twitterV2StreamDecoder.decodeMessage(lineBuffer, 0, length);
+        } catch (IOException e) {
+            parseFailures.increment();
+            skippedLineLog.warn("Skipping replayed line that is not a valid message: {}", e.getMessage());
+            return 0;
+        }
+        if (twitterAvroModel == null) {
+            parseFailures.increment();
+            skippedLineLog.warn("Skipping replayed message without a complete tweet of {} bytes", length);
+            return 0;
+        }
+        long parseNanos = System.nanoTime() - parseStartNanos;
+        awaitPlaybackTime(twitterAvroModel.getCreatedAt());
+        tweetsReceived.increment();
+        // the wait for the playback time is not part of the parse stage
+        tweetIngestPipeline.publish(twitterAvroModel, IngestMetrics.SOURCE_REPLAY, System.nanoTime() - parseNanos);
+        return 1;
+    }
+
+    private void resetPlayback() {
+        playbackStartNanos = System.nanoTime();
+        playbackOffsetMs = 0;
+        lastCreatedAtMs = Long.MIN_VALUE;
+    }
+
+    /**
+     * Parks until the tweet is due. Tweets of a stream are not strictly ordered by created_at, an earlier one is
+     * sent right away and does not move the playback clock back.
+     */
+    private void awaitPlaybackTime(Long createdAtMs) {
+        double speed = tweetReplayConfigData.getSpeed();
+        if (speed <= 0 || createdAtMs == null) {
+            return;
+        }
+        if (lastCreatedAtMs == Long.MIN_VALUE) {
+            lastCreatedAtMs = createdAtMs;
+            return;
+        }
+        if (createdAtMs > lastCreatedAtMs) {
+            playbackOffsetMs += Math.min(createdAtMs - lastCreatedAtMs, tweetReplayConfigData.getMaxGapMs());
+            lastCreatedAtMs = createdAtMs;
+        }
+        long dueNanos = playbackStartNanos + (long) (TimeUnit.MILLISECONDS.toNanos(playbackOffsetMs) / speed);
+        long waitNanos;
+        while (running && (waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == '\r' || b == '\n' || b == ' ' || b == '\t';
+    }
+
+    /**
+     * @return the file itself, or the capture files of a directory in name order, which is the capture order
+     */
+    private static List<Path> replayFiles(Path replayPath) {
+        if (Files.isRegularFile(replayPath)) {
+            return List.of(replayPath);
+        }
+        if (!Files.isDirectory(replayPath)) {
+            throw new IllegalStateException("Replay path " + replayPath + " does not exist");
+        }
+        try (Stream<Path> paths = Files.list(replayPath)) {
+            List<Path> files = paths
+                    .filter(path -> path.getFileName().toString().endsWith(CAPTURE_FILE_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .toList();
+            if (files.isEmpty()) {
+                throw new IllegalStateException("No " + CAPTURE_FILE_SUFFIX + " files in " + replayPath);
+            }
+            return files;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not list replay files in " + replayPath, e);
+        }
+    }
+}
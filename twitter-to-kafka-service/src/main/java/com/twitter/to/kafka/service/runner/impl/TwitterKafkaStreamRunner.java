@@ -3,13 +3,17 @@ package com.twitter.to.kafka.service.runner.impl;
 import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
 
 import com.twitter.to.kafka.service.listener.TwitterKafkaStatusListener;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
 import com.twitter.to.kafka.service.runner.StreamRunner;
+import io.micrometer.core.instrument.Counter;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import twitter4j.FilterQuery;
+import twitter4j.Status;
+import twitter4j.StatusAdapter;
 import twitter4j.TwitterException;
 import twitter4j.TwitterStream;
 import twitter4j.TwitterStreamFactory;
@@ -17,7 +21,8 @@ import twitter4j.TwitterStreamFactory;
 import java.util.Arrays;
 
 @Component
-@ConditionalOnExpression("not ${twitter-to-kafka-service.enable-mock-tweets} && not ${twitter-to-kafka-service.enable-v2-tweets}")
+@ConditionalOnExpression("not ${twitter-to-kafka-service.enable-mock-tweets} && not ${twitter-to-kafka-service.enable-v2-tweets}" +
+        " && not ${twitter-to-kafka-service.enable-replay-tweets:false}")
 public class TwitterKafkaStreamRunner implements StreamRunner {
 
     private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaStreamRunner.class);
@@ -26,26 +31,62 @@ public class TwitterKafkaStreamRunner implements StreamRunner {
 
     private final TwitterKafkaStatusListener twitterKafkaStatusListener;
 
+    private final IngestMetrics ingestMetrics;
+
     private TwitterStream twitterStream;
 
     public TwitterKafkaStreamRunner(TwitterToKafkaServiceConfigData configData,
-                                    TwitterKafkaStatusListener statusListener) {
+                                    TwitterKafkaStatusListener statusListener,
+                                    IngestMetrics ingestMetrics) {
         this.twitterToKafkaServiceConfigData = configData;
         this.twitterKafkaStatusListener = statusListener;
+        this.ingestMetrics = ingestMetrics;
     }
 
     @Override
     public void start() throws TwitterException {
         twitterStream = new TwitterStreamFactory().getInstance();
         twitterStream.addListener(twitterKafkaStatusListener);
+        twitterStream.addListener(new SourceMetricsListener(ingestMetrics.tweetsReceived(IngestMetrics.SOURCE_TWITTER_V1),
+                ingestMetrics.parseFailures(IngestMetrics.SOURCE_TWITTER_V1)));
         addFilter();
     }
 
+    /**
+     * The twitter4j stream runs on its own dispatcher threads, stopping means shutting it down.
+     */
+    @Override
     @PreDestroy
-    public void shutdown() {
+    public void stop() {
         if (twitterStream != null) {
             LOG.info("Closing twitter stream!");
             twitterStream.shutdown();
+            twitterStream = null;
+        }
+    }
+
+    /**
+     * Counts what the twitter4j dispatcher delivers. Parse errors of twitter4j surface as exceptions of the
+     * stream, so they are counted as parse failures of this source.
+     */
+    private static class SourceMetricsListener extends StatusAdapter {
+
+        private final Counter tweetsReceived;
+        private final Counter parseFailures;
+
+        SourceMetricsListener(Counter tweetsReceived, Counter parseFailures) {
+            this.tweetsReceived = tweetsReceived;
+            this.parseFailures = parseFailures;
+        }
+
+        @Override
+        public void onStatus(Status status) {
+            tweetsReceived.increment();
+        }
+
+        @Override
+        public void onException(Exception ex) {
+            parseFailures.increment();
         }
     }
 
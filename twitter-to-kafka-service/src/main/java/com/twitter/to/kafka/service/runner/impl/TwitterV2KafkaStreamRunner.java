@@ -2,13 +2,14 @@ package com.twitter.to.kafka.service.runner.impl;
 
 import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
 
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
 import com.twitter.to.kafka.service.runner.StreamRunner;
+import jakarta.annotation.PreDestroy;
 import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
-import twitter4j.TwitterException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -21,7 +22,8 @@ import java.util.Map;
  */
 
 @Component
-@ConditionalOnExpression("${twitter-to-kafka-service.enable-v2-tweets} && not ${twitter-to-kafka-service.enable-mock-tweets}")
+@ConditionalOnExpression("${twitter-to-kafka-service.enable-v2-tweets} && not ${twitter-to-kafka-service.enable-mock-tweets}" +
+        " && not ${twitter-to-kafka-service.enable-replay-tweets:false}")
 //@ConditionalOnProperty(name = "twitter-to-kafka-service.enable-v2-tweets", havingValue = "true", matchIfMissing = true)
 public class TwitterV2KafkaStreamRunner implements StreamRunner {
 
@@ -31,23 +33,31 @@ public class TwitterV2KafkaStreamRunner implements StreamRunner {
 
     private final TwitterV2StreamHelper twitterV2StreamHelper;
 
+    private final ExecutionModel executionModel;
+
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    private volatile boolean running;
+
+    private Thread streamThread;
+
     public TwitterV2KafkaStreamRunner(TwitterToKafkaServiceConfigData configData,
-                                      TwitterV2StreamHelper twitterV2StreamHelper) {
+                                      TwitterV2StreamHelper twitterV2StreamHelper,
+                                      ExecutionModel executionModel) {
         this.twitterToKafkaServiceConfigData = configData;
         this.twitterV2StreamHelper = twitterV2StreamHelper;
+        this.executionModel = executionModel;
     }
 
+    /**
+     * Starts the stream on its own thread, the blocking reads no longer hold the CommandLineRunner thread.
+     */
     @Override
     public void start() {
         String bearerToken = twitterToKafkaServiceConfigData.getTwitterV2BearerToken();
         if (null != bearerToken) {
-            try {
-                twitterV2StreamHelper.setupRules(bearerToken, getRules());
-                twitterV2StreamHelper.connectStream(bearerToken);
-            } catch (IOException | URISyntaxException | TwitterException | JSONException e) {
-                LOG.error("Error streaming tweets!", e);
-                throw new RuntimeException("Error streaming tweets!", e);
-            }
+            running = true;
+            streamThread = executionModel.startThread("twitter-v2-stream", () -> stream(bearerToken));
         } else {
             LOG.error("There was a problem getting your bearer token. " +
                     "Please make sure you set the TWITTER_BEARER_TOKEN environment variable");
@@ -56,6 +66,40 @@ public class TwitterV2KafkaStreamRunner implements StreamRunner {
         }
     }
 
+    /**
+     * Closes the stream and interrupts the stream thread, which makes the pending read on the response body fail
+     * and ends the stream.
+     */
+    @Override
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (streamThread != null) {
+            LOG.info("Closing twitter v2 stream!");
+            twitterV2StreamHelper.disconnect();
+            streamThread.interrupt();
+            try {
+                streamThread.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            streamThread = null;
+        }
+    }
+
+    private void stream(String bearerToken) {
+        try {
+            twitterV2StreamHelper.setupRules(bearerToken, getRules());
+            twitterV2StreamHelper.connectStream(bearerToken);
+        } catch (IOException | URISyntaxException | JSONException e) {
+            if (running) {
+                LOG.error("Error streaming tweets!", e);
+            } else {
+                LOG.info("Twitter v2 stream stopped");
+            }
+        }
+    }
+
     private Map<String, String> getRules() {
         List<String> keywords = twitterToKafkaServiceConfigData.getTwitterKeywords();
         Map<String, String> rules = new HashMap<>();
@@ -1,18 +1,16 @@
 package com.twitter.to.kafka.service.runner.impl;
 
+import com.microservices.demo.config.TweetReplayConfigData;
 import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
-import com.twitter.to.kafka.service.listener.TwitterKafkaStatusListener;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.CookieSpecs;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import com.microservices.demo.config.TwitterV2HttpClientConfigData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.microservices.demo.common.logging.HotPathLogger;
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.twitter.to.kafka.service.decoder.TwitterV2StreamDecoder;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -20,24 +18,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
-import twitter4j.Status;
-import twitter4j.TwitterException;
-import twitter4j.TwitterObjectFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
 import java.net.URISyntaxException;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.GZIPInputStream;
 
 @Component
-@ConditionalOnExpression("${twitter-to-kafka-service.enable-v2-tweets} && not ${twitter-to-kafka-service.enable-mock-tweets}")
+@ConditionalOnExpression("${twitter-to-kafka-service.enable-v2-tweets} && not ${twitter-to-kafka-service.enable-mock-tweets}" +
+        " && not ${twitter-to-kafka-service.enable-replay-tweets:false}")
 //@ConditionalOnProperty(name = "twitter-to-kafka-service.enable-v2-tweets", havingValue = "true", matchIfMissing = true)
 public class TwitterV2StreamHelper {
 
@@ -45,61 +50,138 @@ public class TwitterV2StreamHelper {
 
     private final TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData;
 
-    private final TwitterKafkaStatusListener twitterKafkaStatusListener;
+    private final TwitterV2HttpClientConfigData twitterV2HttpClientConfigData;
 
-    private static final String tweetAsRawJson = "{" +
-            "\"created_at\":\"{0}\"," +
-            "\"id\":\"{1}\"," +
-            "\"text\":\"{2}\"," +
-            "\"user\":{\"id\":\"{3}\"}" +
-            "}";
+    private final TweetReplayConfigData tweetReplayConfigData;
 
-    private static final String TWITTER_STATUS_DATE_FORMAT = "EEE MMM dd HH:mm:ss zzz yyyy";
+    private final HttpClient twitterV2HttpClient;
+
+    private final TweetIngestPipeline tweetIngestPipeline;
+
+    private final TwitterV2StreamDecoder twitterV2StreamDecoder;
+
+    private final Counter tweetsReceived;
+
+    private final Counter parseFailures;
+
+    private final HotPathLogger skippedMessageLog;
+
+    private volatile InputStream activeStream;
+
+    private final ScheduledExecutorService readTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "twitter-v2-read-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final String TWEET_FIELDS_PARAMETER = "tweet.fields";
+
+    private static final String TWEET_FIELDS = "created_at,author_id";
+
+    private static final String GZIP = "gzip";
+
+    private static final DateTimeFormatter CAPTURE_FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
 
     public TwitterV2StreamHelper(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData,
-                                 TwitterKafkaStatusListener twitterKafkaStatusListener) {
+                                 TwitterV2HttpClientConfigData twitterV2HttpClientConfigData,
+                                 TweetReplayConfigData tweetReplayConfigData,
+                                 HttpClient twitterV2HttpClient,
+                                 TweetIngestPipeline tweetIngestPipeline,
+                                 TwitterV2StreamDecoder twitterV2StreamDecoder,
+                                 IngestMetrics ingestMetrics,
+                                 HotPathLoggerFactory hotPathLoggerFactory) {
         this.twitterToKafkaServiceConfigData = twitterToKafkaServiceConfigData;
-        this.twitterKafkaStatusListener = twitterKafkaStatusListener;
+        this.twitterV2HttpClientConfigData = twitterV2HttpClientConfigData;
+        this.tweetReplayConfigData = tweetReplayConfigData;
+        this.twitterV2HttpClient = twitterV2HttpClient;
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.twitterV2StreamDecoder = twitterV2StreamDecoder;
+        this.tweetsReceived = ingestMetrics.tweetsReceived(IngestMetrics.SOURCE_TWITTER_V2);
+        this.parseFailures = ingestMetrics.parseFailures(IngestMetrics.SOURCE_TWITTER_V2);
+        this.skippedMessageLog = hotPathLoggerFactory.getLogger(TwitterV2StreamHelper.class,
+                "twitter-v2.skipped-message");
     }
 
     /*
-     * This method calls the filtered stream endpoint and streams Tweets from it
+     * This method calls the filtered stream endpoint and streams Tweets from it.
+     * The entity stream is decoded in a single pass into avro models which are handed to the ingest pipeline.
+     * The request timeout bounds the wait for the response headers only, with a streamed body the client does not
+     * time out reads. Once the headers are in, reads are guarded by IdleTimeoutInputStream.
+     * With capture enabled the decoded body is also written to a file for ReplayKafkaStreamRunner.
      * */
-    void connectStream(String bearerToken) throws IOException, URISyntaxException, TwitterException, JSONException {
-
-        HttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setCookieSpec(CookieSpecs.STANDARD).build())
+    void connectStream(String bearerToken) throws IOException, URISyntaxException, JSONException {
+        HttpRequest request = authorizedRequest(getStreamUri(), bearerToken)
+                .timeout(Duration.ofMillis(twitterV2HttpClientConfigData.getRequestTimeoutMs()))
+                .GET()
                 .build();
-
-        URIBuilder uriBuilder = new URIBuilder(twitterToKafkaServiceConfigData.getTwitterV2BaseUrl());
-
-        HttpGet httpGet = new HttpGet(uriBuilder.build());
-        httpGet.setHeader("Authorization", String.format("Bearer %s", bearerToken));
-
-        HttpResponse response = httpClient.execute(httpGet);
-        HttpEntity entity = response.getEntity();
-        if (null != entity) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader((entity.getContent())));
-            String line = reader.readLine();
-            while (line != null) {
-                line = reader.readLine();
-                if (!line.isEmpty()) {
-                    String tweet = getFormattedTweet(line);
-                    Status status = null;
-                    try {
-                        status = TwitterObjectFactory.createStatus(tweet);
-                    } catch (TwitterException e) {
-                        LOG.error("Could not create status for text: {}", tweet, e);
-                    }
-                    if (status != null) {
-                        twitterKafkaStatusListener.onStatus(status);
-                    }
-                }
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = decodedBody(response);
+        if (response.statusCode() == 200 && Boolean.TRUE.equals(tweetReplayConfigData.getCaptureEnabled())) {
+            body = capture(body);
+        }
+        try (IdleTimeoutInputStream content = new IdleTimeoutInputStream(body,
+                twitterV2HttpClientConfigData.getStreamReadTimeoutMs(), readTimeoutScheduler)) {
+            activeStream = content;
+            if (response.statusCode() != 200) {
+                throw new IOException("Twitter v2 stream returned status " + response.statusCode() + ": " +
+                        new String(content.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            long tweetCount;
+            try {
+                tweetCount = twitterV2StreamDecoder.decode(content, twitterAvroModel -> {
+                    tweetsReceived.increment();
+                    tweetIngestPipeline.publish(twitterAvroModel, IngestMetrics.SOURCE_TWITTER_V2,
+                            content.getLastReadNanos());
+                }, this::onSkippedMessage);
+            } catch (JsonProcessingException e) {
+                parseFailures.increment();
+                throw e;
             }
+            LOG.info("Twitter v2 stream ended after {} tweet(s)", tweetCount);
+        } finally {
+            activeStream = null;
         }
     }
 
+    /*
+     * Closes the open stream, if any, so the pending read in connectStream fails right away and the connection
+     * is released instead of waiting for the next keep-alive or the read timeout.
+     * */
+    void disconnect() {
+        InputStream stream = activeStream;
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            LOG.warn("Error closing twitter v2 stream", e);
+        }
+    }
+
+    /*
+     * Starts a new capture file per connection, named by its start time so a directory replays in capture order.
+     * */
+    private InputStream capture(InputStream body) {
+        Path captureFile = Path.of(tweetReplayConfigData.getCaptureDirectory(),
+                "twitter-v2-" + LocalDateTime.now().format(CAPTURE_FILE_TIMESTAMP) + ".ndjson");
+        try {
+            Files.createDirectories(captureFile.getParent());
+            InputStream capturingBody = new CapturingInputStream(body, captureFile);
+            LOG.info("Capturing the twitter v2 stream to {}", captureFile);
+            return capturingBody;
+        } catch (IOException e) {
+            LOG.warn("Could not create capture file {}, streaming without capture", captureFile, e);
+            return body;
+        }
+    }
+
+    private void onSkippedMessage() {
+        parseFailures.increment();
+        skippedMessageLog.warn("Skipping v2 stream message without id or author_id, " +
+                "check that tweet.fields contains author_id");
+    }
+
     /*
      * Helper method to setup rules before streaming data
      * */
@@ -112,28 +194,17 @@ public class TwitterV2StreamHelper {
         LOG.info("Created rules for twitter stream {}", rules.keySet().toArray());
     }
 
+    @PreDestroy
+    public void shutdown() {
+        readTimeoutScheduler.shutdownNow();
+    }
 
     /*
      * Helper method to create rules for filtering
      * */
     private void createRules(String bearerToken, Map<String, String> rules) throws URISyntaxException, IOException {
-        HttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setCookieSpec(CookieSpecs.STANDARD).build())
-                .build();
-
-        URIBuilder uriBuilder = new URIBuilder(twitterToKafkaServiceConfigData.getTwitterV2RulesBaseUrl());
-
-        HttpPost httpPost = new HttpPost(uriBuilder.build());
-        httpPost.setHeader("Authorization", String.format("Bearer %s", bearerToken));
-        httpPost.setHeader("content-type", "application/json");
-        StringEntity body = new StringEntity(getFormattedString("{\"add\": [%s]}", rules));
-        httpPost.setEntity(body);
-        HttpResponse response = httpClient.execute(httpPost);
-        HttpEntity entity = response.getEntity();
-        if (null != entity) {
-            System.out.println(EntityUtils.toString(entity, "UTF-8"));
-        }
+        String body = getFormattedString("{\"add\": [%s]}", rules);
+        LOG.info("Create rules response: {}", postRules(bearerToken, body));
     }
 
     /*
@@ -141,26 +212,18 @@ public class TwitterV2StreamHelper {
      * */
     private List<String> getRules(String bearerToken) throws URISyntaxException, IOException {
         List<String> rules = new ArrayList<>();
-        HttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setCookieSpec(CookieSpecs.STANDARD).build())
+        HttpRequest request = authorizedRequest(new URI(twitterToKafkaServiceConfigData.getTwitterV2RulesBaseUrl()),
+                bearerToken)
+                .header("content-type", "application/json")
+                .timeout(Duration.ofMillis(twitterV2HttpClientConfigData.getRequestTimeoutMs()))
+                .GET()
                 .build();
-
-        URIBuilder uriBuilder = new URIBuilder(twitterToKafkaServiceConfigData.getTwitterV2RulesBaseUrl());
-
-        HttpGet httpGet = new HttpGet(uriBuilder.build());
-        httpGet.setHeader("Authorization", String.format("Bearer %s", bearerToken));
-        httpGet.setHeader("content-type", "application/json");
-        HttpResponse response = httpClient.execute(httpGet);
-        HttpEntity entity = response.getEntity();
-        if (null != entity) {
-            JSONObject json = new JSONObject(EntityUtils.toString(entity, "UTF-8"));
-            if (json.length() > 1 && json.has("data")) {
-                JSONArray array = (JSONArray) json.get("data");
-                for (int i = 0; i < array.length(); i++) {
-                    JSONObject jsonObject = (JSONObject) array.get(i);
-                    rules.add(jsonObject.getString("id"));
-                }
+        JSONObject json = new JSONObject(readBody(send(request, HttpResponse.BodyHandlers.ofInputStream())));
+        if (json.length() > 1 && json.has("data")) {
+            JSONArray array = (JSONArray) json.get("data");
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject jsonObject = (JSONObject) array.get(i);
+                rules.add(jsonObject.getString("id"));
             }
         }
         return rules;
@@ -170,23 +233,59 @@ public class TwitterV2StreamHelper {
      * Helper method to delete rules
      * */
     private void deleteRules(String bearerToken, List<String> existingRules) throws URISyntaxException, IOException {
-        HttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setCookieSpec(CookieSpecs.STANDARD).build())
+        String body = getFormattedString("{ \"delete\": { \"ids\": [%s]}}", existingRules);
+        LOG.info("Delete rules response: {}", postRules(bearerToken, body));
+    }
+
+    private String postRules(String bearerToken, String body) throws URISyntaxException, IOException {
+        HttpRequest request = authorizedRequest(new URI(twitterToKafkaServiceConfigData.getTwitterV2RulesBaseUrl()),
+                bearerToken)
+                .header("content-type", "application/json")
+                .timeout(Duration.ofMillis(twitterV2HttpClientConfigData.getRequestTimeoutMs()))
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                 .build();
+        return readBody(send(request, HttpResponse.BodyHandlers.ofInputStream()));
+    }
 
-        URIBuilder uriBuilder = new URIBuilder(twitterToKafkaServiceConfigData.getTwitterV2RulesBaseUrl());
-
-        HttpPost httpPost = new HttpPost(uriBuilder.build());
-        httpPost.setHeader("Authorization", String.format("Bearer %s", bearerToken));
-        httpPost.setHeader("content-type", "application/json");
-        StringEntity body = new StringEntity(getFormattedString("{ \"delete\": { \"ids\": [%s]}}",
-                existingRules));
-        httpPost.setEntity(body);
-        HttpResponse response = httpClient.execute(httpPost);
-        HttpEntity entity = response.getEntity();
-        if (null != entity) {
-            System.out.println(EntityUtils.toString(entity, "UTF-8"));
+    private URI getStreamUri() throws URISyntaxException {
+        String baseUrl = twitterToKafkaServiceConfigData.getTwitterV2BaseUrl();
+        URI uri = new URI(baseUrl);
+        String query = uri.getRawQuery();
+        if (query != null && query.contains(TWEET_FIELDS_PARAMETER + "=")) {
+            return uri;
+        }
+        String separator = query == null ? "?" : "&";
+        return new URI(baseUrl + separator + TWEET_FIELDS_PARAMETER + "=" + TWEET_FIELDS);
+    }
+
+    private HttpRequest.Builder authorizedRequest(URI uri, String bearerToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Authorization", String.format("Bearer %s", bearerToken));
+        if (Boolean.TRUE.equals(twitterV2HttpClientConfigData.getGzipEnabled())) {
+            builder.header("Accept-Encoding", GZIP);
+        }
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        try {
+            return twitterV2HttpClient.send(request, bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling " + request.uri());
+        }
+    }
+
+    private InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(GZIP::equalsIgnoreCase)
+                .orElse(false);
+        return gzipped ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    private String readBody(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream content = decodedBody(response)) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
         }
     }
 
@@ -219,28 +318,4 @@ public class TwitterV2StreamHelper {
         }
     }
 
-    public String getFormattedTweet(String jsonString) {
-        try {
-            LOG.info("Parsing JSON string: {}", jsonString);
-            if (!jsonString.trim().startsWith("{")) {
-                throw new IllegalArgumentException("Invalid JSON string: " + jsonString);
-            }
-            JSONObject jsonObject = new JSONObject(jsonString);
-            // Process the JSON object as needed
-            return jsonObject.toString();
-        } catch (JSONException e) {
-            LOG.error("Failed to parse JSON string: {}", jsonString, e);
-            throw new IllegalArgumentException("Invalid JSON string: " + jsonString, e);
-        }
-    }
-
-    private String formatTweetAsJsonWithParams(String[] params) {
-        String tweet = tweetAsRawJson;
-
-        for (int i = 0; i < params.length; i++) {
-            tweet = tweet.replace("{" + i + "}", params[i]);
-        }
-        return tweet;
-    }
-
 }
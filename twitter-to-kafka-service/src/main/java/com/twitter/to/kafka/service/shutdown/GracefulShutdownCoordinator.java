@@ -0,0 +1,98 @@
+package com.twitter.to.kafka.service.shutdown;
+
+import com.microservices.demo.config.GracefulShutdownConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.producer.metrics.ProducerMetrics;
+import com.microservices.demo.kafka.producer.service.KafkaProducer;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import com.twitter.to.kafka.service.runner.StreamRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shuts the ingest path down front to back when the context closes, before any bean is destroyed: the stream
+ * source is stopped, the pipeline buffers are drained into the producer and the producer is flushed. All three
+ * share one deadline of graceful-shutdown-config.drain-timeout-ms, so a rolling deploy neither hangs on a slow
+ * broker nor drops the tail of the stream while the broker keeps up.
+ * <p>
+ * The outcome is logged as the records acked and failed during the shutdown and those abandoned: tweets left in
+ * the buffers plus records still in flight at the deadline.
+ */
+@Component
+public class GracefulShutdownCoordinator implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GracefulShutdownCoordinator.class);
+
+    private final GracefulShutdownConfigData gracefulShutdownConfigData;
+
+    private final StreamRunner streamRunner;
+
+    private final TweetIngestPipeline tweetIngestPipeline;
+
+    private final KafkaProducer<Long, TwitterAvroModel> kafkaProducer;
+
+    private final ProducerMetrics producerMetrics;
+
+    private volatile boolean running;
+
+    public GracefulShutdownCoordinator(GracefulShutdownConfigData gracefulShutdownConfigData,
+                                       StreamRunner streamRunner,
+                                       TweetIngestPipeline tweetIngestPipeline,
+                                       KafkaProducer<Long, TwitterAvroModel> kafkaProducer,
+                                       ProducerMetrics producerMetrics) {
+        this.gracefulShutdownConfigData = gracefulShutdownConfigData;
+        this.streamRunner = streamRunner;
+        this.tweetIngestPipeline = tweetIngestPipeline;
+        this.kafkaProducer = kafkaProducer;
+        this.producerMetrics = producerMetrics;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long timeoutMs = gracefulShutdownConfigData.getDrainTimeoutMs();
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long ackedBefore = producerMetrics.getAckedCount();
+        long failedBefore = producerMetrics.getFailedCount();
+        LOG.info("Shutting down the ingest path within {} ms", timeoutMs);
+
+        streamRunner.stop();
+        int abandonedTweets = tweetIngestPipeline.drain(remainingMs(deadlineNanos));
+        boolean flushed = kafkaProducer.flush(remainingMs(deadlineNanos));
+
+        long abandonedRecords = producerMetrics.getInFlight();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long acked = producerMetrics.getAckedCount() - ackedBefore;
+        long failed = producerMetrics.getFailedCount() - failedBefore;
+        if (flushed && abandonedTweets == 0) {
+            LOG.info("Ingest path drained in {} ms: {} record(s) acked, {} failed, none abandoned",
+                    elapsedMs, acked, failed);
+        } else {
+            LOG.warn("Ingest path not drained within {} ms: {} record(s) acked, {} failed, {} abandoned " +
+                            "({} tweet(s) still buffered, {} record(s) still in flight)", elapsedMs, acked, failed,
+                    abandonedTweets + abandonedRecords, abandonedTweets, abandonedRecords);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static long remainingMs(long deadlineNanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+}
@@ -0,0 +1,25 @@
+package com.twitter.to.kafka.service.transformer;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import org.springframework.stereotype.Component;
+import twitter4j.Status;
+
+@Component
+public class TwitterStatusToAvroTransformer {
+
+    /**
+     * Maps a twitter4j status onto the Avro model that is written to the twitter topic.
+     *
+     * @param status the status received from one of the stream runners
+     * @return the Avro representation of the status, keyed later by its user id
+     */
+    public TwitterAvroModel getTwitterAvroModelFromStatus(Status status) {
+        return TwitterAvroModel
+                .newBuilder()
+                .setId(status.getId())
+                .setUserId(status.getUser().getId())
+                .setText(status.getText())
+                .setCreatedAt(status.getCreatedAt().getTime())
+                .build();
+    }
+}
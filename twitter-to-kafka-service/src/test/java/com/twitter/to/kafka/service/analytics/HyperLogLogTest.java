@@ -0,0 +1,122 @@
+package com.twitter.to.kafka.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static final int PRECISION = 14;
+
+    /**
+     * Three standard errors at {@link #PRECISION}.
+     */
+    private static final double MAX_RELATIVE_ERROR = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+
+    @Test
+    void estimatesWithinErrorBound() {
+        for (long cardinality : new long[]{10_000, 100_000, 1_000_000}) {
+            HyperLogLog hyperLogLog = new HyperLogLog(PRECISION);
+            addRange(hyperLogLog, 1, cardinality);
+
+            assertThat((double) hyperLogLog.estimate()).as("estimate of %d values", cardinality)
+                    .isCloseTo(cardinality, within(MAX_RELATIVE_ERROR * cardinality));
+        }
+    }
+
+    @Test
+    void countsSmallCardinalitiesAlmostExactly() {
+        HyperLogLog hyperLogLog = new HyperLogLog(PRECISION);
+        assertThat(hyperLogLog.isEmpty()).isTrue();
+        assertThat(hyperLogLog.estimate()).isZero();
+
+        addRange(hyperLogLog, 1, 100);
+        // duplicates do not count
+        addRange(hyperLogLog, 1, 100);
+
+        assertThat(hyperLogLog.isEmpty()).isFalse();
+        assertThat(hyperLogLog.estimate()).isBetween(98L, 102L);
+
+        hyperLogLog.clear();
+        assertThat(hyperLogLog.isEmpty()).isTrue();
+        assertThat(hyperLogLog.estimate()).isZero();
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        addRange(first, 1, 60_000);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        addRange(second, 40_001, 100_000);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        addRange(union, 1, 100_000);
+
+        first.merge(second);
+
+        assertThat(first.toBytes()).isEqualTo(union.toBytes());
+        assertThat((double) first.estimate()).isCloseTo(100_000, within(MAX_RELATIVE_ERROR * 100_000));
+        // merging is idempotent
+        first.merge(second);
+        assertThat(first.estimate()).isEqualTo(union.estimate());
+    }
+
+    @Test
+    void rejectsMergeOfDifferentPrecision() {
+        HyperLogLog hyperLogLog = new HyperLogLog(PRECISION);
+        assertThatThrownBy(() -> hyperLogLog.merge(new HyperLogLog(PRECISION - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        HyperLogLog hyperLogLog = new HyperLogLog(PRECISION);
+        addRange(hyperLogLog, 1, 50_000);
+
+        byte[] bytes = hyperLogLog.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes).hasSize(2 + (1 << PRECISION));
+        assertThat(restored.getPrecision()).isEqualTo(PRECISION);
+        assertThat(restored.estimate()).isEqualTo(hyperLogLog.estimate());
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+
+        // the restored sketch keeps counting where the original left off
+        addRange(hyperLogLog, 50_001, 60_000);
+        addRange(restored, 50_001, 60_000);
+        assertThat(restored.toBytes()).isEqualTo(hyperLogLog.toBytes());
+    }
+
+    @Test
+    void rejectsBytesNotWrittenByToBytes() {
+        byte[] bytes = new HyperLogLog(PRECISION).toBytes();
+
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[1])).isInstanceOf(IllegalArgumentException.class);
+        byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 2;
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(otherVersion)).isInstanceOf(IllegalArgumentException.class);
+        byte[] otherPrecision = bytes.clone();
+        otherPrecision[1] = PRECISION + 1;
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(otherPrecision)).isInstanceOf(IllegalArgumentException.class);
+        byte[] invalidPrecision = bytes.clone();
+        invalidPrecision[1] = HyperLogLog.MAX_PRECISION + 1;
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(invalidPrecision))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void addRange(HyperLogLog hyperLogLog, long from, long to) {
+        for (long value = from; value <= to; value++) {
+            hyperLogLog.add(value);
+        }
+    }
+}
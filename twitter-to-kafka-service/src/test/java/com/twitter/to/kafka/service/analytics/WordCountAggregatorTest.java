@@ -0,0 +1,212 @@
+package com.twitter.to.kafka.service.analytics;
+
+import com.microservices.demo.config.AnalyticsConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAnalyticsAvroModel;
+import com.twitter.to.kafka.service.concurrent.ExecutionModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the panes of {@link WordCountAggregator} with explicit times instead of its aggregator thread, and checks
+ * the word counts it sends for the sliding and tumbling windows.
+ */
+class WordCountAggregatorTest {
+
+    private static final String TOPIC_NAME = "twitter-analytics-topic";
+    private static final long SLIDE_MS = 1000;
+
+    private final List<ProducerRecord<String, TwitterAnalyticsAvroModel>> sent = new ArrayList<>();
+
+    @Test
+    void foldsWordsAndKeepsCountsOfKnownWordsWhenFull() {
+        StringLongHashMap counts = new StringLongHashMap(2);
+        String text = "Kafka KAFKA kafka java spring";
+
+        assertThat(counts.addTo(text, 0, 5, 1)).isTrue();
+        assertThat(counts.addTo(text, 6, 11, 1)).isTrue();
+        assertThat(counts.addTo(text, 12, 17, 1)).isTrue();
+        assertThat(counts.addTo(text, 18, 22, 1)).isTrue();
+        // a new word does not fit, known ones are still counted
+        assertThat(counts.addTo(text, 23, 29, 1)).isFalse();
+        assertThat(counts.addTo("java", 2)).isTrue();
+
+        assertThat(toMap(counts)).containsExactlyInAnyOrderEntriesOf(Map.of("kafka", 3L, "java", 3L));
+        assertThat(counts.containsKey("JAVA", 0, 4)).isTrue();
+        assertThat(counts.containsKey(text, 23, 29)).isFalse();
+    }
+
+    @Test
+    void mergesMapsAndReportsDroppedWords() {
+        StringLongHashMap target = new StringLongHashMap(2);
+        target.addTo("kafka", 1);
+        StringLongHashMap other = new StringLongHashMap(4);
+        other.addTo("kafka", 2);
+        other.addTo("java", 3);
+        other.addTo("spring", 4);
+
+        // kafka is merged, one of java and spring is dropped
+        assertThat(target.mergeFrom(other)).isEqualTo(1);
+        assertThat(target.size()).isEqualTo(2);
+        assertThat(toMap(target)).containsEntry("kafka", 3L);
+
+        int capacity = target.capacity();
+        target.clear();
+        assertThat(target.size()).isZero();
+        assertThat(target.capacity()).isEqualTo(capacity);
+        assertThat(toMap(target)).isEmpty();
+    }
+
+    @Test
+    void rollsPanesOverSlidingAndTumblingWindows() {
+        // three panes per sliding window, two per tumbling window
+        WordCountAggregator aggregator = aggregator(3 * SLIDE_MS, 2 * SLIDE_MS, 10);
+
+        aggregator.countWords("Kafka kafka, java!");
+        aggregator.advanceTo(SLIDE_MS);
+        assertThat(windowCounts("sliding", SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("kafka", 2L, "java", 1L));
+        assertThat(windowCounts("tumbling", SLIDE_MS)).isEmpty();
+
+        aggregator.countWords("kafka and spring");
+        aggregator.advanceTo(2 * SLIDE_MS);
+        assertThat(windowCounts("sliding", 2 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("kafka", 3L, "java", 1L, "spring", 1L));
+        assertThat(windowCounts("tumbling", 2 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("kafka", 3L, "java", 1L, "spring", 1L));
+
+        aggregator.countWords("spring");
+        aggregator.advanceTo(3 * SLIDE_MS);
+        assertThat(windowCounts("sliding", 3 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("kafka", 3L, "java", 1L, "spring", 2L));
+
+        // the first pane has left the sliding window and was cleared for the fourth one
+        aggregator.countWords("SPRING");
+        aggregator.advanceTo(4 * SLIDE_MS);
+        assertThat(windowCounts("sliding", 4 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("kafka", 1L, "spring", 3L));
+        assertThat(windowCounts("tumbling", 4 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("spring", 2L));
+
+        // a gap closes every pane on the way, empty windows send nothing
+        sent.clear();
+        aggregator.advanceTo(8 * SLIDE_MS);
+        assertThat(windowCounts("sliding", 5 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("spring", 2L));
+        assertThat(windowCounts("sliding", 6 * SLIDE_MS)).containsExactlyInAnyOrderEntriesOf(
+                Map.of("spring", 1L));
+        assertThat(sent).allSatisfy(record -> assertThat(record.timestamp()).isLessThanOrEqualTo(6 * SLIDE_MS));
+    }
+
+    @Test
+    void sendsTopWordsByCountIncludingTies() {
+        WordCountAggregator aggregator = aggregator(SLIDE_MS, SLIDE_MS, 3);
+
+        aggregator.countWords("kafka kafka kafka kafka java java java spring spring spring avro");
+        aggregator.advanceTo(SLIDE_MS);
+
+        List<TwitterAnalyticsAvroModel> sliding = window("sliding", SLIDE_MS);
+        // java and spring tie for the second place, both fit into the top three
+        assertThat(sliding).extracting(TwitterAnalyticsAvroModel::getWordCount).containsExactly(4L, 3L, 3L);
+        assertThat(sliding).extracting(TwitterAnalyticsAvroModel::getWord)
+                .startsWith("kafka").containsExactlyInAnyOrder("kafka", "java", "spring");
+        assertThat(sliding).extracting(TwitterAnalyticsAvroModel::getCreatedAt).containsOnly(SLIDE_MS);
+        assertThat(sent).allSatisfy(record -> {
+            assertThat(record.topic()).isEqualTo(TOPIC_NAME);
+            assertThat(record.key()).isEqualTo(record.value().getWord());
+            assertThat(header(record, "window-size-ms")).isEqualTo(Long.toString(SLIDE_MS));
+        });
+    }
+
+    @Test
+    void breaksTiesAtTheCutOffByKeepingOneOfThem() {
+        WordCountAggregator aggregator = aggregator(SLIDE_MS, SLIDE_MS, 2);
+
+        aggregator.countWords("kafka kafka kafka java java spring spring avro");
+        aggregator.advanceTo(SLIDE_MS);
+
+        List<TwitterAnalyticsAvroModel> sliding = window("sliding", SLIDE_MS);
+        assertThat(sliding).extracting(TwitterAnalyticsAvroModel::getWordCount).containsExactly(3L, 2L);
+        assertThat(sliding.get(0).getWord()).isEqualTo("kafka");
+        assertThat(sliding.get(1).getWord()).isIn("java", "spring");
+    }
+
+    @Test
+    void skipsStopWordsAndWordsOutsideLengthBounds() {
+        WordCountAggregator aggregator = aggregator(SLIDE_MS, SLIDE_MS, 10);
+
+        aggregator.countWords("The kafka is an event streaming platform, THE end");
+        aggregator.advanceTo(SLIDE_MS);
+
+        assertThat(windowCounts("sliding", SLIDE_MS)).containsOnlyKeys("kafka", "event", "platform", "end");
+    }
+
+    private WordCountAggregator aggregator(long slidingWindowMs, long tumblingWindowMs, int topWords) {
+        AnalyticsConfigData analyticsConfigData = new AnalyticsConfigData();
+        analyticsConfigData.setEnabled(true);
+        analyticsConfigData.setTopicName(TOPIC_NAME);
+        analyticsConfigData.setSlideMs(SLIDE_MS);
+        analyticsConfigData.setSlidingWindowMs(slidingWindowMs);
+        analyticsConfigData.setTumblingWindowMs(tumblingWindowMs);
+        analyticsConfigData.setTopWords(topWords);
+        analyticsConfigData.setMinWordLength(3);
+        analyticsConfigData.setMaxWordLength(8);
+        analyticsConfigData.setMaxDistinctWords(100);
+        analyticsConfigData.setBufferCapacity(16);
+        analyticsConfigData.setStopWords(List.of("the", "and"));
+
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, TwitterAnalyticsAvroModel> analyticsKafkaTemplate = mock(KafkaTemplate.class);
+        when(analyticsKafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return new CompletableFuture<>();
+        });
+
+        WordCountAggregator aggregator = new WordCountAggregator(analyticsConfigData, analyticsKafkaTemplate,
+                mock(ExecutionModel.class), new SimpleMeterRegistry());
+        // no aggregator thread, the test closes the panes
+        aggregator.initWindows(0);
+        return aggregator;
+    }
+
+    private List<TwitterAnalyticsAvroModel> window(String windowType, long windowEndMs) {
+        return sent.stream()
+                .filter(record -> record.timestamp() == windowEndMs)
+                .filter(record -> windowType.equals(header(record, "window-type")))
+                .map(ProducerRecord::value)
+                .toList();
+    }
+
+    private Map<String, Long> windowCounts(String windowType, long windowEndMs) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        window(windowType, windowEndMs).forEach(model -> counts.put(model.getWord(), model.getWordCount()));
+        return counts;
+    }
+
+    private static String header(ProducerRecord<String, TwitterAnalyticsAvroModel> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Long> toMap(StringLongHashMap counts) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (counts.keyAt(slot) != null) {
+                map.put(counts.keyAt(slot), counts.valueAt(slot));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,97 @@
+package com.twitter.to.kafka.service.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void reportsOverlappingAndNestedKeywords() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("he", "she", "his", "hers"));
+
+        // "she" ends where "he" ends, "hers" starts inside "she"
+        assertThat(matcher.match("ushers")).containsExactly("he", "she", "hers");
+        assertThat(matcher.match("this")).containsExactly("his");
+        assertThat(matcher.match("hs")).isEmpty();
+    }
+
+    @Test
+    void reportsKeywordThatIsSuffixOfAnother() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("javascript", "script", "java"));
+
+        assertThat(matcher.match("i write javascript")).containsExactly("javascript", "script", "java");
+        // "script" is found through the failure links once "javascript" breaks off
+        assertThat(matcher.match("javas script")).containsExactly("script", "java");
+    }
+
+    @Test
+    void foldsCaseOfKeywordsAndText() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("Kafka", "kafka ", " ", null, "JAVA"));
+
+        assertThat(matcher.getKeywords()).containsExactly("kafka", "java");
+        assertThat(matcher.match("Streaming with KAFKA and jAvA")).containsExactly("kafka", "java");
+        // the Kelvin sign folds to an ASCII 'k'
+        assertThat(matcher.match("\u212Aafka")).containsExactly("kafka");
+        // keywords match inside longer words, like String.contains
+        assertThat(matcher.match("kafkaesque")).containsExactly("kafka");
+    }
+
+    @Test
+    void matchesNonAsciiKeywords() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("Café", "straße", "über", "東京"));
+
+        assertThat(matcher.match("CAFÉ au lait")).containsExactly("café");
+        assertThat(matcher.match("STRAßE")).containsExactly("straße");
+        assertThat(matcher.match("Über alles in 東京")).containsExactly("über", "東京");
+        // characters of no keyword, ASCII or not, lead back to the root
+        assertThat(matcher.match("cafe uber strasse 京東 ☕")).isEmpty();
+    }
+
+    @Test
+    void reportsKeywordsBeyondFirstOutputWord() {
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            keywords.add("k" + i);
+        }
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(keywords);
+
+        assertThat(matcher.match("k129 k5")).containsExactly("k1", "k5", "k12", "k129");
+        assertThat(matcher.match("k64")).containsExactly("k6", "k64");
+    }
+
+    @Test
+    void handlesNullTextAndNoKeywords() {
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(List.of("kafka"));
+        assertThat(matcher.match(null)).isEmpty();
+        assertThat(matcher.matchesAny(null)).isFalse();
+
+        AhoCorasickMatcher empty = new AhoCorasickMatcher(List.of());
+        assertThat(empty.getKeywords()).isEmpty();
+        assertThat(empty.match("kafka")).isEmpty();
+        assertThat(empty.matchesAny("kafka")).isFalse();
+    }
+
+    @Test
+    void agreesWithStringContainsOnRandomText() {
+        List<String> keywords = List.of("ab", "abc", "bca", "c", "aab", "bb", "cab");
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(keywords);
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                text.append("abcABd ".charAt(random.nextInt(7)));
+            }
+            String folded = text.toString().toLowerCase();
+            List<String> expected = keywords.stream().filter(folded::contains).toList();
+
+            assertThat(matcher.match(text)).as("matches in '%s'", text).containsExactlyElementsOf(expected);
+            assertThat(matcher.matchesAny(text)).as("any match in '%s'", text).isEqualTo(!expected.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedRingBufferTest {
+
+    private static final int THREADS = 4;
+    private static final int ELEMENTS_PER_PRODUCER = 50_000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertThat(new BoundedRingBuffer<Integer>(2).capacity()).isEqualTo(2);
+        assertThat(new BoundedRingBuffer<Integer>(5).capacity()).isEqualTo(8);
+        assertThat(new BoundedRingBuffer<Integer>(1024).capacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new BoundedRingBuffer<Integer>(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BoundedRingBuffer<Integer>(4).offer(null))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void keepsFifoOrderAcrossWraparound() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // the cursors pass the end of the slot array many times, with the buffer filled to varying levels
+        for (int round = 0; round < 100; round++) {
+            int offers = 1 + round % buffer.capacity();
+            for (int i = 0; i < offers; i++) {
+                assertThat(buffer.offer(next++)).isTrue();
+            }
+            assertThat(buffer.size()).isEqualTo(offers);
+            for (int i = 0; i < offers; i++) {
+                assertThat(buffer.poll()).isEqualTo(expected++);
+            }
+            assertThat(buffer.poll()).isNull();
+        }
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void rejectsOffersWhenFullAndReturnsNullWhenEmpty() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        assertThat(buffer.poll()).isNull();
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        // drop-oldest as the pipeline does it: poll from the offering side, then offer again
+        assertThat(buffer.poll()).isEqualTo(0);
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(drain(buffer)).containsExactly(1, 2, 3, 4);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void acceptsExactlyCapacityOffersFromConcurrentProducers() throws Exception {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(1024);
+        List<Integer> accepted = runConcurrently(producer -> () -> {
+            int count = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (buffer.offer(producer * 1000 + i)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        assertThat(accepted.stream().mapToInt(Integer::intValue).sum()).isEqualTo(buffer.capacity());
+        assertThat(buffer.size()).isEqualTo(buffer.capacity());
+        assertThat(new HashSet<>(drain(buffer))).hasSize(buffer.capacity());
+    }
+
+    @Test
+    void handsOutEveryElementOnceToConcurrentConsumers() throws Exception {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(1024);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.offer(i);
+        }
+        List<List<Integer>> polled = runConcurrently(consumer -> () -> drain(buffer));
+
+        Set<Integer> all = new HashSet<>();
+        polled.forEach(all::addAll);
+        assertThat(polled.stream().mapToInt(List::size).sum()).isEqualTo(buffer.capacity());
+        assertThat(all).hasSize(buffer.capacity());
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void deliversAllElementsInProducerOrderUnderContention() throws Exception {
+        BoundedRingBuffer<Long> buffer = new BoundedRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int producer = 0; producer < THREADS; producer++) {
+            long base = (long) producer << 32;
+            producers.add(executor.submit(() -> {
+                start.await();
+                for (long i = 0; i < ELEMENTS_PER_PRODUCER; i++) {
+                    // the small buffer is full most of the time, retry like a blocking offer
+                    while (!buffer.offer(base | i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long[] lastSeen = new long[THREADS];
+        Arrays.fill(lastSeen, -1);
+        Future<Integer> consumer = executor.submit(() -> {
+            start.await();
+            int received = 0;
+            while (received < THREADS * ELEMENTS_PER_PRODUCER) {
+                Long element = buffer.poll();
+                if (element == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                int producer = (int) (element >>> 32);
+                long sequence = element & 0xFFFFFFFFL;
+                assertThat(sequence).isEqualTo(lastSeen[producer] + 1);
+                lastSeen[producer] = sequence;
+                received++;
+            }
+            return received;
+        });
+        start.countDown();
+
+        for (Future<?> producer : producers) {
+            producer.get(30, TimeUnit.SECONDS);
+        }
+        assertThat(consumer.get(30, TimeUnit.SECONDS)).isEqualTo(THREADS * ELEMENTS_PER_PRODUCER);
+        assertThat(lastSeen).containsOnly(ELEMENTS_PER_PRODUCER - 1L);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    /**
+     * Runs one task per thread, all released at the same time.
+     */
+    private <T> List<T> runConcurrently(IntFunction<Callable<T>> taskFactory) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Callable<T> task = taskFactory.apply(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static <E> List<E> drain(BoundedRingBuffer<E> buffer) {
+        List<E> elements = new ArrayList<>();
+        E element;
+        while ((element = buffer.poll()) != null) {
+            elements.add(element);
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,134 @@
+package com.twitter.to.kafka.service.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TweetIdDeduplicatorTest {
+
+    private static final long WINDOW_MS = 1000;
+    private static final long GENERATION_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MS / 2);
+
+    private final LongAdder checkedCount = new LongAdder();
+    private final LongAdder duplicateCount = new LongAdder();
+    private final LongAdder earlyRotationCount = new LongAdder();
+
+    @Test
+    void sizesSetTableForHalfLoad() {
+        assertThat(new LongOpenHashSet(1).capacity()).isEqualTo(2);
+        assertThat(new LongOpenHashSet(3).capacity()).isEqualTo(8);
+        assertThat(new LongOpenHashSet(4).capacity()).isEqualTo(8);
+        assertThat(new LongOpenHashSet(5).capacity()).isEqualTo(16);
+        assertThatThrownBy(() -> new LongOpenHashSet(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LongOpenHashSet(LongOpenHashSet.MAX_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LongOpenHashSet(Integer.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void storesKeysExactlyIncludingZero() {
+        LongOpenHashSet set = new LongOpenHashSet(1000);
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+        expected.add(0L);
+        assertThat(set.add(0L)).isTrue();
+        while (expected.size() < 1000) {
+            long key = random.nextLong();
+            assertThat(set.add(key)).isEqualTo(expected.add(key));
+        }
+
+        assertThat(set.size()).isEqualTo(1000);
+        assertThat(set.isFull()).isTrue();
+        expected.forEach(key -> assertThat(set.contains(key)).isTrue());
+        assertThat(set.contains(expected.stream().mapToLong(Long::longValue).max().getAsLong() + 1)).isFalse();
+        // present keys are still answered when full, only new ones are refused
+        assertThat(set.add(0L)).isFalse();
+        assertThatThrownBy(() -> set.add(random.nextLong())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void clearKeepsTableForReuse() {
+        LongOpenHashSet set = new LongOpenHashSet(4);
+        int capacity = set.capacity();
+        for (long key = 0; key < 4; key++) {
+            set.add(key);
+        }
+
+        set.clear();
+
+        assertThat(set.size()).isZero();
+        assertThat(set.capacity()).isEqualTo(capacity);
+        assertThat(set.contains(0L)).isFalse();
+        assertThat(set.contains(3L)).isFalse();
+        for (long key = 10; key < 14; key++) {
+            assertThat(set.add(key)).isTrue();
+        }
+        assertThat(set.isFull()).isTrue();
+    }
+
+    @Test
+    void dropsDuplicatesWithinWindowAndForgetsIdsAfterIt() {
+        TweetIdDeduplicator deduplicator = deduplicator(1000);
+        long startNanos = System.nanoTime();
+
+        assertThat(deduplicator.isDuplicate(1L, startNanos)).isFalse();
+        assertThat(deduplicator.isDuplicate(1L, startNanos + 1)).isTrue();
+
+        // one generation later the id is in the older generation and still known
+        long nextGeneration = startNanos + GENERATION_NANOS + 1;
+        assertThat(deduplicator.isDuplicate(1L, nextGeneration)).isTrue();
+        assertThat(deduplicator.isDuplicate(2L, nextGeneration)).isFalse();
+
+        // another generation later the generation holding id 1 is evicted, id 2 is still known
+        long afterWindow = nextGeneration + GENERATION_NANOS;
+        assertThat(deduplicator.isDuplicate(2L, afterWindow)).isTrue();
+        assertThat(deduplicator.isDuplicate(1L, afterWindow)).isFalse();
+
+        // a gap longer than the window clears every generation
+        long muchLater = afterWindow + 10 * GENERATION_NANOS;
+        assertThat(deduplicator.isDuplicate(2L, muchLater)).isFalse();
+        assertThat(deduplicator.isDuplicate(1L, muchLater)).isFalse();
+
+        assertThat(checkedCount.sum()).isEqualTo(8);
+        assertThat(duplicateCount.sum()).isEqualTo(3);
+        assertThat(earlyRotationCount.sum()).isZero();
+    }
+
+    @Test
+    void rotatesEarlyWhenGenerationIsFull() {
+        TweetIdDeduplicator deduplicator = deduplicator(4);
+        long nowNanos = System.nanoTime();
+
+        for (long id = 1; id <= 4; id++) {
+            assertThat(deduplicator.isDuplicate(id, nowNanos)).isFalse();
+        }
+        assertThat(earlyRotationCount.sum()).isZero();
+
+        // the full generation is kept for lookups, new ids go to the next one
+        assertThat(deduplicator.isDuplicate(5L, nowNanos)).isFalse();
+        assertThat(earlyRotationCount.sum()).isEqualTo(1);
+        assertThat(deduplicator.isDuplicate(1L, nowNanos)).isTrue();
+        for (long id = 6; id <= 8; id++) {
+            assertThat(deduplicator.isDuplicate(id, nowNanos)).isFalse();
+        }
+
+        // the next early rotation evicts ids 1 to 4 within the window
+        assertThat(deduplicator.isDuplicate(9L, nowNanos)).isFalse();
+        assertThat(earlyRotationCount.sum()).isEqualTo(2);
+        assertThat(deduplicator.isDuplicate(5L, nowNanos)).isTrue();
+        assertThat(deduplicator.isDuplicate(1L, nowNanos)).isFalse();
+    }
+
+    private TweetIdDeduplicator deduplicator(int entriesPerGeneration) {
+        return new TweetIdDeduplicator(WINDOW_MS, 2, entriesPerGeneration, checkedCount, duplicateCount,
+                earlyRotationCount);
+    }
+}
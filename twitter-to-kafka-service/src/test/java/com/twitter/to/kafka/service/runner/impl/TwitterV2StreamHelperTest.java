@@ -0,0 +1,235 @@
+package com.twitter.to.kafka.service.runner.impl;
+
+import com.microservices.demo.common.logging.HotPathLoggerFactory;
+import com.microservices.demo.config.HotPathLoggingConfigData;
+import com.microservices.demo.config.TweetReplayConfigData;
+import com.microservices.demo.config.TwitterToKafkaServiceConfigData;
+import com.microservices.demo.config.TwitterV2HttpClientConfigData;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.twitter.to.kafka.service.config.TwitterV2HttpClientConfig;
+import com.twitter.to.kafka.service.decoder.TwitterV2StreamDecoder;
+import com.twitter.to.kafka.service.metrics.IngestMetrics;
+import com.twitter.to.kafka.service.pipeline.TweetIngestPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams from a {@link HttpServer} stub of the v2 filtered stream endpoint through the client of
+ * {@link TwitterV2HttpClientConfig}: chunked NDJSON with keep-alive newlines, a gzip encoded stream, a stream
+ * that stalls until {@link IdleTimeoutInputStream} gives up on it and a server that never sends headers.
+ */
+class TwitterV2StreamHelperTest {
+
+    private static final String STREAM_PATH = "/2/tweets/search/stream";
+    private static final long STREAM_READ_TIMEOUT_MS = 300;
+    private static final long REQUEST_TIMEOUT_MS = 1000;
+
+    private static final String TWEET_1 = "{\"data\":{\"id\":\"1845788420134256640\",\"text\":\"hello kafka\"," +
+            "\"author_id\":\"2244994945\",\"created_at\":\"2024-10-14T11:35:30.000Z\"}," +
+            "\"matching_rules\":[{\"id\":\"1\",\"tag\":\"kafka\"}]}";
+    private static final String TWEET_2 = "{\"data\":{\"id\":\"1845788420134256641\",\"text\":\"hello again\"," +
+            "\"author_id\":\"783214\",\"created_at\":\"2024-10-14T11:35:31.250Z\"}}";
+
+    private final List<TwitterAvroModel> published = new CopyOnWriteArrayList<>();
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private final CountDownLatch releaseStalledStream = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HotPathLoggerFactory hotPathLoggerFactory;
+    private TwitterV2StreamHelper twitterV2StreamHelper;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        hotPathLoggerFactory = new HotPathLoggerFactory(hotPathLoggingConfigData());
+    }
+
+    @AfterEach
+    void stopServer() {
+        releaseStalledStream.countDown();
+        if (twitterV2StreamHelper != null) {
+            twitterV2StreamHelper.shutdown();
+        }
+        hotPathLoggerFactory.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void decodesChunkedNdjsonWithKeepAlives() throws Exception {
+        serve(false, exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                writeChunked(body);
+            }
+        });
+
+        twitterV2StreamHelper.connectStream("token");
+
+        assertTweetsPublished();
+    }
+
+    @Test
+    void decodesGzipEncodedStream() throws Exception {
+        serve(true, exchange -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = new GZIPOutputStream(exchange.getResponseBody(), true)) {
+                writeChunked(body);
+            }
+        });
+
+        twitterV2StreamHelper.connectStream("token");
+
+        assertThat(acceptEncoding.get()).isEqualTo("gzip");
+        assertTweetsPublished();
+    }
+
+    @Test
+    void closesStalledStreamAfterReadTimeout() throws Exception {
+        serve(false, exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write((TWEET_1 + "\r\n").getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                // no data and no keep-alive until the test is over
+                releaseStalledStream.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        assertThatThrownBy(() -> twitterV2StreamHelper.connectStream("token"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No data received on stream for " + STREAM_READ_TIMEOUT_MS + " ms");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertThat(elapsedMs).isBetween(STREAM_READ_TIMEOUT_MS, 10 * STREAM_READ_TIMEOUT_MS);
+        assertThat(published).extracting(TwitterAvroModel::getId).containsExactly(1845788420134256640L);
+        // the watchdog only closes the stream, the reading thread may be busy outside of read
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    void timesOutWaitingForResponseHeaders() {
+        serve(false, exchange -> {
+            try {
+                // the connection is accepted, but headers never come
+                releaseStalledStream.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        assertThatThrownBy(() -> twitterV2StreamHelper.connectStream("token"))
+                .isInstanceOf(HttpTimeoutException.class);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertThat(elapsedMs).isLessThan(10 * REQUEST_TIMEOUT_MS);
+        assertThat(published).isEmpty();
+    }
+
+    /**
+     * Serves the handler on the stream path and creates the helper against it, with the Twitter v2 client
+     * configured as in the service.
+     */
+    private void serve(boolean gzipEnabled, HttpHandler handler) {
+        server.createContext(STREAM_PATH, exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            handler.handle(exchange);
+        });
+
+        TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData = new TwitterToKafkaServiceConfigData();
+        twitterToKafkaServiceConfigData.setTwitterV2BaseUrl("http://127.0.0.1:" + server.getAddress().getPort() +
+                STREAM_PATH);
+        TwitterV2HttpClientConfigData twitterV2HttpClientConfigData = new TwitterV2HttpClientConfigData();
+        twitterV2HttpClientConfigData.setConnectTimeoutMs(1000L);
+        twitterV2HttpClientConfigData.setRequestTimeoutMs(REQUEST_TIMEOUT_MS);
+        twitterV2HttpClientConfigData.setStreamReadTimeoutMs(STREAM_READ_TIMEOUT_MS);
+        twitterV2HttpClientConfigData.setGzipEnabled(gzipEnabled);
+        twitterV2HttpClientConfigData.setExecutorThreads(2);
+        TweetReplayConfigData tweetReplayConfigData = new TweetReplayConfigData();
+        tweetReplayConfigData.setCaptureEnabled(false);
+
+        TweetIngestPipeline tweetIngestPipeline = mock(TweetIngestPipeline.class);
+        when(tweetIngestPipeline.publish(any(TwitterAvroModel.class), anyString(), anyLong()))
+                .thenAnswer(invocation -> published.add(invocation.getArgument(0)));
+
+        twitterV2StreamHelper = new TwitterV2StreamHelper(twitterToKafkaServiceConfigData,
+                twitterV2HttpClientConfigData, tweetReplayConfigData,
+                new TwitterV2HttpClientConfig(twitterV2HttpClientConfigData).twitterV2HttpClient(),
+                tweetIngestPipeline, new TwitterV2StreamDecoder(), new IngestMetrics(new SimpleMeterRegistry()),
+                hotPathLoggerFactory);
+    }
+
+    /**
+     * Writes both tweets with keep-alive newlines around them, every tweet split over two chunks.
+     */
+    private static void writeChunked(OutputStream body) throws IOException {
+        for (String chunk : List.of("\r\n", TWEET_1.substring(0, 40), TWEET_1.substring(40) + "\r\n", "\r\n",
+                TWEET_2.substring(0, 25), TWEET_2.substring(25) + "\r\n", "\r\n")) {
+            body.write(chunk.getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private void assertTweetsPublished() {
+        assertThat(published).hasSize(2);
+        TwitterAvroModel first = published.get(0);
+        assertThat(first.getId()).isEqualTo(1845788420134256640L);
+        assertThat(first.getUserId()).isEqualTo(2244994945L);
+        assertThat(first.getText()).isEqualTo("hello kafka");
+        assertThat(first.getCreatedAt()).isEqualTo(1728905730000L);
+        TwitterAvroModel second = published.get(1);
+        assertThat(second.getId()).isEqualTo(1845788420134256641L);
+        assertThat(second.getUserId()).isEqualTo(783214L);
+        assertThat(second.getCreatedAt()).isEqualTo(1728905731250L);
+    }
+
+    private static HotPathLoggingConfigData hotPathLoggingConfigData() {
+        HotPathLoggingConfigData hotPathLoggingConfigData = new HotPathLoggingConfigData();
+        hotPathLoggingConfigData.setDefaultSampleEvery(1000);
+        hotPathLoggingConfigData.setDefaultMaxPerSecond(5);
+        hotPathLoggingConfigData.setSummaryIntervalMs(30000L);
+        return hotPathLoggingConfigData;
+    }
+}